@@ -0,0 +1,121 @@
+package com.parking.app.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Executors for request-path work that fans out from the calling thread
+ *
+ * bookingReadExecutor: runs the independent pre-lock reads of a booking (spot, user, wallet)
+ * concurrently. Bounded pool and queue; when both are full the caller runs the read itself,
+ * so overload degrades to the old sequential behaviour instead of failing.
+ * The request's MDC (trace/request ids) is copied to the worker so its logs stay correlated.
+ *
+ * With spring.threads.virtual.enabled=true the reads run on virtual threads instead, capped at
+ * max-size concurrent reads to protect the MongoDB connection pool. The same property moves
+ * Tomcat request handling and the default @Async executor onto virtual threads (Spring Boot).
+ *
+ * bookingEventExecutor: runs booking side effects (lot availability updates). Small bounded pool
+ * and queue with caller-runs overflow, so a burst slows publishers down instead of growing an
+ * unbounded backlog. Queue depth, active/pool threads and rejections are exported as metrics.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    private static final String BOOKING_EVENT_METRIC_PREFIX = "booking.events.executor";
+
+    @Bean(name = "bookingReadExecutor")
+    public AsyncTaskExecutor bookingReadExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${app.booking.read-executor.core-size:16}") int coreSize,
+            @Value("${app.booking.read-executor.max-size:64}") int maxSize,
+            @Value("${app.booking.read-executor.queue-capacity:256}") int queueCapacity) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("booking-read-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxSize);
+            executor.setTaskDecorator(mdcPropagatingDecorator());
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("booking-read-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(mdcPropagatingDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        return executor;
+    }
+
+    @Bean(name = "bookingEventExecutor")
+    public ThreadPoolTaskExecutor bookingEventExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${app.booking.event-executor.core-size:2}") int coreSize,
+            @Value("${app.booking.event-executor.max-size:4}") int maxSize,
+            @Value("${app.booking.event-executor.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(coreSize);
+        executor.setMaxPoolSize(maxSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("booking-event-");
+        executor.setTaskDecorator(mdcPropagatingDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+
+        Counter rejected = Counter.builder(BOOKING_EVENT_METRIC_PREFIX + ".rejected")
+                .description("Booking event tasks run on the caller because the executor was full")
+                .register(meterRegistry);
+        RejectedExecutionHandler callerRuns = new ThreadPoolExecutor.CallerRunsPolicy();
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            callerRuns.rejectedExecution(task, pool);
+        });
+
+        Gauge.builder(BOOKING_EVENT_METRIC_PREFIX + ".queued", executor, ThreadPoolTaskExecutor::getQueueSize)
+                .description("Booking event tasks waiting in the executor queue")
+                .register(meterRegistry);
+        Gauge.builder(BOOKING_EVENT_METRIC_PREFIX + ".active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Booking event executor threads currently running a task")
+                .register(meterRegistry);
+        Gauge.builder(BOOKING_EVENT_METRIC_PREFIX + ".pool.size", executor, ThreadPoolTaskExecutor::getPoolSize)
+                .description("Booking event executor threads")
+                .register(meterRegistry);
+        return executor;
+    }
+
+    private TaskDecorator mdcPropagatingDecorator() {
+        return runnable -> {
+            Map<String, String> context = MDC.getCopyOfContextMap();
+            return () -> {
+                Map<String, String> previous = MDC.getCopyOfContextMap();
+                if (context != null) {
+                    MDC.setContextMap(context);
+                }
+                try {
+                    runnable.run();
+                } finally {
+                    if (previous != null) {
+                        MDC.setContextMap(previous);
+                    } else {
+                        MDC.clear();
+                    }
+                }
+            };
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.parking.app.config;
+
+import com.parking.app.service.lock.LocalStripedLockService;
+import com.parking.app.service.lock.LockLeaseWatchdog;
+import com.parking.app.service.lock.LockService;
+import com.parking.app.service.lock.MongoLockService;
+import com.parking.app.service.lock.RedisLockService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Wraps the active distributed lock provider (Redis or MongoDB) in a local striped lock
+ * ACTIVE when: app.locking.local-striping.enabled=true (default)
+ *
+ * The wrapper is @Primary so every LockService injection point gets the two-level lock,
+ * while the provider beans stay available by concrete type.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.locking.local-striping.enabled", havingValue = "true", matchIfMissing = true)
+public class LockConfig {
+
+    @Bean
+    @Primary
+    public LockService localStripedLockService(ObjectProvider<RedisLockService> redisLockService,
+                                               ObjectProvider<MongoLockService> mongoLockService,
+                                               LockLeaseWatchdog leaseWatchdog,
+                                               @Value("${app.locking.local-striping.stripes:256}") int stripes) {
+        LockService provider = redisLockService.getIfAvailable();
+        if (provider == null) {
+            provider = mongoLockService.getObject();
+        }
+        return new LocalStripedLockService(provider, leaseWatchdog, stripes);
+    }
+}
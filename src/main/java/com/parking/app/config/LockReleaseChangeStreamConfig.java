@@ -0,0 +1,53 @@
+package com.parking.app.config;
+
+import com.parking.app.listener.LockReleaseListener;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+/**
+ * Change stream on booking_locks releases for the MongoDB lock provider
+ *
+ * Lets waiters on every instance retry the moment a lock is released elsewhere, instead of on
+ * their next backoff tick. A release unsets lockValue (the document keeps the fence counter);
+ * deletes are still matched for documents removed by hand. Expired leases produce no event and
+ * are picked up by the waiters' backoff. Requires MongoDB running as a replica set.
+ * Enable with: app.locking.mongodb.release-change-stream.enabled=true (with app.locking.provider=mongodb)
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.locking.mongodb.release-change-stream.enabled", havingValue = "true")
+public class LockReleaseChangeStreamConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockReleaseChangeStreamConfig.class);
+
+    @Bean
+    public MessageListenerContainer lockReleaseContainer(MongoTemplate mongoTemplate,
+                                                         LockReleaseListener listener) {
+        MessageListenerContainer container = new DefaultMessageListenerContainer(mongoTemplate) {
+            @Override
+            public boolean isAutoStartup() {
+                return true;
+            }
+        };
+
+        ChangeStreamRequest<Document> request = ChangeStreamRequest.builder(listener)
+                .collection("booking_locks")
+                .filter(Aggregation.newAggregation(Aggregation.match(new Criteria().orOperator(
+                        Criteria.where("operationType").is("delete"),
+                        Criteria.where("updateDescription.removedFields").is("lockValue")))))
+                .build();
+        container.register(request, Document.class);
+
+        logger.info("✅ Lock release change stream ENABLED on booking_locks");
+        return container;
+    }
+}
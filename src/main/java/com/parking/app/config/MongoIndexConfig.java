@@ -1,7 +1,14 @@
 package com.parking.app.config;
 
+import com.parking.app.model.BookingOutboxEvent;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.ParkingSpot;
+import com.parking.app.model.SpotSlotInventory;
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.model.WalletLedgerBucket;
+import com.parking.app.service.WalletConsolidation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
@@ -11,6 +18,8 @@ import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.index.Index;
 import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
 
 /**
  * MongoDB Index Configuration for Optimal Performance
@@ -26,9 +35,11 @@ import org.springframework.data.mongodb.core.index.IndexOperations;
 public class MongoIndexConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(MongoIndexConfig.class);
+    private static final long OUTBOX_RETENTION_SECONDS = 7 * 24 * 60 * 60;
+    private static final String WALLET_USER_INDEX = "idx_wallet_user_unique";
 
     @Bean
-    public CommandLineRunner createIndexes(MongoTemplate mongoTemplate) {
+    public CommandLineRunner createIndexes(MongoTemplate mongoTemplate, WalletConsolidation walletConsolidation) {
         return args -> {
             logger.info("Creating MongoDB indexes for optimal booking performance...");
 
@@ -95,6 +106,13 @@ public class MongoIndexConfig {
                     .named("idx_checkout_operator")
             );
 
+            // Outbox relay: bookings still carrying an undelivered event (sparse: most carry none)
+            createIndexSafely(bookingIndexOps, new Index()
+                    .on(Bookings.FIELD_PENDING_EVENT_AT, Sort.Direction.ASC)
+                    .sparse()
+                    .named("idx_pending_event_at")
+            );
+
             // ===== PARKING SPOT COLLECTION INDEXES =====
             IndexOperations spotIndexOps = mongoTemplate.indexOps(ParkingSpot.class);
 
@@ -128,6 +146,120 @@ public class MongoIndexConfig {
                     .named("idx_availability")
             );
 
+            // ===== SPOT SLOT INVENTORY COLLECTION INDEXES =====
+            IndexOperations slotIndexOps = mongoTemplate.indexOps(SpotSlotInventory.class);
+
+            // TTL index so finished spot-days clean themselves up (lookups go through _id)
+            createIndexSafely(slotIndexOps, new Index()
+                    .on(SpotSlotInventory.FIELD_EXPIRES_AT, Sort.Direction.ASC)
+                    .expire(0)
+                    .named("idx_slot_inventory_ttl")
+            );
+
+            // ===== BOOKING OUTBOX COLLECTION INDEXES =====
+            IndexOperations outboxIndexOps = mongoTemplate.indexOps(BookingOutboxEvent.class);
+
+            // Relay scan for records that were never delivered
+            createIndexSafely(outboxIndexOps, new Index()
+                    .on(BookingOutboxEvent.FIELD_STATUS, Sort.Direction.ASC)
+                    .on(BookingOutboxEvent.FIELD_CREATED_AT, Sort.Direction.ASC)
+                    .named("idx_outbox_status_created")
+            );
+
+            // Lookup of a delivery's claimed records
+            createIndexSafely(outboxIndexOps, new Index()
+                    .on(BookingOutboxEvent.FIELD_CLAIM_TOKEN, Sort.Direction.ASC)
+                    .sparse()
+                    .named("idx_outbox_claim_token")
+            );
+
+            // Delivered records are kept for a week, then removed
+            createIndexSafely(outboxIndexOps, new Index()
+                    .on(BookingOutboxEvent.FIELD_DELIVERED_AT, Sort.Direction.ASC)
+                    .expire(OUTBOX_RETENTION_SECONDS)
+                    .named("idx_outbox_delivered_ttl")
+            );
+
+            // ===== WALLET COLLECTION INDEXES =====
+            IndexOperations walletIndexOps = mongoTemplate.indexOps(Wallet.class);
+
+            // One wallet per user. Existing duplicates are merged first, or the unique build fails;
+            // once the index exists there is nothing left to merge
+            if (walletIndexOps.getIndexInfo().stream().noneMatch(info -> WALLET_USER_INDEX.equals(info.getName()))) {
+                walletConsolidation.consolidate();
+            }
+            createIndexSafely(walletIndexOps, new Index()
+                    .on(Wallet.FIELD_USER_ID, Sort.Direction.ASC)
+                    .unique()
+                    .named(WALLET_USER_INDEX)
+            );
+
+            // ===== WALLET LEDGER COLLECTION INDEXES =====
+            IndexOperations ledgerIndexOps = mongoTemplate.indexOps(WalletLedgerBucket.class);
+
+            // Append path: the user's open bucket for the month
+            createIndexSafely(ledgerIndexOps, new Index()
+                    .on(WalletLedgerBucket.FIELD_USER_ID, Sort.Direction.ASC)
+                    .on(WalletLedgerBucket.FIELD_PERIOD, Sort.Direction.ASC)
+                    .on(WalletLedgerBucket.FIELD_COUNT, Sort.Direction.ASC)
+                    .named("idx_ledger_user_period_count")
+            );
+
+            // History paging, newest bucket first
+            createIndexSafely(ledgerIndexOps, new Index()
+                    .on(WalletLedgerBucket.FIELD_USER_ID, Sort.Direction.ASC)
+                    .on(WalletLedgerBucket.FIELD_LAST_AT, Sort.Direction.DESC)
+                    .named("idx_ledger_user_last_at")
+            );
+
+            // Checkpoint roll-forward: buckets holding entries after a given seq
+            createIndexSafely(ledgerIndexOps, new Index()
+                    .on(WalletLedgerBucket.FIELD_USER_ID, Sort.Direction.ASC)
+                    .on(WalletLedgerBucket.FIELD_MAX_SEQ, Sort.Direction.ASC)
+                    .named("idx_ledger_user_max_seq")
+            );
+
+            // Projection dedupe: has this referenceId ever been applied to the user's wallet
+            createIndexSafely(ledgerIndexOps, new Index()
+                    .on(WalletLedgerBucket.FIELD_USER_ID, Sort.Direction.ASC)
+                    .on(WalletLedgerBucket.FIELD_ENTRY_REFERENCE_ID, Sort.Direction.ASC)
+                    .named("idx_ledger_user_entry_reference")
+            );
+
+            // ===== TRANSACTIONS COLLECTION INDEXES =====
+            IndexOperations transactionIndexOps = mongoTemplate.indexOps(Transactions.class);
+
+            // WalletProjector work queue: only records still waiting to be applied are indexed
+            createIndexSafely(transactionIndexOps, new Index()
+                    .on(Transactions.FIELD_PROJECTION, Sort.Direction.ASC)
+                    .on(Transactions.FIELD_TIMESTAMP, Sort.Direction.ASC)
+                    .partial(PartialIndexFilter.of(Criteria.where(Transactions.FIELD_PROJECTION)
+                            .is(Transactions.PROJECTION_PENDING)))
+                    .named("idx_transactions_projection_pending")
+            );
+
+            // One success record per gateway payment, so a repeated callback fails its insert instead of
+            // crediting twice. Only records carrying a projection marker are covered; older history was
+            // deduped by the wallet's recent refs and must not block the build
+            createIndexSafely(transactionIndexOps, new Index()
+                    .on(Transactions.FIELD_GATEWAY_PAYMENT_ID, Sort.Direction.ASC)
+                    .unique()
+                    .partial(PartialIndexFilter.of(Criteria.where(Transactions.FIELD_STATUS).is(Transactions.STATUS_SUCCESS)
+                            .and(Transactions.FIELD_GATEWAY_PAYMENT_ID).exists(true)
+                            .and(Transactions.FIELD_PROJECTION).exists(true)))
+                    .named("idx_transactions_gateway_payment_unique")
+            );
+
+            // ===== WALLET BALANCE CHECKPOINT COLLECTION INDEXES =====
+            IndexOperations checkpointIndexOps = mongoTemplate.indexOps(WalletBalanceCheckpoint.class);
+
+            // Latest checkpoint per user
+            createIndexSafely(checkpointIndexOps, new Index()
+                    .on(WalletBalanceCheckpoint.FIELD_USER_ID, Sort.Direction.ASC)
+                    .on(WalletBalanceCheckpoint.FIELD_SEQ, Sort.Direction.DESC)
+                    .named("idx_checkpoint_user_seq")
+            );
+
             logger.info("✅ MongoDB indexes created successfully for high-concurrency support");
         };
     }
@@ -1,13 +1,19 @@
 package com.parking.app.config;
 
+import com.parking.app.service.lock.LockReleaseNotifier;
+import com.parking.app.service.lock.RedisLockService;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Redis Configuration for Distributed Locking
  * ACTIVE when: app.locking.provider=redis (default)
@@ -36,4 +42,19 @@ public class RedisConfig {
         template.setValueSerializer(new StringRedisSerializer());
         return template;
     }
+
+    /**
+     * Delivers lock release messages from every instance to local waiters
+     */
+    @Bean
+    public RedisMessageListenerContainer lockReleaseListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                      LockReleaseNotifier releaseNotifier) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> releaseNotifier.notifyReleased(
+                        new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(RedisLockService.RELEASE_CHANNEL));
+        return container;
+    }
 }
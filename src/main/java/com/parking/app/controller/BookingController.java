@@ -4,10 +4,12 @@ package com.parking.app.controller;
 import com.parking.app.constants.CheckInMode;
 import com.parking.app.dto.CheckInRequestDto;
 import com.parking.app.dto.CreateBookingRequestDto;
+import com.parking.app.dto.CreateLotBookingRequestDto;
 import com.parking.app.exception.NotFoundException;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.Users;
 import com.parking.app.service.BookingService;
+import com.parking.app.util.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +33,7 @@ public class BookingController {
 
     private static final Logger logger = LoggerFactory.getLogger(BookingController.class);
     private static final DateTimeFormatter CUSTOM_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm");
+    private static final long PENALTY_PAISE_PER_MINUTE = 200;
 
     private final BookingService bookingService;
 
@@ -76,6 +79,44 @@ public class BookingController {
         }
     }
 
+    /**
+     * Lot-level booking: the server picks a free spot in the lot
+     * Prefers the requested zone, then the least contended spot with the most remaining capacity
+     */
+    @PostMapping("/{userId}/lots/{lotId}/create")
+    public ResponseEntity<?> createBookingInLot(
+            @PathVariable String userId,
+            @PathVariable String lotId,
+            @RequestBody CreateLotBookingRequestDto request
+    ) {
+        try {
+            ZonedDateTime checkIn = LocalDateTime.parse(request.getCheckInTime(), CUSTOM_DATE_FORMAT)
+                    .atZone(ZoneId.systemDefault());
+            ZonedDateTime checkOut = LocalDateTime.parse(request.getCheckOutTime(), CUSTOM_DATE_FORMAT)
+                    .atZone(ZoneId.systemDefault());
+
+            Bookings booking = bookingService.createBookingInLot(
+                    lotId,
+                    userId,
+                    checkIn,
+                    checkOut,
+                    request.getVehicleNumber(),
+                    request.getPreferredZone()
+            );
+            return ResponseEntity.ok(booking);
+        } catch (DateTimeParseException e) {
+            logger.error("Invalid date format. Expected: dd-MM-yyyy HH:mm, Got: checkInTime={}, checkOutTime={}",
+                    request.getCheckInTime(), request.getCheckOutTime());
+            return ResponseEntity.badRequest()
+                    .body(Map.of(
+                            "error", "Invalid date format",
+                            "message", "Please use format: dd-MM-yyyy HH:mm (e.g., 23-11-2025 10:30)",
+                            "checkInTime", request.getCheckInTime(),
+                            "checkOutTime", request.getCheckOutTime()
+                    ));
+        }
+    }
+
     @PostMapping("/{userId}/{bookingId}/cancel")
     public ResponseEntity<?> cancelBooking(@PathVariable String userId, @PathVariable String bookingId) {
         Bookings booking = bookingService.getBookingById(bookingId);
@@ -349,11 +390,11 @@ public class BookingController {
         ZonedDateTime now = ZonedDateTime.now();
         ZonedDateTime checkIn = booking.getCheckInTime().toInstant().atZone(ZoneId.systemDefault());
         long minutesSinceCheckIn = java.time.Duration.between(checkIn, now).toMinutes();
-        double penalty = 0;
+        long penalty = 0;
         if (minutesSinceCheckIn > 10) {
-            penalty = (minutesSinceCheckIn - 10) * 2.0;
+            penalty = Money.times(PENALTY_PAISE_PER_MINUTE, minutesSinceCheckIn - 10);
         }
-        return ResponseEntity.ok(penalty);
+        return ResponseEntity.ok(Money.toRupees(penalty));
     }
 
     // ==================== ADMIN OPERATIONS ====================
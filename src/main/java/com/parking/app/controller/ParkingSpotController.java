@@ -2,7 +2,6 @@ package com.parking.app.controller;
 
 import com.parking.app.exception.ConflictException;
 import com.parking.app.exception.NotFoundException;
-import com.parking.app.model.Bookings;
 import com.parking.app.model.ParkingSpot;
 import com.parking.app.service.BookingService;
 import com.parking.app.service.ParkingSpotService;
@@ -59,10 +58,7 @@ public class ParkingSpotController {
             @RequestParam String lotId,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime startTime,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) ZonedDateTime endTime) {
-        List<Bookings> overlappingBookings = bookingService.findByLotIdAndTimeWindow(lotId, startTime, endTime);
-
-        List<ParkingSpot> availableSpots = parkingSpotService.getAvailableSpots(lotId, startTime, endTime,
-                overlappingBookings);
+        List<ParkingSpot> availableSpots = bookingService.getAvailableSpots(lotId, startTime, endTime);
 
         return ResponseEntity.ok(availableSpots);
     }
@@ -125,6 +121,18 @@ public class ParkingSpotController {
     // MAINTENANCE / ADMIN
     // =======================
 
+    @PostMapping("/id/{id}/counter-shards")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ParkingSpot> configureCounterShards(
+            @PathVariable String id,
+            @RequestParam int shards) {
+        ParkingSpot spot = parkingSpotService.configureCounterShards(id, shards);
+        if (spot == null) {
+            throw new NotFoundException("Parking spot not found with id: " + id);
+        }
+        return ResponseEntity.ok(spot);
+    }
+
     @GetMapping("/fix-zone-names")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<String> fixZoneNames() {
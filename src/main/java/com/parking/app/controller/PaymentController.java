@@ -1,6 +1,7 @@
 package com.parking.app.controller;
 
 import com.parking.app.service.PaymentGatewayService;
+import com.parking.app.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -8,6 +9,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.math.BigDecimal;
 import java.util.Map;
 
 @RestController
@@ -28,12 +30,8 @@ public class PaymentController {
             throw new IllegalArgumentException("userId and amount are required");
         }
 
-        double amount;
-        if (amountObj instanceof Number) {
-            amount = ((Number) amountObj).doubleValue();
-        } else {
-            amount = Double.parseDouble(amountObj.toString());
-        }
+        // Rupees on the API, paise from here on
+        long amount = Money.ofRupees(new BigDecimal(amountObj.toString()));
         String orderId = paymentGatewayService.initiatePayment(userId, amount);
         return ResponseEntity.ok(Map.of("orderId", orderId));
     }
@@ -58,12 +56,8 @@ public class PaymentController {
             success = Boolean.parseBoolean(successObj.toString());
         }
 
-        double amount;
-        if (amountObj instanceof Number) {
-            amount = ((Number) amountObj).doubleValue();
-        } else {
-            amount = Double.parseDouble(amountObj.toString());
-        }
+        // Rupees on the API, paise from here on
+        long amount = Money.ofRupees(new BigDecimal(amountObj.toString()));
 
         boolean result = paymentGatewayService.handlePaymentCallback(orderId, paymentId, success, userId, amount);
         if (result) {
@@ -3,11 +3,16 @@ package com.parking.app.controller;
 import com.parking.app.model.Transactions;
 import com.parking.app.model.Wallet;
 import com.parking.app.service.TransactionService;
+import com.parking.app.service.WalletBalanceCheckpointService;
+import com.parking.app.service.WalletLedgerService;
 import com.parking.app.service.WalletService;
+import com.parking.app.util.Money;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -27,10 +32,34 @@ public class WalletController {
 
     @GetMapping
     public ResponseEntity<Wallet> getWallet(@PathVariable String userId) {
-        Wallet wallet = walletService.getOrCreateWallet(userId);
+        Wallet wallet = walletService.getWalletSummary(userId);
         return ResponseEntity.ok(wallet);
     }
 
+    // Page through wallet history, newest first; pass nextCursor back as cursor for the next page
+    @GetMapping("/ledger")
+    public ResponseEntity<WalletLedgerService.LedgerPage> getLedger(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(walletService.getLedgerPage(userId, cursor, limit));
+    }
+
+
+    // Stored balance next to the balance recomputed from the latest checkpoint and the ledger after it
+    @GetMapping("/ledger/balance")
+    public ResponseEntity<Map<String, Object>> getLedgerBalance(@PathVariable String userId) {
+        Wallet wallet = walletService.getWalletSummary(userId);
+        Map<String, Object> body = new HashMap<>();
+        WalletBalanceCheckpointService.LedgerBalance ledgerBalance = walletService.getLedgerBalance(userId);
+        body.put("balance", Money.toRupees(wallet.getBalance()));
+        body.put("ledgerSeq", wallet.getLedgerSeq());
+        body.put("ledgerBalance", ledgerBalance != null ? Money.toRupees(ledgerBalance.balance()) : null);
+        // Incomplete: an entry is missing, so ledgerBalance only covers the history up to ledgerBalanceSeq
+        body.put("ledgerBalanceSeq", ledgerBalance != null ? ledgerBalance.seq() : null);
+        body.put("ledgerComplete", ledgerBalance != null && ledgerBalance.complete());
+        return ResponseEntity.ok(body);
+    }
 
     // Get all transactions for a user
     @GetMapping("/transactions")
@@ -42,12 +71,12 @@ public class WalletController {
     @PostMapping("/topup")
     public ResponseEntity<?> topUpWallet(
             @PathVariable String userId,
-            @RequestBody Map<String, Double> request) {
-        Double amount = request.get("amount");
-        if (amount == null || amount <= 0) {
+            @RequestBody Map<String, BigDecimal> request) {
+        BigDecimal amount = request.get("amount");
+        if (amount == null || Money.ofRupees(amount) <= 0) {
             throw new IllegalArgumentException("Amount must be positive.");
         }
-        Wallet wallet = walletService.topUpWallet(userId, amount);
+        Wallet wallet = walletService.topUpWallet(userId, Money.ofRupees(amount));
         return ResponseEntity.ok(wallet);
     }
 
@@ -55,12 +84,12 @@ public class WalletController {
     @PostMapping("/deduct-penalty")
     public ResponseEntity<?> deductPenalty(
             @PathVariable String userId,
-            @RequestBody Map<String, Double> request) {
-        Double penalty = request.get("penalty");
-        if (penalty == null || penalty <= 0) {
+            @RequestBody Map<String, BigDecimal> request) {
+        BigDecimal penalty = request.get("penalty");
+        if (penalty == null || Money.ofRupees(penalty) <= 0) {
             throw new IllegalArgumentException("Penalty must be positive.");
         }
-        Wallet wallet = walletService.deductPenalty(userId, penalty);
+        Wallet wallet = walletService.deductPenalty(userId, Money.ofRupees(penalty));
         if (wallet == null) {
             throw new com.parking.app.exception.NotFoundException("Wallet not found or insufficient balance.");
         }
@@ -0,0 +1,12 @@
+package com.parking.app.dto;
+
+import lombok.Data;
+
+@Data
+public class CreateLotBookingRequestDto {
+
+    private String checkInTime;
+    private String checkOutTime;
+    private String vehicleNumber;
+    private String preferredZone;   // optional zone name to try first
+}
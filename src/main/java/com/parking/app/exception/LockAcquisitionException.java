@@ -0,0 +1,7 @@
+package com.parking.app.exception;
+
+public class LockAcquisitionException extends RuntimeException {
+    public LockAcquisitionException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,11 @@
+package com.parking.app.exception;
+
+/**
+ * The spot cannot take this booking right now (sold out or its booking queue is full).
+ * Still a 409 like any ConflictException, but never worth an automatic retry.
+ */
+public class SpotUnavailableException extends ConflictException {
+    public SpotUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -4,6 +4,7 @@ import com.mongodb.client.model.changestream.OperationType;
 import com.parking.app.model.BookingAudit;
 import com.parking.app.model.Bookings;
 import com.parking.app.repository.BookingAuditRepository;
+import com.parking.app.util.Money;
 import org.bson.BsonDocument;
 import org.bson.Document;
 import org.slf4j.Logger;
@@ -101,7 +102,7 @@ public class BookingChangeStreamListener implements MessageListener<com.mongodb.
             .vehicleNumber(fullDocument.getString("vehicleNumber"))
             .newStatus(fullDocument.getString("status"))
             .newValues(snapshot)
-            .amount(fullDocument.getDouble("amount"))
+            .amount(Money.fromStored(fullDocument.get("amount")))
             .checkInTime(fullDocument.getDate("checkInTime"))
             .checkOutTime(fullDocument.getDate("checkOutTime"))
             .timestamp(ZonedDateTime.now())
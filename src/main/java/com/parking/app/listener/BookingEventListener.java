@@ -1,18 +1,20 @@
 package com.parking.app.listener;
 
 import com.parking.app.model.event.BookingEvent;
-import com.parking.app.service.ParkingLotService;
+import com.parking.app.service.LotAvailabilityCoalescer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 /**
  * Listens for booking events and updates ParkingLot aggregate counts asynchronously
- * Runs AFTER transaction commit to ensure booking changes are persisted
  * Operates outside transaction boundary - eventual consistency model
+ *
+ * The listener itself runs on the publishing thread and only records a +1/-1 per lot;
+ * LotAvailabilityCoalescer applies the accumulated change on the bounded bookingEventExecutor.
+ * Events come from BookingOutboxService, either right after the booking change or from its relay.
  */
 @Component
 public class BookingEventListener {
@@ -20,53 +22,25 @@ public class BookingEventListener {
     private static final Logger logger = LoggerFactory.getLogger(BookingEventListener.class);
 
     @Autowired
-    private ParkingLotService parkingLotService;
+    private LotAvailabilityCoalescer lotAvailabilityCoalescer;
 
     /**
-     * Handle booking events after transaction commits
-     * Uses @TransactionalEventListener to ensure booking is committed before updating counts
+     * Handle booking events
+     * Never throws - the booking itself has already been written
      */
-//    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
-    @Async
+    @EventListener
     public void handleBookingEvent(BookingEvent event) {
         logger.info("Received booking event: type={}, bookingId={}, lotName={}, spotId={}",
                    event.getEventType(), event.getBookingId(), event.getLotName(), event.getSpotId());
 
         try {
-            switch (event.getEventType()) {
-                case BOOKING_CREATED:
-                    // Booking created - decrease available spots
-                    parkingLotService.decreaseAvailableSpots(event.getLotName(), event.getSpotId());
-                    break;
-
-                case BOOKING_CANCELLED:
-                case BOOKING_COMPLETED:
-                case BOOKING_AUTO_COMPLETED:
-                    // Booking released - increase available spots
-                    parkingLotService.increaseAvailableSpots(event.getLotName(), event.getSpotId());
-                    break;
-
-                default:
-                    logger.warn("Unknown booking event type: {}", event.getEventType());
-            }
+            // CREATED decreases available spots; CANCELLED / COMPLETED / AUTO_COMPLETED increase them
+            lotAvailabilityCoalescer.record(event.getLotName(), event.getEventType().getAvailabilityDelta(),
+                                            event.getOutboxId());
         } catch (Exception e) {
             logger.error("Error handling booking event: type={}, bookingId={}, error={}",
                         event.getEventType(), event.getBookingId(), e.getMessage(), e);
             // Don't rethrow - we don't want to affect the main booking transaction
         }
     }
-
-    /**
-     * Fallback event listener without transaction dependency
-     * Used when event is published outside of a transaction
-     */
-    @EventListener
-    @Async
-    public void handleBookingEventNonTransactional(BookingEvent event) {
-        // This will be called if there's no active transaction
-        // The @TransactionalEventListener takes precedence when there is a transaction
-        logger.debug("Handling non-transactional booking event: {}", event.getEventType());
-        handleBookingEvent(event);
-    }
 }
-
@@ -0,0 +1,43 @@
+package com.parking.app.listener;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.parking.app.service.lock.LockReleaseNotifier;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wakes local lock waiters when any instance releases a booking_locks entry
+ * The lock document _id is the spotId
+ */
+@Component
+public class LockReleaseListener implements MessageListener<ChangeStreamDocument<Document>, Document> {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockReleaseListener.class);
+
+    private final LockReleaseNotifier releaseNotifier;
+
+    public LockReleaseListener(LockReleaseNotifier releaseNotifier) {
+        this.releaseNotifier = releaseNotifier;
+    }
+
+    @Override
+    public void onMessage(Message<ChangeStreamDocument<Document>, Document> message) {
+        try {
+            ChangeStreamDocument<Document> changeStream = message.getRaw();
+            if (changeStream == null) {
+                return;
+            }
+            BsonDocument documentKey = changeStream.getDocumentKey();
+            if (documentKey != null && documentKey.isString("_id")) {
+                releaseNotifier.notifyReleased(documentKey.getString("_id").getValue());
+            }
+        } catch (Exception e) {
+            logger.error("❌ Error handling lock release event: {}", e.getMessage(), e);
+        }
+    }
+}
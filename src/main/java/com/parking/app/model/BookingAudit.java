@@ -1,5 +1,6 @@
 package com.parking.app.model;
 
+import com.parking.app.util.Paise;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -88,9 +89,10 @@ public class BookingAudit {
     private Map<String, Object> newValues;
 
     /**
-     * Booking amount at the time of audit
+     * Booking amount at the time of audit, in paise
      */
-    private Double amount;
+    @Paise
+    private Long amount;
 
     /**
      * Check-in time at the time of audit
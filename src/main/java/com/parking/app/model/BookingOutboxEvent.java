@@ -0,0 +1,73 @@
+package com.parking.app.model;
+
+import com.parking.app.model.event.BookingEvent;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Delivery record of a BookingEvent, written right after the booking change it describes (which
+ * carries the event itself, see Bookings.pendingEvents). Lot counters are updated from these
+ * records (at least once), so a crash between the booking write and the in-memory listener no
+ * longer loses the availability change.
+ */
+@Document(collection = "booking_outbox")
+@Getter
+@Setter
+public class BookingOutboxEvent {
+
+    // Field name constants for MongoDB queries
+    public static final String FIELD_ID = "_id";
+    public static final String FIELD_STATUS = "status";
+    public static final String FIELD_CLAIM_TOKEN = "claimToken";
+    public static final String FIELD_CLAIMED_AT = "claimedAt";
+    public static final String FIELD_CREATED_AT = "createdAt";
+    public static final String FIELD_DELIVERED_AT = "deliveredAt";
+    public static final String FIELD_ATTEMPTS = "attempts";
+
+    @Id
+    private String id;          // "<bookingId>:<eventType>" - one record per booking transition
+
+    private String bookingId;
+    private String lotName;
+    private String spotId;
+    private String userId;
+    private BookingEvent.BookingEventType eventType;
+
+    private Status status = Status.PENDING;
+    private String claimToken;  // set by the delivery that currently owns the record
+    private Date claimedAt;
+    private Date createdAt = new Date();
+    private Date deliveredAt;   // TTL index removes delivered records after a retention period
+    private int attempts;
+
+    public BookingOutboxEvent() {}
+
+    public static BookingOutboxEvent from(BookingEvent event) {
+        BookingOutboxEvent outboxEvent = new BookingOutboxEvent();
+        outboxEvent.setId(buildId(event.getBookingId(), event.getEventType()));
+        outboxEvent.setBookingId(event.getBookingId());
+        outboxEvent.setLotName(event.getLotName());
+        outboxEvent.setSpotId(event.getSpotId());
+        outboxEvent.setUserId(event.getUserId());
+        outboxEvent.setEventType(event.getEventType());
+        return outboxEvent;
+    }
+
+    public static String buildId(String bookingId, BookingEvent.BookingEventType eventType) {
+        return bookingId + ":" + eventType;
+    }
+
+    public static String bookingIdOf(String outboxId) {
+        return outboxId.substring(0, outboxId.lastIndexOf(':'));
+    }
+
+    public enum Status {
+        PENDING,     // Written, not yet applied
+        DELIVERING,  // Claimed by a delivery; reclaimed by the relay if it never completes
+        DELIVERED    // Applied to the lot counters
+    }
+}
@@ -1,13 +1,18 @@
 package com.parking.app.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.parking.app.constants.BookingStatus;
+import com.parking.app.model.event.BookingEvent;
+import com.parking.app.util.Paise;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 @Document(collection = "bookings")
 @Getter
@@ -31,6 +36,10 @@ public class Bookings {
     public static final String FIELD_AUTO_COMPLETED = "autoCompleted";
     public static final String FIELD_CHECK_IN_OPERATOR_ID = "checkInOperatorId";
     public static final String FIELD_CHECK_OUT_OPERATOR_ID = "checkOutOperatorId";
+    public static final String FIELD_RESERVED_FROM = "reservedFrom";
+    public static final String FIELD_RESERVED_TO = "reservedTo";
+    public static final String FIELD_PENDING_EVENTS = "pendingEvents";
+    public static final String FIELD_PENDING_EVENT_AT = "pendingEvents.at";
 
     @Id
     private String id;
@@ -41,7 +50,8 @@ public class Bookings {
     private String spotId;
     @Indexed
     private String status;     // e.g., "pending", "active", "cancelled"
-    private double amount;     // optional payment amount
+    @Paise
+    private long amount;       // optional payment amount, in paise
     private String qrCode;     // optional QR code for parking entry
     private Date checkInTime;
     private Date checkOutTime;
@@ -55,9 +65,36 @@ public class Bookings {
     private String checkInOperatorId;  // ID of the operator who performed check-in
     @Indexed
     private String checkOutOperatorId;  // ID of the operator who performed check-out
+    private Date reservedFrom;  // Start of the slot inventory reservation (null for counter-based bookings)
+    private Date reservedTo;    // End of the slot inventory reservation
+
+    // Booking events not yet delivered, stored by the same write as the change they describe
+    @JsonIgnore
+    private List<PendingEvent> pendingEvents = new ArrayList<>();
 
     public Bookings() {
         this.status = BookingStatus.PENDING.name();  // initialize status as pending
         this.createdAt = new Date();  // initialize createdAt as now
     }
+
+    // --- Nested static class for undelivered booking events ---
+    @Getter
+    @Setter
+    public static class PendingEvent {
+        public static final String FIELD_OUTBOX_ID = "outboxId";
+
+        private String outboxId;    // booking_outbox record the event is delivered through
+        private BookingEvent.BookingEventType eventType;
+        private Date at;
+
+        public PendingEvent() {}
+
+        public static PendingEvent of(String bookingId, BookingEvent.BookingEventType eventType) {
+            PendingEvent pending = new PendingEvent();
+            pending.setOutboxId(BookingOutboxEvent.buildId(bookingId, eventType));
+            pending.setEventType(eventType);
+            pending.setAt(new Date());
+            return pending;
+        }
+    }
 }
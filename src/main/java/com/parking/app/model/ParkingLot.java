@@ -1,10 +1,13 @@
 package com.parking.app.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.util.Set;
+
 @Document(collection = "parking_lots")
 @Getter
 @Setter
@@ -20,6 +23,7 @@ public class ParkingLot {
     public static final String FIELD_LATITUDE = "latitude";
     public static final String FIELD_LONGITUDE = "longitude";
     public static final String FIELD_ACTIVE = "active";
+    public static final String FIELD_APPLIED_OUTBOX_IDS = "appliedOutboxIds";
 
     @Id
     private String id;
@@ -33,5 +37,9 @@ public class ParkingLot {
     private double longitude;
     private boolean active;
 
+    // booking_outbox records counted in availableSpots but not yet marked delivered
+    @JsonIgnore
+    private Set<String> appliedOutboxIds;
+
     public ParkingLot() {}
 }
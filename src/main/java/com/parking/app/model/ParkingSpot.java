@@ -1,5 +1,6 @@
 package com.parking.app.model;
 
+import com.parking.app.util.Paise;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
@@ -13,6 +14,7 @@ public class ParkingSpot {
     // Field name constants for MongoDB queries
     public static final String FIELD_ID = "_id";
     public static final String FIELD_LOT_NAME = "lotName";
+    public static final String FIELD_LOT_ID = "lotId";
     public static final String FIELD_ZONE_NAME = "zoneName";
     public static final String FIELD_CAPACITY = "capacity";
     public static final String FIELD_AVAILABLE = "available";
@@ -22,6 +24,9 @@ public class ParkingSpot {
     public static final String FIELD_CHECK_OUT_PENALTY_RATE = "checkOutPenaltyRate";
     public static final String FIELD_DESCRIPTION = "description";
     public static final String FIELD_ACTIVE = "active";
+    public static final String FIELD_COUNTER_SHARDS = "counterShards";
+    public static final String FIELD_LOCK_FENCE = "lockFence";
+    public static final String FIELD_CAPACITY_EPOCH = "capacityEpoch";
 
     @Id
     private String id;
@@ -32,11 +37,17 @@ public class ParkingSpot {
     private int capacity;       // Total slots in this zone
     private int available;      // Current available slots
     private String status;// available | held | active
-    private double bookingRate;         // Rate per hour or unit
-    private double checkInPenaltyRate;  // Penalty rate per minute for late check-in
-    private double checkOutPenaltyRate;
+    @Paise
+    private long bookingRate;           // Paise per hour or unit
+    @Paise
+    private long checkInPenaltyRate;    // Paise per minute for late check-in
+    @Paise
+    private long checkOutPenaltyRate;
     private String description; // Optional description
     private boolean active;    // Is the spot active
+    private int counterShards; // >1 when availability is split across spot_capacity_shards
+    private long lockFence;    // highest booking-lock fencing token that has written to this spot
+    private long capacityEpoch; // bumped by every capacity reset; leases taken before it are void
 
     public ParkingSpot() {}
 }
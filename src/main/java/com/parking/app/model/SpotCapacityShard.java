@@ -0,0 +1,38 @@
+package com.parking.app.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * One slice of a hot parking spot's capacity.
+ * A sharded spot's availability is the sum of `available` over its shards,
+ * so concurrent bookings spread their writes over N documents instead of one.
+ */
+@Document(collection = "spot_capacity_shards")
+@Getter
+@Setter
+public class SpotCapacityShard {
+
+    // Field name constants for MongoDB queries
+    public static final String FIELD_ID = "_id";
+    public static final String FIELD_SPOT_ID = "spotId";
+    public static final String FIELD_SHARD = "shard";
+    public static final String FIELD_CAPACITY = "capacity";
+    public static final String FIELD_AVAILABLE = "available";
+
+    @Id
+    private String id;          // "<spotId>:<shard>"
+
+    private String spotId;
+    private int shard;
+    private int capacity;       // Slots owned by this shard
+    private int available;      // Slots of this shard still free
+
+    public SpotCapacityShard() {}
+
+    public static String buildId(String spotId, int shard) {
+        return spotId + ":" + shard;
+    }
+}
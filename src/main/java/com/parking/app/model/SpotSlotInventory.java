@@ -0,0 +1,48 @@
+package com.parking.app.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Time-sliced inventory for a single parking spot on a single day.
+ * Each element of {@code slots} holds the number of bookings occupying that
+ * 15-minute bucket, so a reservation is one conditional $inc over a range of buckets.
+ */
+@Document(collection = "spot_slot_inventory")
+@Getter
+@Setter
+public class SpotSlotInventory {
+
+    // Field name constants for MongoDB queries
+    public static final String FIELD_ID = "_id";
+    public static final String FIELD_SPOT_ID = "spotId";
+    public static final String FIELD_DAY = "day";
+    public static final String FIELD_SLOTS = "slots";
+    public static final String FIELD_EXPIRES_AT = "expiresAt";
+
+    public static final int SLOT_MINUTES = 15;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    @Id
+    private String id;          // "<spotId>:<yyyy-MM-dd>"
+
+    private String spotId;
+    private String day;         // ISO local date of the buckets
+    private List<Integer> slots; // occupied count per 15-minute bucket
+    private Date expiresAt;     // TTL cleanup once the day is over
+
+    public SpotSlotInventory() {
+        this.slots = new ArrayList<>(Collections.nCopies(SLOTS_PER_DAY, 0));
+    }
+
+    public static String buildId(String spotId, String day) {
+        return spotId + ":" + day;
+    }
+}
@@ -1,5 +1,7 @@
 package com.parking.app.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.parking.app.util.Paise;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -14,11 +16,29 @@ import java.util.Map;
 @NoArgsConstructor
 @Document(collection = "transactions")
 public class Transactions {
+
+    // Field name constants for MongoDB queries
+    public static final String FIELD_ID = "_id";
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_TIMESTAMP = "timestamp";
+    public static final String FIELD_STATUS = "status";
+    public static final String FIELD_GATEWAY_PAYMENT_ID = "gatewayPaymentId";
+    public static final String FIELD_PROJECTION = "projection";
+    public static final String FIELD_PROJECTION_CLAIM = "projectionClaim";
+    public static final String FIELD_PROJECTION_CLAIMED_AT = "projectionClaimedAt";
+
+    public static final String STATUS_SUCCESS = "success"; // gateway payment captured
+
+    // projection values; null means there is nothing for WalletProjector to apply
+    public static final String PROJECTION_PENDING = "PENDING";
+    public static final String PROJECTION_DONE = "DONE";
+
     @Id
     private String id;
     private String userId;
     private String type;              // e.g., "payment", "refund"
-    private double amount;
+    @Paise
+    private long amount;              // paise
     private String currency;          // e.g., "INR", "USD"
     private String method;            // e.g., "credit_card", "paypal"
     private String referenceId;       // transaction ref from payment gateway
@@ -30,7 +50,15 @@ public class Transactions {
     private String failureReason;     // error message if failed
     private Map<String, Object> metadata; // additional info
 
-    public Transactions(String userId, double amount, String type, Date timestamp) {
+    // Wallet projection state, written with the record itself; never taken from API requests
+    @JsonIgnore
+    private String projection;            // PENDING until WalletProjector has applied it, then DONE
+    @JsonIgnore
+    private String projectionClaim;       // token of the drain currently applying it
+    @JsonIgnore
+    private Date projectionClaimedAt;
+
+    public Transactions(String userId, long amount, String type, Date timestamp) {
         this.userId = userId;
         this.amount = amount;
         this.type = type;
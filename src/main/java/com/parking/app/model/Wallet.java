@@ -1,5 +1,6 @@
 package com.parking.app.model;
 
+import com.parking.app.util.Paise;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
@@ -8,18 +9,36 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import java.util.Date;
 import java.util.List;
 
+/**
+ * A user's balance plus a short window of the most recent TransactionRefs.
+ * The complete history is kept in wallet_ledger (see WalletLedgerBucket).
+ */
 @Document(collection = "wallets")
 @Getter
 @Setter
 public class Wallet {
 
+    // Field name constants for MongoDB queries
+    public static final String FIELD_ID = "_id";
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_BALANCE = "balance";
+    public static final String FIELD_LAST_UPDATED = "lastUpdated";
+    public static final String FIELD_TRANSACTIONS = "transactions";
+    public static final String FIELD_TRANSACTION_REFERENCE_ID = "transactions.referenceId";
+    public static final String FIELD_CREATED_AT = "createdAt";
+    public static final String FIELD_LEDGER_MIGRATED_AT = "ledgerMigratedAt";
+    public static final String FIELD_LEDGER_SEQ = "ledgerSeq";
+
     @Id
     private String id;
     private String userId;
-    private double balance;
+    @Paise
+    private long balance;
     private Date lastUpdated;
     private Date createdAt;
-    private List<TransactionRef> transactions;
+    private List<TransactionRef> transactions;  // newest entries only, capped by $slice on every push
+    private Date ledgerMigratedAt;              // set once pre-ledger refs were copied to wallet_ledger
+    private long ledgerSeq;                     // +1 with every balance change; seq of the newest ref
 
     public Wallet() {
         this.balance = 0;
@@ -33,8 +52,13 @@ public class Wallet {
     public static class TransactionRef {
         private String referenceId;
         private String type;
-        private double amount;
+        @Paise
+        private long amount;
         private String status;
+        private Date timestamp;
+        @Paise
+        private long delta;     // signed change actually applied to the balance (0 if none)
+        private long seq;       // position in the wallet's ledger, set on wallet_ledger entries
 
         public TransactionRef() {}
     }
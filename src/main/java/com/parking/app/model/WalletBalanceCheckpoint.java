@@ -0,0 +1,41 @@
+package com.parking.app.model;
+
+import com.parking.app.util.Paise;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * A user's balance as of ledger entry `seq`. The current balance is the latest checkpoint plus
+ * the deltas of the wallet_ledger entries after it.
+ */
+@Document(collection = "wallet_balance_checkpoints")
+@Getter
+@Setter
+public class WalletBalanceCheckpoint {
+
+    // Field name constants for MongoDB queries
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_SEQ = "seq";
+
+    @Id
+    private String id;          // "<userId>:<seq>" - rewriting the same checkpoint is harmless
+
+    private String userId;
+    private long seq;
+    @Paise
+    private long balance;
+    private Date createdAt = new Date();
+
+    public WalletBalanceCheckpoint() {}
+
+    public WalletBalanceCheckpoint(String userId, long seq, long balance) {
+        this.id = userId + ":" + seq;
+        this.userId = userId;
+        this.seq = seq;
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,44 @@
+package com.parking.app.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One bucket of a user's wallet history: up to bucket-size TransactionRefs from a single month.
+ * The full history lives here so the wallet document itself only carries a short recent window.
+ */
+@Document(collection = "wallet_ledger")
+@Getter
+@Setter
+public class WalletLedgerBucket {
+
+    // Field name constants for MongoDB queries
+    public static final String FIELD_ID = "_id";
+    public static final String FIELD_USER_ID = "userId";
+    public static final String FIELD_PERIOD = "period";
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_FIRST_AT = "firstAt";
+    public static final String FIELD_LAST_AT = "lastAt";
+    public static final String FIELD_MAX_SEQ = "maxSeq";
+    public static final String FIELD_ENTRIES = "entries";
+    public static final String FIELD_ENTRY_REFERENCE_ID = "entries.referenceId";
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String period;      // "yyyy-MM" (UTC) of the entries in this bucket
+    private int count;          // entries.size() (bucket-size once closed) so appends can match "count < bucket-size"
+    private Date firstAt;
+    private Date lastAt;
+    private long maxSeq;        // highest entry seq, for "entries since checkpoint" range reads
+    private List<Wallet.TransactionRef> entries = new ArrayList<>();
+
+    public WalletLedgerBucket() {}
+}
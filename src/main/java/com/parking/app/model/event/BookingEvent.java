@@ -1,11 +1,13 @@
 package com.parking.app.model.event;
 
 import lombok.Getter;
+import lombok.Setter;
 import org.springframework.context.ApplicationEvent;
 
 /**
  * Event published when a booking state changes
  * Used to asynchronously update ParkingLot aggregate counts
+ * Published through BookingOutboxService, which persists it before handing it to listeners
  */
 @Getter
 public class BookingEvent extends ApplicationEvent {
@@ -16,6 +18,10 @@ public class BookingEvent extends ApplicationEvent {
     private final BookingEventType eventType;
     private final String userId;
 
+    // Id of the durable booking_outbox record, null if the event only exists in memory
+    @Setter
+    private String outboxId;
+
     public BookingEvent(Object source, String bookingId, String lotName, String spotId,
                         BookingEventType eventType, String userId) {
         super(source);
@@ -27,10 +33,23 @@ public class BookingEvent extends ApplicationEvent {
     }
 
     public enum BookingEventType {
-        BOOKING_CREATED,        // Spot reserved, decrease available count
-        BOOKING_CANCELLED,      // Spot released, increase available count
-        BOOKING_COMPLETED,      // Checkout done, increase available count
-        BOOKING_AUTO_COMPLETED  // Auto-completed, increase available count
+        BOOKING_CREATED(-1),        // Spot reserved, decrease available count
+        BOOKING_CANCELLED(1),       // Spot released, increase available count
+        BOOKING_COMPLETED(1),       // Checkout done, increase available count
+        BOOKING_AUTO_COMPLETED(1);  // Auto-completed, increase available count
+
+        private final int availabilityDelta;
+
+        BookingEventType(int availabilityDelta) {
+            this.availabilityDelta = availabilityDelta;
+        }
+
+        /**
+         * Change in the lot's available spots caused by this event
+         */
+        public int getAvailabilityDelta() {
+            return availabilityDelta;
+        }
     }
 }
 
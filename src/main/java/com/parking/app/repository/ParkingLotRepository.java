@@ -9,4 +9,5 @@ import java.util.Optional;
 @Repository
 public interface ParkingLotRepository extends MongoRepository<ParkingLot, String> {
     Optional<ParkingLot> findByName(String name);
+    boolean existsByName(String name);
 }
@@ -3,11 +3,8 @@ package com.parking.app.repository;
 import com.parking.app.model.Wallet;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-import java.util.List;
 import java.util.Optional;
 
 public interface WalletRepository extends MongoRepository<Wallet, String> {
     Optional<Wallet> findByUserId(String userId);
-
-    List<Wallet> findAllByUserId(String userId);
 }
@@ -13,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Main BookingService - acts as a facade to delegate to specialized booking services
@@ -27,6 +28,7 @@ public class BookingService {
     private final BookingAutoCompletionService autoCompletionService;
     private final BookingValidationService validationService;
     private final ParkingSpotService parkingSpotService;
+    private final BookingIntervalIndex intervalIndex;
 
     public BookingService(
             BookingLifecycleService lifecycleService,
@@ -34,7 +36,8 @@ public class BookingService {
             BookingBreakupService breakupService,
             BookingAutoCompletionService autoCompletionService,
             BookingValidationService validationService,
-            ParkingSpotService parkingSpotService
+            ParkingSpotService parkingSpotService,
+            BookingIntervalIndex intervalIndex
     ) {
         this.lifecycleService = lifecycleService;
         this.queryService = queryService;
@@ -42,6 +45,7 @@ public class BookingService {
         this.autoCompletionService = autoCompletionService;
         this.validationService = validationService;
         this.parkingSpotService = parkingSpotService;
+        this.intervalIndex = intervalIndex;
     }
 
     // ===== Booking Lifecycle Operations =====
@@ -51,6 +55,13 @@ public class BookingService {
         return lifecycleService.createBooking(spotId, userId, checkInTime, checkOutTime, vehicleNumber);
     }
 
+    public Bookings createBookingInLot(String lotId, String userId,
+                                       ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
+                                       String vehicleNumber, String preferredZone) {
+        return lifecycleService.createBookingInLot(lotId, userId, checkInTime, checkOutTime,
+                vehicleNumber, preferredZone);
+    }
+
     public Bookings checkIn(String bookingId, CheckInMode mode, String qrCode, String vehicleNumber, String pin, String checkInOperatorId) {
         return lifecycleService.checkIn(bookingId, mode, qrCode, vehicleNumber, pin, checkInOperatorId);
     }
@@ -99,6 +110,20 @@ public class BookingService {
         return queryService.findByLotIdAndTimeWindow(lotId, startTime, endTime);
     }
 
+    /**
+     * Spots of a lot with no PENDING/ACTIVE booking overlapping [startTime, endTime).
+     * Answered from the in-memory interval index while it follows the change stream, otherwise from MongoDB.
+     */
+    public List<ParkingSpot> getAvailableSpots(String lotId, ZonedDateTime startTime, ZonedDateTime endTime) {
+        if (intervalIndex.isReady()) {
+            return parkingSpotService.getSpotsByLotId(lotId).stream()
+                    .filter(spot -> intervalIndex.isFree(spot.getId(), startTime, endTime))
+                    .collect(Collectors.toList());
+        }
+        List<Bookings> overlappingBookings = queryService.findByLotIdAndTimeWindow(lotId, startTime, endTime);
+        return parkingSpotService.getAvailableSpots(lotId, startTime, endTime, overlappingBookings);
+    }
+
     // ===== Auto-completion Operations =====
     public void autoCompleteLateBookings() {
         autoCompletionService.autoCompleteLateBookings();
@@ -0,0 +1,329 @@
+package com.parking.app.service;
+
+import com.parking.app.model.ParkingSpot;
+import jakarta.annotation.PreDestroy;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-instance capacity leasing for large multi-capacity spots
+ *
+ * For spots in lots listed under app.capacity-leasing.lots this instance borrows capacity from
+ * ParkingSpot.available in chunks and admits bookings from a local pool, so most reservations
+ * are a CAS on an AtomicInteger instead of a MongoDB round trip. Unused units are returned when
+ * a pool has been idle for a while, trimmed back to one chunk when releases pile up, and fully
+ * returned on shutdown. While leased, units show as taken to other instances.
+ * Sharded spots (counterShards > 1) are never leased.
+ *
+ * A capacity reset (ParkingSpotService.resetAllSpotsCapacity) bumps the spot's capacityEpoch in
+ * the same write that refills it. Each pool remembers the epoch its units were leased under: the
+ * sweep drops pools whose spot has moved on to a newer epoch, on whichever instance holds them, and
+ * a return only lands while the epoch is unchanged, so pre-reset units are never counted twice.
+ */
+@Service
+public class CapacityLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CapacityLeaseService.class);
+
+    private static final int MIN_AVAILABLE = 0;
+    private static final int SINGLE_COUNTER = 1;
+    private static final long LEASED_SPOTS_REFRESH_MS = 30000;
+    private static final long UNKNOWN_EPOCH = -1;   // nothing leased into the pool yet
+
+    private final MongoOperations mongoOperations;
+    private final Set<String> leasingLots;
+    private final int chunkSize;
+    private final long idleReturnMs;
+
+    // Spots of leasing lots; refreshed periodically so new spots are picked up
+    private final Set<String> leasedSpots = ConcurrentHashMap.newKeySet();
+    private final Map<String, LeasePool> pools = new ConcurrentHashMap<>();
+
+    public CapacityLeaseService(MongoOperations mongoOperations,
+                                @Value("${app.capacity-leasing.lots:}") Set<String> leasingLots,
+                                @Value("${app.capacity-leasing.chunk-size:5}") int chunkSize,
+                                @Value("${app.capacity-leasing.idle-return-ms:10000}") long idleReturnMs) {
+        this.mongoOperations = mongoOperations;
+        this.leasingLots = leasingLots;
+        this.chunkSize = Math.max(SINGLE_COUNTER, chunkSize);
+        this.idleReturnMs = idleReturnMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = LEASED_SPOTS_REFRESH_MS, initialDelay = LEASED_SPOTS_REFRESH_MS)
+    public void refreshLeasedSpots() {
+        if (leasingLots.isEmpty()) {
+            return;
+        }
+        try {
+            Query query = new Query(new Criteria().andOperator(
+                    new Criteria().orOperator(
+                            Criteria.where(ParkingSpot.FIELD_LOT_ID).in(leasingLots),
+                            Criteria.where(ParkingSpot.FIELD_LOT_NAME).in(leasingLots)),
+                    Criteria.where(ParkingSpot.FIELD_COUNTER_SHARDS).not().gt(SINGLE_COUNTER)));
+            query.fields().include(ParkingSpot.FIELD_ID);
+
+            Set<String> latest = ConcurrentHashMap.newKeySet();
+            mongoOperations.find(query, ParkingSpot.class).forEach(spot -> latest.add(spot.getId()));
+            leasedSpots.addAll(latest);
+            leasedSpots.retainAll(latest);
+
+            // Spots dropped from leasing (re-sharded, moved lot) give their units back right away
+            for (String spotId : pools.keySet()) {
+                if (!latest.contains(spotId)) {
+                    LeasePool pool = pools.remove(spotId);
+                    returnUnits(spotId, pool.drain(), pool.epoch);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not refresh capacity-leased spot list: {}", e.getMessage());
+        }
+    }
+
+    public boolean isLeased(String spotId) {
+        return leasedSpots.contains(spotId);
+    }
+
+    // ===== Admission =====
+
+    /**
+     * Takes one unit from the local pool, leasing a new chunk from MongoDB when it is empty
+     * @return false if the pool is empty and MongoDB has no capacity left
+     */
+    public boolean reserve(String spotId) {
+        LeasePool pool = pools.computeIfAbsent(spotId, id -> new LeasePool());
+        if (pool.tryTake()) {
+            return true;
+        }
+        // One thread leases per spot; the rest re-check the pool once it has been refilled.
+        // A ReentrantLock rather than synchronized, so virtual threads are not pinned during the MongoDB call
+        pool.refill.lock();
+        try {
+            if (pool.tryTake()) {
+                return true;
+            }
+            Lease lease = leaseChunk(spotId);
+            if (lease == null) {
+                return false;
+            }
+            if (pool.epoch == UNKNOWN_EPOCH) {
+                pool.epoch = lease.epoch();
+            } else if (lease.epoch() != pool.epoch) {
+                // Units released into the pool under an older epoch were reset away with it
+                pool.drain();
+                pool.epoch = lease.epoch();
+            }
+            pool.add(lease.granted() - 1);
+            return true;
+        } finally {
+            pool.refill.unlock();
+        }
+    }
+
+    /**
+     * Puts one unit back into the local pool (returned to MongoDB by the idle/trim sweep)
+     */
+    public void release(String spotId) {
+        pools.computeIfAbsent(spotId, id -> new LeasePool()).add(1);
+    }
+
+    /**
+     * Units currently held by this instance for the spot (shown as available on local reads)
+     */
+    public int getLocalAvailable(String spotId) {
+        LeasePool pool = pools.get(spotId);
+        return pool == null ? MIN_AVAILABLE : pool.units.get();
+    }
+
+    /**
+     * Forgets all local leases without returning them, used after the counters were reset to capacity;
+     * other instances drop theirs on their next sweep (see discardResetPools)
+     */
+    public void discardAll() {
+        pools.values().forEach(LeasePool::drain);
+    }
+
+    // ===== Lease Return =====
+
+    @Scheduled(fixedDelayString = "${app.capacity-leasing.sweep-interval-ms:5000}")
+    public void returnSurplus() {
+        discardResetPools();
+        long now = System.currentTimeMillis();
+        pools.forEach((spotId, pool) -> {
+            int surplus;
+            pool.refill.lock();
+            try {
+                surplus = now - pool.lastUsed > idleReturnMs ? pool.drain() : pool.trimTo(chunkSize);
+            } finally {
+                pool.refill.unlock();
+            }
+            returnUnits(spotId, surplus, pool.epoch);
+        });
+    }
+
+    /**
+     * Drops the units of pools whose spot was reset since they were leased, with one query for all
+     * pools; the reset already made that capacity available again
+     */
+    private void discardResetPools() {
+        if (pools.isEmpty()) {
+            return;
+        }
+        try {
+            Query query = new Query(Criteria.where(ParkingSpot.FIELD_ID).in(pools.keySet()));
+            query.fields().include(ParkingSpot.FIELD_CAPACITY_EPOCH);
+            for (ParkingSpot spot : mongoOperations.find(query, ParkingSpot.class)) {
+                LeasePool pool = pools.get(spot.getId());
+                if (pool == null || pool.epoch == UNKNOWN_EPOCH || pool.epoch == spot.getCapacityEpoch()) {
+                    continue;
+                }
+                pool.refill.lock();
+                try {
+                    int discarded = pool.drain();
+                    pool.epoch = spot.getCapacityEpoch();
+                    logger.debug("Discarded {} units of spot {} leased before its capacity reset", discarded, spot.getId());
+                } finally {
+                    pool.refill.unlock();
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not check leased spots for capacity resets: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void returnAll() {
+        pools.forEach((spotId, pool) -> returnUnits(spotId, pool.drain(), pool.epoch));
+        logger.info("Returned all leased spot capacity on shutdown");
+    }
+
+    // ===== MongoDB Counter =====
+
+    /**
+     * available = max(0, available - chunk); the pre-image tells how many units were actually granted
+     * and under which capacity epoch
+     * @return null if the spot has no capacity left
+     */
+    private Lease leaseChunk(String spotId) {
+        Query query = new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId)
+                .and(ParkingSpot.FIELD_AVAILABLE).gt(MIN_AVAILABLE));
+        query.fields().include(ParkingSpot.FIELD_AVAILABLE, ParkingSpot.FIELD_CAPACITY_EPOCH);
+        AggregationUpdate update = AggregationUpdate.update()
+                .set(ParkingSpot.FIELD_AVAILABLE).toValue(expression("$max", MIN_AVAILABLE,
+                        expression("$subtract", "$" + ParkingSpot.FIELD_AVAILABLE, chunkSize)));
+
+        ParkingSpot before = mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(false), ParkingSpot.class);
+        if (before == null) {
+            return null;
+        }
+        int granted = Math.min(chunkSize, before.getAvailable());
+        logger.debug("Leased {} units of spot {}", granted, spotId);
+        return new Lease(granted, before.getCapacityEpoch());
+    }
+
+    /**
+     * available = min(capacity, available + units), so a return never overfills the spot; skipped if
+     * the spot was reset since the units were leased
+     */
+    private void returnUnits(String spotId, int units, long epoch) {
+        if (units <= MIN_AVAILABLE) {
+            return;
+        }
+        try {
+            AggregationUpdate update = AggregationUpdate.update()
+                    .set(ParkingSpot.FIELD_AVAILABLE).toValue(expression("$min", "$" + ParkingSpot.FIELD_CAPACITY,
+                            expression("$add", "$" + ParkingSpot.FIELD_AVAILABLE, units)));
+            Criteria criteria = Criteria.where(ParkingSpot.FIELD_ID).is(spotId);
+            if (epoch != UNKNOWN_EPOCH) {
+                criteria = criteria.and(ParkingSpot.FIELD_CAPACITY_EPOCH).in(epochValues(epoch));
+            }
+            Query query = new Query(criteria);
+            if (mongoOperations.updateFirst(query, update, ParkingSpot.class).getMatchedCount() == 0) {
+                logger.debug("Dropped {} leased units of spot {}: capacity was reset", units, spotId);
+                return;
+            }
+            logger.debug("Returned {} leased units of spot {}", units, spotId);
+        } catch (Exception e) {
+            logger.error("❌ Failed to return {} leased units of spot {}: {}", units, spotId, e.getMessage());
+        }
+    }
+
+    // Spots never reset have no capacityEpoch field yet, which reads as 0
+    private List<Object> epochValues(long epoch) {
+        return epoch == 0 ? Arrays.asList(0L, null) : List.of(epoch);
+    }
+
+    private AggregationExpression expression(String operator, Object left, Object right) {
+        return context -> new Document(operator, List.of(
+                left instanceof AggregationExpression l ? l.toDocument(context) : left,
+                right instanceof AggregationExpression r ? r.toDocument(context) : right));
+    }
+
+    private record Lease(int granted, long epoch) {
+    }
+
+    // ===== Local Pool =====
+
+    private static final class LeasePool {
+
+        private final AtomicInteger units = new AtomicInteger();
+        private final ReentrantLock refill = new ReentrantLock();
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long epoch = UNKNOWN_EPOCH;    // capacityEpoch of the spot when these units were leased
+
+        boolean tryTake() {
+            lastUsed = System.currentTimeMillis();
+            int current;
+            do {
+                current = units.get();
+                if (current <= MIN_AVAILABLE) {
+                    return false;
+                }
+            } while (!units.compareAndSet(current, current - 1));
+            return true;
+        }
+
+        void add(int count) {
+            units.addAndGet(count);
+        }
+
+        int drain() {
+            return units.getAndSet(MIN_AVAILABLE);
+        }
+
+        /**
+         * @return the units removed to bring the pool down to at most max
+         */
+        int trimTo(int max) {
+            int current;
+            do {
+                current = units.get();
+                if (current <= max) {
+                    return MIN_AVAILABLE;
+                }
+            } while (!units.compareAndSet(current, max));
+            return current - max;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.parking.app.service;
+
+import com.parking.app.service.booking.BookingOutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind coalescing of lot availability changes from booking events
+ *
+ * Each event only queues its +1/-1 for its lot. A lot's net delta is written with one update
+ * every flush-interval-ms, or as soon as flush-max-events changes have piled up for it, so a busy
+ * lot document sees a handful of writes per second instead of one per booking. At most one flush
+ * task per lot is queued on the bookingEventExecutor at a time, so the backlog is bounded by the
+ * number of lots. Pending changes are flushed on shutdown; anything lost in a crash is still in
+ * the outbox and gets relayed.
+ *
+ * Changes backed by a booking_outbox record are claimed before being applied and marked delivered
+ * afterwards (see BookingOutboxService), so relayed duplicates are never counted twice. The lot
+ * update also records the ids it applied (see ParkingLotService.applyAvailabilityDelta), so a
+ * delivery repeated after a crash between the update and marking it delivered is skipped too.
+ */
+@Service
+public class LotAvailabilityCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(LotAvailabilityCoalescer.class);
+    private static final int NO_CHANGE = 0;
+
+    private final ParkingLotService parkingLotService;
+    private final BookingOutboxService outboxService;
+    private final Executor bookingEventExecutor;
+
+    private final int flushMaxEvents;
+
+    private final Map<String, LotBuffer> buffers = new ConcurrentHashMap<>();
+    private final Set<String> scheduledLots = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final Counter flushes;
+
+    public LotAvailabilityCoalescer(ParkingLotService parkingLotService,
+                                    BookingOutboxService outboxService,
+                                    @Qualifier("bookingEventExecutor") Executor bookingEventExecutor,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.booking.lot-availability.flush-max-events:100}") int flushMaxEvents) {
+        this.parkingLotService = parkingLotService;
+        this.outboxService = outboxService;
+        this.bookingEventExecutor = bookingEventExecutor;
+        this.flushMaxEvents = Math.max(1, flushMaxEvents);
+        Gauge.builder("booking.events.coalesced.lots", scheduledLots, Set::size)
+                .description("Lots with a pending availability flush")
+                .register(meterRegistry);
+        Gauge.builder("booking.lot-availability.pending.events", pendingEvents, AtomicInteger::get)
+                .description("Availability changes buffered in memory and not yet written")
+                .register(meterRegistry);
+        this.flushes = Counter.builder("booking.lot-availability.flushes")
+                .description("Coalesced availability writes to parking_lots")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues a change in available spots for the lot and schedules a flush if none is pending
+     * @param outboxId booking_outbox record backing the change, or null if it has none
+     */
+    public void record(String lotName, int delta, String outboxId) {
+        if (lotName == null || delta == NO_CHANGE) {
+            return;
+        }
+        LotBuffer buffer = buffers.computeIfAbsent(lotName, name -> new LotBuffer());
+        buffer.changes.add(new PendingChange(delta, outboxId));
+        pendingEvents.incrementAndGet();
+        if (buffer.size.incrementAndGet() >= flushMaxEvents) {
+            scheduleFlush(lotName);
+        }
+    }
+
+    /**
+     * Time-based flush of every lot with buffered changes
+     */
+    @Scheduled(fixedDelayString = "${app.booking.lot-availability.flush-interval-ms:1000}")
+    public void flushPending() {
+        buffers.forEach((lotName, buffer) -> {
+            if (buffer.size.get() > 0) {
+                scheduleFlush(lotName);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        // Run on the calling thread: the executor may already be winding down
+        buffers.keySet().forEach(this::flush);
+        logger.info("Flushed buffered lot availability changes on shutdown");
+    }
+
+    private void scheduleFlush(String lotName) {
+        if (scheduledLots.add(lotName)) {
+            bookingEventExecutor.execute(() -> flush(lotName));
+        }
+    }
+
+    private void flush(String lotName) {
+        // Clear the flag first: changes recorded after this point are picked up by the next flush
+        scheduledLots.remove(lotName);
+        LotBuffer buffer = buffers.get(lotName);
+        if (buffer == null) {
+            return;
+        }
+
+        int delta = NO_CHANGE;
+        int drained = 0;
+        Map<String, Integer> outboxDeltas = new HashMap<>();
+        PendingChange change;
+        while ((change = buffer.changes.poll()) != null) {
+            drained++;
+            if (change.outboxId() == null) {
+                delta += change.delta();
+            } else {
+                outboxDeltas.put(change.outboxId(), change.delta());
+            }
+        }
+        if (drained == 0) {
+            return;
+        }
+        buffer.size.addAndGet(-drained);
+        pendingEvents.addAndGet(-drained);
+
+        try {
+            BookingOutboxService.OutboxClaim claim = outboxService.claim(outboxDeltas.keySet());
+            outboxDeltas.keySet().retainAll(claim.outboxIds());
+
+            logger.debug("Flushing coalesced availability delta {} for lotName={} ({} outbox events)",
+                    delta, lotName, claim.outboxIds().size());
+            if (parkingLotService.applyAvailabilityDelta(lotName, delta, outboxDeltas)) {
+                flushes.increment();
+                outboxService.markDelivered(claim);
+                parkingLotService.forgetAppliedOutboxIds(lotName, claim.outboxIds());
+            }
+            // Otherwise the claim times out and the outbox relay delivers the events again
+        } catch (Exception e) {
+            logger.error("❌ Failed to flush availability changes for lotName={}: {}", lotName, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Clears applied outbox ids whose records were marked delivered by a consumer that died before
+     * forgetting them; ids of deliveries still in flight stay
+     */
+    @Scheduled(fixedDelayString = "${app.booking.outbox.relay-interval-ms:5000}",
+               initialDelayString = "${app.booking.outbox.relay-interval-ms:5000}")
+    public void pruneAppliedOutboxIds() {
+        try {
+            parkingLotService.findLotsWithAppliedOutboxIds().forEach((lotName, outboxIds) ->
+                    parkingLotService.forgetAppliedOutboxIds(lotName, outboxService.findSettled(outboxIds)));
+        } catch (Exception e) {
+            logger.error("❌ Failed to prune applied outbox ids: {}", e.getMessage(), e);
+        }
+    }
+
+    private record PendingChange(int delta, String outboxId) {
+    }
+
+    private static final class LotBuffer {
+        private final Queue<PendingChange> changes = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+}
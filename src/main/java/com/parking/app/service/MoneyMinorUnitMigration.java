@@ -0,0 +1,106 @@
+package com.parking.app.service;
+
+import com.parking.app.model.BookingAudit;
+import com.parking.app.model.Bookings;
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.util.Money;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites top-level rupee amounts (doubles) as int64 paise, in place on the server
+ *
+ * Must finish before anything writes money: a paise $inc applied to a balance still holding rupees
+ * would corrupt it. It therefore runs once all singletons exist but before the web server, change
+ * stream listeners and schedulers start. Each field is one updateMany with a pipeline
+ * ($toLong of $round(field * 100)) over documents where the field is not yet an int64, so a rerun
+ * finds nothing to do. Nested amounts (wallet refs, ledger entries) are left as they are; the
+ * {@link com.parking.app.util.Paise} converter reads those as rupees.
+ *
+ * Instances from before the switch keep writing rupees, so the upgrade is stop-the-world: every old
+ * instance is stopped before the first new one starts. This is enforced twice. After converting,
+ * the migration counts the legacy values again and fails startup if any came back, since that means
+ * an old instance is still writing. And WalletService only $incs balances that are int64, so a
+ * rupee balance written later is rejected instead of having paise added to it.
+ *
+ * Enabled by default; disable with app.money.migration.enabled=false
+ */
+@Component
+@ConditionalOnProperty(name = "app.money.migration.enabled", havingValue = "true", matchIfMissing = true)
+public class MoneyMinorUnitMigration implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoneyMinorUnitMigration.class);
+    private static final List<String> LEGACY_NUMBER_TYPES = List.of("double", "int", "decimal");
+
+    private static final Map<Class<?>, List<String>> MONEY_FIELDS = Map.of(
+            Wallet.class, List.of(Wallet.FIELD_BALANCE),
+            WalletBalanceCheckpoint.class, List.of("balance"),
+            Transactions.class, List.of("amount"),
+            Bookings.class, List.of("amount"),
+            BookingAudit.class, List.of("amount"),
+            ParkingSpot.class, List.of("bookingRate", "checkInPenaltyRate", "checkOutPenaltyRate")
+    );
+
+    private final MongoOperations mongoOperations;
+
+    public MoneyMinorUnitMigration(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        long startTime = System.currentTimeMillis();
+        long converted = 0;
+        for (Map.Entry<Class<?>, List<String>> entry : MONEY_FIELDS.entrySet()) {
+            String collection = mongoOperations.getCollectionName(entry.getKey());
+            for (String field : entry.getValue()) {
+                long modified = toPaise(collection, field);
+                if (modified > 0) {
+                    logger.info("Converted {} {}.{} values from rupees to paise", modified, collection, field);
+                }
+                converted += modified;
+            }
+        }
+        long remaining = countLegacy();
+        if (remaining > 0) {
+            throw new IllegalStateException(remaining + " rupee amounts were written during the money migration - "
+                    + "stop every instance of the previous version before starting this one");
+        }
+        logger.info("✅ Money migration finished: {} values converted in {}ms",
+                converted, System.currentTimeMillis() - startTime);
+    }
+
+    private long countLegacy() {
+        long remaining = 0;
+        for (Map.Entry<Class<?>, List<String>> entry : MONEY_FIELDS.entrySet()) {
+            String collection = mongoOperations.getCollectionName(entry.getKey());
+            for (String field : entry.getValue()) {
+                remaining += mongoOperations.getCollection(collection).countDocuments(legacyFilter(field));
+            }
+        }
+        return remaining;
+    }
+
+    private Document legacyFilter(String field) {
+        return new Document(field, new Document("$type", LEGACY_NUMBER_TYPES));
+    }
+
+    private long toPaise(String collection, String field) {
+        Document filter = legacyFilter(field);
+        Document paise = new Document("$toLong", new Document("$round", List.of(
+                new Document("$multiply", List.of("$" + field, Money.PAISE_PER_RUPEE)), 0)));
+        List<Document> pipeline = List.of(new Document("$set", new Document(field, paise)));
+        return mongoOperations.getCollection(collection).updateMany(filter, pipeline).getModifiedCount();
+    }
+}
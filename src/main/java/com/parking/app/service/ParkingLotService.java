@@ -3,24 +3,33 @@ package com.parking.app.service;
 import com.parking.app.model.ParkingLot;
 import com.parking.app.model.ParkingSpot;
 import com.parking.app.repository.ParkingLotRepository;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ParkingLotService {
 
     private static final Logger logger = LoggerFactory.getLogger(ParkingLotService.class);
+    private static final int APPLY_ATTEMPTS = 3;
 
     @Autowired
     private ParkingLotRepository parkingLotRepository;
@@ -62,81 +71,118 @@ public class ParkingLotService {
         parkingLotRepository.deleteById(id);
     }
 
-    // ==================== ASYNC SPOT AVAILABILITY UPDATES ====================
+    // ==================== LOT AVAILABILITY UPDATES ====================
 
     /**
-     * Asynchronously decrease available spots count when a booking is created
-     * Runs outside transaction boundary - eventual consistency is acceptable
+     * Applies a coalesced change in available spots (negative = booked, positive = released)
+     * One atomic update: availableSpots = clamp(availableSpots + delta, 0, totalSpots)
+     * Called from LotAvailabilityCoalescer on the bookingEventExecutor
+     *
+     * The outbox records behind the change are added to the lot's appliedOutboxIds in the same
+     * update, which only matches while none of them is there yet. A record delivered again after its
+     * consumer died between this update and marking it delivered is found in the set and left out
+     * of the delta, so it is never counted twice. See forgetAppliedOutboxIds.
+     *
+     * @param delta change not backed by an outbox record
+     * @param outboxDeltas change of each claimed outbox record, by outbox id
+     * @return false if the update failed and should be retried
      */
-    @Async
-    public void decreaseAvailableSpots(String lotId, String spotId) {
+    public boolean applyAvailabilityDelta(String lotName, int delta, Map<String, Integer> outboxDeltas) {
         try {
-            logger.debug("Async: Decreasing available spots for lotId={}, spotId={}", lotId, spotId);
-
-            Query query = new Query(Criteria.where(ParkingLot.FIELD_NAME).is(lotId)
-                    .and(ParkingLot.FIELD_AVAILABLE_SPOTS).gt(0));
-            Update update = new Update().inc(ParkingLot.FIELD_AVAILABLE_SPOTS, -1);
-
-            ParkingLot result = mongoOperations.findAndModify(
-                    query,
-                    update,
-                    FindAndModifyOptions.options().returnNew(true),
-                    ParkingLot.class
-            );
-
-            if (result != null) {
-                logger.debug("Successfully decreased available spots for lotId={}, new count={}",
-                        lotId, result.getAvailableSpots());
-            } else {
-                logger.warn("Could not decrease available spots for lotId={} - may be at zero", lotId);
+            for (int attempt = 1; attempt <= APPLY_ATTEMPTS; attempt++) {
+                Set<String> applied = findAppliedOutboxIds(lotName, outboxDeltas.keySet());
+                int total = delta;
+                List<String> newIds = new ArrayList<>();
+                for (Map.Entry<String, Integer> entry : outboxDeltas.entrySet()) {
+                    if (!applied.contains(entry.getKey())) {
+                        total += entry.getValue();
+                        newIds.add(entry.getKey());
+                    }
+                }
+                if (newIds.isEmpty() && total == 0) {
+                    return true;
+                }
+
+                int change = total;
+                AggregationExpression sum = context -> new Document("$add",
+                        List.of("$" + ParkingLot.FIELD_AVAILABLE_SPOTS, change));
+                AggregationExpression clamped = context -> new Document("$max", List.of(0,
+                        new Document("$min", List.of("$" + ParkingLot.FIELD_TOTAL_SPOTS, sum.toDocument(context)))));
+                AggregationUpdate update = AggregationUpdate.update()
+                        .set(ParkingLot.FIELD_AVAILABLE_SPOTS).toValue(clamped);
+                Criteria criteria = Criteria.where(ParkingLot.FIELD_NAME).is(lotName);
+                if (!newIds.isEmpty()) {
+                    AggregationExpression union = context -> new Document("$setUnion", List.of(
+                            new Document("$ifNull", List.of("$" + ParkingLot.FIELD_APPLIED_OUTBOX_IDS, List.of())),
+                            newIds));
+                    update.set(ParkingLot.FIELD_APPLIED_OUTBOX_IDS).toValue(union);
+                    criteria = criteria.and(ParkingLot.FIELD_APPLIED_OUTBOX_IDS).nin(newIds);
+                }
+
+                if (mongoOperations.updateFirst(new Query(criteria), update, ParkingLot.class).getMatchedCount() > 0) {
+                    logger.debug("Applied availability delta {} for lotName={}", total, lotName);
+                    return true;
+                }
+                if (!parkingLotRepository.existsByName(lotName)) {
+                    logger.warn("Could not apply availability delta {} for lotName={} - lot not found", total, lotName);
+                    return true;
+                }
+                // One of the records was applied in between: recompute without it
             }
+            logger.warn("Availability delta for lotName={} kept conflicting, leaving it for redelivery", lotName);
+            return false;
         } catch (Exception e) {
-            logger.error("Error decreasing available spots for lotId={}: {}", lotId, e.getMessage(), e);
+            logger.error("Error applying availability delta {} for lotName={}: {}", delta, lotName, e.getMessage(), e);
+            return false;
         }
     }
 
     /**
-     * Asynchronously increase available spots count when a booking is cancelled/completed
-     * Runs outside transaction boundary - eventual consistency is acceptable
+     * Drops outbox ids from the lot's applied set once their records are marked delivered; the
+     * set only ever holds deliveries in flight
      */
-    @Async
-    public void increaseAvailableSpots(String lotId, String spotId) {
-        try {
-            logger.debug("Async: Increasing available spots for lotId={}, spotId={}", lotId, spotId);
+    public void forgetAppliedOutboxIds(String lotName, Collection<String> outboxIds) {
+        if (outboxIds.isEmpty()) {
+            return;
+        }
+        mongoOperations.updateFirst(new Query(Criteria.where(ParkingLot.FIELD_NAME).is(lotName)),
+                new Update().pullAll(ParkingLot.FIELD_APPLIED_OUTBOX_IDS, outboxIds.toArray()), ParkingLot.class);
+    }
 
-            Query query = new Query(Criteria.where(ParkingLot.FIELD_NAME).is(lotId));
-            Update update = new Update().inc(ParkingLot.FIELD_AVAILABLE_SPOTS, 1);
-
-            ParkingLot result = mongoOperations.findAndModify(
-                    query,
-                    update,
-                    FindAndModifyOptions.options().returnNew(true),
-                    ParkingLot.class
-            );
-
-            if (result != null) {
-                // Ensure we don't exceed total capacity
-                if (result.getAvailableSpots() > result.getTotalSpots()) {
-                    logger.warn("Available spots ({}) exceeded total spots ({}) for lotId={}, correcting...",
-                            result.getAvailableSpots(), result.getTotalSpots(), lotId);
-                    correctAvailableSpots(lotId);
-                } else {
-                    logger.debug("Successfully increased available spots for lotId={}, new count={}",
-                            lotId, result.getAvailableSpots());
-                }
-            } else {
-                logger.warn("Could not increase available spots for lotId={} - lot not found", lotId);
-            }
-        } catch (Exception e) {
-            logger.error("Error increasing available spots for lotId={}: {}", lotId, e.getMessage(), e);
+    /**
+     * Applied sets left behind by consumers that died after marking their records delivered
+     */
+    public Map<String, Set<String>> findLotsWithAppliedOutboxIds() {
+        Query query = new Query(Criteria.where(ParkingLot.FIELD_APPLIED_OUTBOX_IDS).exists(true).ne(List.of()));
+        query.fields().include(ParkingLot.FIELD_NAME, ParkingLot.FIELD_APPLIED_OUTBOX_IDS);
+        Map<String, Set<String>> lots = new HashMap<>();
+        for (ParkingLot lot : mongoOperations.find(query, ParkingLot.class)) {
+            lots.put(lot.getName(), lot.getAppliedOutboxIds());
         }
+        return lots;
+    }
+
+    private Set<String> findAppliedOutboxIds(String lotName, Set<String> outboxIds) {
+        if (outboxIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = new Query(Criteria.where(ParkingLot.FIELD_NAME).is(lotName)
+                .and(ParkingLot.FIELD_APPLIED_OUTBOX_IDS).in(outboxIds));
+        query.fields().include(ParkingLot.FIELD_APPLIED_OUTBOX_IDS);
+        ParkingLot lot = mongoOperations.findOne(query, ParkingLot.class);
+        if (lot == null || lot.getAppliedOutboxIds() == null) {
+            return Set.of();
+        }
+        Set<String> applied = new HashSet<>(lot.getAppliedOutboxIds());
+        applied.retainAll(outboxIds);
+        return applied;
     }
 
     /**
      * Recalculate and sync available spots from actual ParkingSpot data
      * Called periodically or when inconsistencies are detected
      */
-    @Async
+    @Async("bookingEventExecutor")
     public void recalculateAvailableSpots(String lotId) {
         try {
             logger.info("Recalculating available spots for lotId={}", lotId);
@@ -167,21 +213,4 @@ public class ParkingLotService {
             logger.error("Error recalculating available spots for lotId={}: {}", lotId, e.getMessage(), e);
         }
     }
-
-    /**
-     * Correct available spots to not exceed total capacity
-     */
-    private void correctAvailableSpots(String lotId) {
-        try {
-            ParkingLot lot = getParkingLotById(lotId);
-            if (lot != null && lot.getAvailableSpots() > lot.getTotalSpots()) {
-                Query query = new Query(Criteria.where(ParkingLot.FIELD_NAME).is(lotId));
-                Update update = new Update().set(ParkingLot.FIELD_AVAILABLE_SPOTS, lot.getTotalSpots());
-                mongoOperations.updateFirst(query, update, ParkingLot.class);
-                logger.info("Corrected available spots for lotId={} to {}", lotId, lot.getTotalSpots());
-            }
-        } catch (Exception e) {
-            logger.error("Error correcting available spots for lotId={}: {}", lotId, e.getMessage(), e);
-        }
-    }
 }
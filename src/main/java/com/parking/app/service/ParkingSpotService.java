@@ -1,22 +1,31 @@
 package com.parking.app.service;
 
+import com.parking.app.exception.ConflictException;
+import com.parking.app.exception.LockAcquisitionException;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.ParkingSpot;
 import com.parking.app.repository.ParkingSpotRepository;
+import com.parking.app.service.lock.LockService;
+import com.parking.app.util.Money;
 import org.bson.Document;
 import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -56,6 +65,11 @@ public class ParkingSpotService {
     private static final int INCREMENT_VALUE = 1;
     private static final int DECREMENT_VALUE = -1;
     private static final int MIN_AVAILABLE_SPOTS = 0;
+    private static final long CONFIGURE_LOCK_WAIT_MS = 10000;
+    private static final long UNFENCED = 0; // no spot lock held; fencing tokens start at 1
+
+    // Inventory models (app.booking.inventory-model)
+    private static final String INVENTORY_MODEL_SLOTS = "slots";
 
     // Error messages
     private static final String ERROR_NO_SPOTS_AVAILABLE = "No spots available";
@@ -73,6 +87,24 @@ public class ParkingSpotService {
     @Autowired
     private MongoOperations mongoOperations;
 
+    @Autowired
+    private SpotSlotInventoryService slotInventoryService;
+
+    @Autowired
+    private ShardedSpotCounterService shardedCounterService;
+
+    @Autowired
+    private CapacityLeaseService capacityLeaseService;
+
+    @Autowired
+    private SoldOutSpotCache soldOutCache;
+
+    @Autowired
+    private LockService lockService;
+
+    @Value("${app.booking.inventory-model:counter}")
+    private String inventoryModel;
+
     // ===== CRUD Operations =====
 
     public ParkingSpot createParkingSpot(ParkingSpot spot) {
@@ -80,23 +112,36 @@ public class ParkingSpotService {
             spot.setAvailable(spot.getCapacity());
         }
         setProperZoneName(spot);
-        return parkingSpotRepository.save(spot);
+        try {
+            return parkingSpotRepository.insert(spot);
+        } catch (DuplicateKeyException e) {
+            throw new ConflictException("Parking spot already exists with id: " + spot.getId());
+        }
     }
 
+    /**
+     * Sets only the fields given in spotDetails; lock fence, capacity epoch and counter mode
+     * are left to the writers that own them
+     */
     public ParkingSpot updateParkingSpot(String spotId, ParkingSpot spotDetails) {
-        ParkingSpot existingSpot = parkingSpotRepository.findById(spotId).orElse(null);
-        if (existingSpot != null) {
-            if (spotDetails.getLotName() != null)
-                existingSpot.setLotName(spotDetails.getLotName());
-            if (spotDetails.getZoneName() != null)
-                existingSpot.setZoneName(spotDetails.getZoneName());
-            if (spotDetails.getCapacity() > MIN_AVAILABLE_SPOTS)
-                existingSpot.setCapacity(spotDetails.getCapacity());
-            if (spotDetails.getAvailable() >= MIN_AVAILABLE_SPOTS)
-                existingSpot.setAvailable(spotDetails.getAvailable());
-            return parkingSpotRepository.save(existingSpot);
+        Update update = new Update();
+        if (spotDetails.getLotName() != null)
+            update.set(ParkingSpot.FIELD_LOT_NAME, spotDetails.getLotName());
+        if (spotDetails.getZoneName() != null)
+            update.set(ParkingSpot.FIELD_ZONE_NAME, spotDetails.getZoneName());
+        if (spotDetails.getCapacity() > MIN_AVAILABLE_SPOTS)
+            update.set(ParkingSpot.FIELD_CAPACITY, spotDetails.getCapacity());
+        if (spotDetails.getAvailable() >= MIN_AVAILABLE_SPOTS)
+            update.set(FIELD_AVAILABLE, spotDetails.getAvailable());
+        ParkingSpot updatedSpot = mongoOperations.findAndModify(
+                new Query(Criteria.where(FIELD_ID).is(spotId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                ParkingSpot.class);
+        if (updatedSpot != null) {
+            soldOutCache.clear(spotId);
         }
-        return null;
+        return updatedSpot;
     }
 
     public void deleteParkingSpot(String spotId) {
@@ -112,7 +157,9 @@ public class ParkingSpotService {
     public ParkingSpot getParkingSpotById(String spotId) {
         ParkingSpot spot = parkingSpotRepository.findById(spotId).orElse(null);
         if (spot != null) {
-            return ensureProperZoneName(spot);
+            ensureProperZoneName(spot);
+            applyLiveAvailability(List.of(spot));
+            return spot;
         }
         return null;
     }
@@ -132,14 +179,17 @@ public class ParkingSpotService {
         for (ParkingSpot spot : spots) {
             if (!spot.isActive()) {
                 spot.setActive(true);
-                parkingSpotRepository.save(spot);
+                setSpotField(spot.getId(), ParkingSpot.FIELD_ACTIVE, true);
                 System.out.println("Auto-activated parking spot: " + spot.getId());
             }
         }
 
-        return spots.stream()
+        List<ParkingSpot> result = spots.stream()
                 .map(this::ensureProperZoneName)
                 .collect(Collectors.toList());
+        // Overlay live counters last, onto the spots as read
+        applyLiveAvailability(result);
+        return result;
     }
 
     public List<ParkingSpot> getSpotsByLotId(String lotId) {
@@ -170,11 +220,12 @@ public class ParkingSpotService {
         for (ParkingSpot spot : spots) {
             if (!spot.isActive()) {
                 spot.setActive(true);
-                parkingSpotRepository.save(spot);
+                setSpotField(spot.getId(), ParkingSpot.FIELD_ACTIVE, true);
                 System.out.println("Auto-activated parking spot: " + spot.getId());
             }
         }
 
+        applyLiveAvailability(spots);
         return spots;
     }
 
@@ -189,13 +240,138 @@ public class ParkingSpotService {
                 .collect(Collectors.toList());
     }
 
+    // ===== Interval Reservations =====
+
+    public boolean isSlotInventoryEnabled() {
+        return INVENTORY_MODEL_SLOTS.equalsIgnoreCase(inventoryModel);
+    }
+
+    /**
+     * Reserves the spot for [checkIn, checkOut). Uses the time-sliced slot inventory when
+     * app.booking.inventory-model=slots, otherwise the single availability counter.
+     */
+    public boolean reserveSpotForInterval(ParkingSpot spot, ZonedDateTime checkIn, ZonedDateTime checkOut) {
+        if (isSlotInventoryEnabled()) {
+            return slotInventoryService.reserve(spot.getId(), spot.getCapacity(),
+                    checkIn.toInstant(), checkOut.toInstant());
+        }
+        return atomicReserveSpotForBooking(spot.getId());
+    }
+
+    /**
+     * {@link #reserveSpotForInterval} for the spot lock holder with the given fencing token.
+     * On the counter the fence is part of the reservation itself (lockFence <= token, raised to the token
+     * in the same update); slot, sharded and leased capacity lives outside the spot document, so there
+     * the fence is advanced in one write before reserving.
+     * @throws LockAcquisitionException if a holder with a newer token has already written to the spot
+     */
+    public boolean reserveSpotForInterval(ParkingSpot spot, ZonedDateTime checkIn, ZonedDateTime checkOut,
+                                          long fencingToken) {
+        String spotId = spot.getId();
+        if (!supportsBatchReserve(spotId)) {
+            if (!advanceLockFence(spotId, fencingToken)) {
+                throw fencedOff(spotId);
+            }
+            return reserveSpotForInterval(spot, checkIn, checkOut);
+        }
+        boolean reserved = reserveOneUnit(spotId, fencingToken);
+        if (!reserved) {
+            if (isFencedOff(spotId, fencingToken)) {
+                throw fencedOff(spotId);
+            }
+            soldOutCache.markSoldOut(spotId);
+        }
+        return reserved;
+    }
+
+    /**
+     * Reserves the additional [currentEnd, newEnd) interval of an extended booking.
+     * Counter-based bookings already hold the spot until release, so nothing is reserved for them.
+     */
+    public boolean reserveSpotExtension(ParkingSpot spot, Bookings booking, ZonedDateTime newCheckOut) {
+        if (booking.getReservedTo() == null) {
+            return true;
+        }
+        return slotInventoryService.reserve(spot.getId(), spot.getCapacity(),
+                booking.getReservedTo().toInstant(), newCheckOut.toInstant());
+    }
+
+    /**
+     * Undoes {@link #reserveSpotExtension} for an extension that was not paid for.
+     */
+    public void releaseSpotExtension(Bookings booking, ZonedDateTime newCheckOut) {
+        if (booking.getReservedTo() == null) {
+            return;
+        }
+        slotInventoryService.release(booking.getSpotId(), booking.getReservedTo().toInstant(), newCheckOut.toInstant());
+    }
+
+    /**
+     * Undoes {@link #reserveSpotForInterval} for a booking that was never persisted.
+     */
+    public void releaseSpotForInterval(String spotId, ZonedDateTime checkIn, ZonedDateTime checkOut) {
+        if (isSlotInventoryEnabled()) {
+            slotInventoryService.release(spotId, checkIn.toInstant(), checkOut.toInstant());
+            return;
+        }
+        incrementSpotAvailability(spotId);
+    }
+
+    /**
+     * Releases whatever the booking reserved, based on how it was reserved rather than the current mode.
+     */
+    public void releaseSpotForBooking(Bookings booking) {
+        if (booking.getReservedFrom() != null && booking.getReservedTo() != null) {
+            Instant from = booking.getReservedFrom().toInstant();
+            Instant to = booking.getReservedTo().toInstant();
+            slotInventoryService.release(booking.getSpotId(), from, to);
+            return;
+        }
+        incrementSpotAvailability(booking.getSpotId());
+    }
+
     // ===== Availability Management =====
 
     public boolean atomicReserveSpotForBooking(String spotId) {
-        Query spotQuery = new Query(
-                Criteria.where(FIELD_ID).is(spotId)
-                        .and(FIELD_AVAILABLE).gt(MIN_AVAILABLE_SPOTS));
+        boolean reserved = reserveOneUnit(spotId);
+        if (!reserved) {
+            soldOutCache.markSoldOut(spotId);
+        }
+        return reserved;
+    }
+
+    /**
+     * Cheap pre-lock check: true if a reservation on this spot failed for lack of capacity moments ago
+     */
+    public boolean isKnownSoldOut(String spotId) {
+        return !isSlotInventoryEnabled() && soldOutCache.isSoldOut(spotId);
+    }
+
+    private boolean reserveOneUnit(String spotId) {
+        return reserveOneUnit(spotId, UNFENCED);
+    }
+
+    private boolean reserveOneUnit(String spotId, long fencingToken) {
+        // The cached mode only picks the first path; a miss re-reads the mode from the spot document
+        if (shardedCounterService.isSharded(spotId)) {
+            if (shardedCounterService.reserve(spotId)) {
+                return true;
+            }
+            if (shardedCounterService.refreshMode(spotId)) {
+                return false;
+            }
+        }
+        if (capacityLeaseService.isLeased(spotId)) {
+            return capacityLeaseService.reserve(spotId);
+        }
+        Query spotQuery = new Query(new Criteria().andOperator(
+                Criteria.where(FIELD_ID).is(spotId).and(FIELD_AVAILABLE).gt(MIN_AVAILABLE_SPOTS),
+                ShardedSpotCounterService.singleCounter(),
+                fenceAllows(fencingToken)));
         Update decUpdate = new Update().inc(FIELD_AVAILABLE, DECREMENT_VALUE);
+        if (fencingToken != UNFENCED) {
+            decUpdate.max(ParkingSpot.FIELD_LOCK_FENCE, fencingToken);
+        }
 
         ParkingSpot updatedSpot = mongoOperations.findAndModify(
                 spotQuery,
@@ -203,60 +379,255 @@ public class ParkingSpotService {
                 FindAndModifyOptions.options().returnNew(false),
                 ParkingSpot.class);
 
+        if (updatedSpot == null && shardedCounterService.refreshMode(spotId)) {
+            // Sharded by another instance since this one last looked: the shards do not carry the fence
+            return (fencingToken == UNFENCED || advanceLockFence(spotId, fencingToken))
+                    && shardedCounterService.reserve(spotId);
+        }
         return updatedSpot != null && updatedSpot.getAvailable() > MIN_AVAILABLE_SPOTS;
     }
 
+    /**
+     * True when bookings for the spot are admitted from this instance's leased capacity pool
+     * (counter model, not sharded); the local CAS needs neither the spot lock nor its fence
+     */
+    public boolean isAdmittedFromLease(String spotId) {
+        return !isSlotInventoryEnabled()
+                && !shardedCounterService.isSharded(spotId)
+                && capacityLeaseService.isLeased(spotId);
+    }
+
+    /**
+     * True when the spot's availability is the plain ParkingSpot.available counter
+     * (not slot inventory, sharded or leased), so several units can be taken in one update
+     */
+    public boolean supportsBatchReserve(String spotId) {
+        return !isSlotInventoryEnabled()
+                && !shardedCounterService.isSharded(spotId)
+                && !capacityLeaseService.isLeased(spotId);
+    }
+
+    /**
+     * Takes up to `units` from the spot counter in one update: available = max(0, available - units)
+     * Fenced like {@link #reserveSpotForInterval(ParkingSpot, ZonedDateTime, ZonedDateTime, long)}
+     * @return number of units actually taken
+     * @throws LockAcquisitionException if a holder with a newer token has already written to the spot
+     */
+    public int reserveSpotUnits(String spotId, int units, long fencingToken) {
+        Query spotQuery = new Query(new Criteria().andOperator(
+                Criteria.where(FIELD_ID).is(spotId).and(FIELD_AVAILABLE).gt(MIN_AVAILABLE_SPOTS),
+                ShardedSpotCounterService.singleCounter(),
+                fenceAllows(fencingToken)));
+        AggregationUpdate takeUpdate = AggregationUpdate.update()
+                .set(FIELD_AVAILABLE).toValue((AggregationExpression) context -> new Document("$max", List.of(
+                        MIN_AVAILABLE_SPOTS,
+                        new Document("$subtract", List.of("$" + FIELD_AVAILABLE, units)))))
+                .set(ParkingSpot.FIELD_LOCK_FENCE).toValue((AggregationExpression) context -> new Document("$max", List.of(
+                        "$" + ParkingSpot.FIELD_LOCK_FENCE, fencingToken)));
+
+        ParkingSpot before = mongoOperations.findAndModify(
+                spotQuery,
+                takeUpdate,
+                FindAndModifyOptions.options().returnNew(false),
+                ParkingSpot.class);
+
+        int granted = before == null ? MIN_AVAILABLE_SPOTS : Math.min(units, before.getAvailable());
+        if (before == null && shardedCounterService.refreshMode(spotId)) {
+            // Sharded by another instance since this one last looked: take the units from the shards
+            if (!advanceLockFence(spotId, fencingToken)) {
+                throw fencedOff(spotId);
+            }
+            while (granted < units && shardedCounterService.reserve(spotId)) {
+                granted++;
+            }
+        } else if (before == null && isFencedOff(spotId, fencingToken)) {
+            throw fencedOff(spotId);
+        }
+        if (granted < units) {
+            soldOutCache.markSoldOut(spotId);
+        }
+        return granted;
+    }
+
     public void decrementSpotAvailability(String spotId) {
-        Query spotQuery = new Query(Criteria.where(FIELD_ID).is(spotId).and(FIELD_AVAILABLE).gt(MIN_AVAILABLE_SPOTS));
-        Update decUpdate = new Update().inc(FIELD_AVAILABLE, DECREMENT_VALUE);
-        ParkingSpot updatedSpot = mongoOperations.findAndModify(spotQuery, decUpdate, ParkingSpot.class);
-        if (updatedSpot == null) {
+        if (!atomicReserveSpotForBooking(spotId)) {
             throw new RuntimeException(ERROR_NO_SPOTS_AVAILABLE);
         }
     }
 
     public void incrementSpotAvailability(String spotId) {
-        Update incUpdate = new Update().inc(FIELD_AVAILABLE, INCREMENT_VALUE);
-        mongoOperations.updateFirst(new Query(Criteria.where(FIELD_ID).is(spotId)), incUpdate, ParkingSpot.class);
-        ensureAvailableNotExceedCapacity(spotId);
+        soldOutCache.clear(spotId);
+        if (shardedCounterService.isSharded(spotId) && shardedCounterService.release(spotId)) {
+            return;
+        }
+        if (capacityLeaseService.isLeased(spotId)) {
+            capacityLeaseService.release(spotId);
+            return;
+        }
+        Query spotQuery = new Query(new Criteria().andOperator(
+                Criteria.where(FIELD_ID).is(spotId), ShardedSpotCounterService.singleCounter()));
+        if (mongoOperations.updateFirst(spotQuery, clampedReleaseUpdate(), ParkingSpot.class).getMatchedCount() == 0
+                && shardedCounterService.refreshMode(spotId)) {
+            shardedCounterService.release(spotId);
+        }
     }
 
-    public void ensureAvailableNotExceedCapacity(String spotId) {
-        Optional<ParkingSpot> spot = parkingSpotRepository.findById(spotId);
-        if (spot.isPresent() && spot.get().getAvailable() > spot.get().getCapacity()) {
-            spot.get().setAvailable(spot.get().getCapacity());
-            mongoOperations.save(spot.get());
-        }
+    /**
+     * available = min(capacity, available + 1) evaluated by MongoDB in one update,
+     * so a release never overfills the spot and never overwrites a concurrent reservation
+     */
+    private AggregationUpdate clampedReleaseUpdate() {
+        return AggregationUpdate.update()
+                .set(FIELD_AVAILABLE).toValue((AggregationExpression) context -> new Document("$min", List.of(
+                        "$" + ParkingSpot.FIELD_CAPACITY,
+                        new Document("$add", List.of("$" + FIELD_AVAILABLE, INCREMENT_VALUE)))));
+    }
+
+    /**
+     * Records the fencing token of the current spot lock holder
+     * @return false if a holder with a newer token has already written, i.e. this holder's lease was lost
+     */
+    public boolean advanceLockFence(String spotId, long fencingToken) {
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where(FIELD_ID).is(spotId), fenceAllows(fencingToken)));
+        Update update = new Update().set(ParkingSpot.FIELD_LOCK_FENCE, fencingToken);
+        return mongoOperations.updateFirst(query, update, ParkingSpot.class).getMatchedCount() > 0;
+    }
+
+    /**
+     * Matches spots no holder with a newer fencing token has written to (lockFence missing or <= token)
+     */
+    private static Criteria fenceAllows(long fencingToken) {
+        return fencingToken == UNFENCED
+                ? new Criteria()
+                : Criteria.where(ParkingSpot.FIELD_LOCK_FENCE).not().gt(fencingToken);
+    }
+
+    /**
+     * Read-only: tells a failed fenced reservation apart from a spot without capacity
+     */
+    private boolean isFencedOff(String spotId, long fencingToken) {
+        return mongoOperations.exists(new Query(
+                Criteria.where(FIELD_ID).is(spotId).and(ParkingSpot.FIELD_LOCK_FENCE).gt(fencingToken)),
+                ParkingSpot.class);
+    }
+
+    private static LockAcquisitionException fencedOff(String spotId) {
+        return new LockAcquisitionException("Lock on spot " + spotId + " was taken over by a newer holder");
     }
 
     // ===== Spot Holding/Releasing Operations =====
 
     public ParkingSpot holdSpot(String spotId, String userId) {
-        Query spotQuery = new Query(Criteria.where(FIELD_ID).is(spotId).and(FIELD_AVAILABLE).gt(MIN_AVAILABLE_SPOTS));
+        if (shardedCounterService.isSharded(spotId)) {
+            if (shardedCounterService.reserve(spotId)) {
+                return updateHoldFields(spotId, new Update().set(FIELD_HELD_BY, userId).set(FIELD_HELD_AT, new Date()));
+            }
+            if (shardedCounterService.refreshMode(spotId)) {
+                return null;
+            }
+        }
+        Query spotQuery = new Query(new Criteria().andOperator(
+                Criteria.where(FIELD_ID).is(spotId).and(FIELD_AVAILABLE).gt(MIN_AVAILABLE_SPOTS),
+                ShardedSpotCounterService.singleCounter()));
         Update holdUpdate = new Update()
                 .inc(FIELD_AVAILABLE, DECREMENT_VALUE)
                 .set(FIELD_HELD_BY, userId)
                 .set(FIELD_HELD_AT, new Date());
 
-        return mongoOperations.findAndModify(
+        ParkingSpot heldSpot = mongoOperations.findAndModify(
                 spotQuery,
                 holdUpdate,
                 FindAndModifyOptions.options().returnNew(true),
                 ParkingSpot.class);
+        if (heldSpot == null && shardedCounterService.refreshMode(spotId)) {
+            if (!shardedCounterService.reserve(spotId)) {
+                return null;
+            }
+            return updateHoldFields(spotId, new Update().set(FIELD_HELD_BY, userId).set(FIELD_HELD_AT, new Date()));
+        }
+        if (heldSpot == null) {
+            soldOutCache.markSoldOut(spotId);
+        }
+        return heldSpot;
     }
 
     public ParkingSpot releaseSpot(String spotId) {
-        Query spotQuery = new Query(Criteria.where(FIELD_ID).is(spotId));
-        Update releaseUpdate = new Update()
-                .inc(FIELD_AVAILABLE, INCREMENT_VALUE)
-                .unset(FIELD_HELD_BY)
-                .unset(FIELD_HELD_AT);
+        soldOutCache.clear(spotId);
+        if (shardedCounterService.isSharded(spotId) && shardedCounterService.release(spotId)) {
+            return updateHoldFields(spotId, new Update().unset(FIELD_HELD_BY).unset(FIELD_HELD_AT));
+        }
+        Query spotQuery = new Query(new Criteria().andOperator(
+                Criteria.where(FIELD_ID).is(spotId), ShardedSpotCounterService.singleCounter()));
+        AggregationUpdate releaseUpdate = clampedReleaseUpdate().unset(FIELD_HELD_BY, FIELD_HELD_AT);
 
-        return mongoOperations.findAndModify(
+        ParkingSpot released = mongoOperations.findAndModify(
                 spotQuery,
                 releaseUpdate,
                 FindAndModifyOptions.options().returnNew(true),
                 ParkingSpot.class);
+        if (released == null && shardedCounterService.refreshMode(spotId)) {
+            shardedCounterService.release(spotId);
+            return updateHoldFields(spotId, new Update().unset(FIELD_HELD_BY).unset(FIELD_HELD_AT));
+        }
+        return released;
+    }
+
+    private ParkingSpot updateHoldFields(String spotId, Update update) {
+        ParkingSpot spot = mongoOperations.findAndModify(
+                new Query(Criteria.where(FIELD_ID).is(spotId)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                ParkingSpot.class);
+        if (spot != null) {
+            applyLiveAvailability(List.of(spot));
+        }
+        return spot;
+    }
+
+    // ===== Sharded Counters =====
+
+    /**
+     * Splits a hot spot's availability across N counter documents (N <= 1 restores the single counter)
+     * Runs under the spot lock, so no booking reserves while the units move between counters
+     */
+    public ParkingSpot configureCounterShards(String spotId, int shards) {
+        ParkingSpot spot = parkingSpotRepository.findById(spotId).orElse(null);
+        if (spot == null) {
+            return null;
+        }
+        return lockService.executeWithFencedLock(spotId, CONFIGURE_LOCK_WAIT_MS, fencingToken -> {
+            if (!advanceLockFence(spotId, fencingToken)) {
+                throw fencedOff(spotId);
+            }
+            soldOutCache.clear(spotId);
+            return shardedCounterService.configureShards(spot, shards);
+        });
+    }
+
+    /**
+     * Replaces the stale `available` field of sharded spots with the sum of their shards
+     * and adds the capacity this instance currently holds under lease
+     */
+    private void applyLiveAvailability(List<ParkingSpot> spots) {
+        for (ParkingSpot spot : spots) {
+            if (capacityLeaseService.isLeased(spot.getId())) {
+                spot.setAvailable(spot.getAvailable() + capacityLeaseService.getLocalAvailable(spot.getId()));
+            }
+        }
+        List<String> shardedIds = spots.stream()
+                .map(ParkingSpot::getId)
+                .filter(shardedCounterService::isSharded)
+                .collect(Collectors.toList());
+        if (shardedIds.isEmpty()) {
+            return;
+        }
+        Map<String, Integer> totals = shardedCounterService.getAvailable(shardedIds);
+        for (ParkingSpot spot : spots) {
+            if (totals.containsKey(spot.getId())) {
+                spot.setAvailable(totals.get(spot.getId()));
+            }
+        }
     }
 
     // ===== Zone Name Management =====
@@ -280,12 +651,21 @@ public class ParkingSpotService {
 
         if (needsUpdate) {
             System.out.println(String.format(LOG_UPDATING_ZONE, spot.getId(), spot.getZoneName()));
-            parkingSpotRepository.save(spot);
+            setSpotField(spot.getId(), ParkingSpot.FIELD_ZONE_NAME, spot.getZoneName());
         }
 
         return spot;
     }
 
+    /**
+     * $set of a single field, so spots read before a concurrent reservation or fence write
+     * never write their stale counters back
+     */
+    private void setSpotField(String spotId, String field, Object value) {
+        mongoOperations.updateFirst(new Query(Criteria.where(FIELD_ID).is(spotId)),
+                new Update().set(field, value), ParkingSpot.class);
+    }
+
     private boolean isInvalidZoneName(String zoneName) {
         return zoneName == null ||
                 zoneName.isEmpty() ||
@@ -332,7 +712,7 @@ public class ParkingSpotService {
             if (isInvalidZoneName(spot.getZoneName())) {
                 String newZoneName = generateZoneNameFromId(spot.getId());
                 spot.setZoneName(newZoneName);
-                parkingSpotRepository.save(spot);
+                setSpotField(spot.getId(), ParkingSpot.FIELD_ZONE_NAME, newZoneName);
                 updatedCount++;
 
                 System.out.println(String.format(LOG_ZONE_UPDATED, spot.getId(), newZoneName));
@@ -344,9 +724,18 @@ public class ParkingSpotService {
 
     public void resetAllSpotsCapacity() {
         List<ParkingSpot> allSpots = parkingSpotRepository.findAll();
+        capacityLeaseService.discardAll();
+        soldOutCache.clearAll();
         for (ParkingSpot spot : allSpots) {
-            spot.setAvailable(spot.getCapacity());
-            parkingSpotRepository.save(spot);
+            // Targeted update: a whole-document save could undo a concurrent shard layout change
+            Query spotQuery = new Query(new Criteria().andOperator(
+                    Criteria.where(FIELD_ID).is(spot.getId()), ShardedSpotCounterService.singleCounter()));
+            // The epoch bump tells every instance's CapacityLeaseService its leases are gone
+            Update reset = new Update().set(FIELD_AVAILABLE, spot.getCapacity())
+                    .inc(ParkingSpot.FIELD_CAPACITY_EPOCH, 1);
+            if (mongoOperations.updateFirst(spotQuery, reset, ParkingSpot.class).getMatchedCount() == 0) {
+                shardedCounterService.resetToCapacity(spot.getId());
+            }
         }
         System.out.println(LOG_CAPACITY_RESET);
     }
@@ -377,9 +766,9 @@ public class ParkingSpotService {
         }
         spot.setStatus(status);
 
-        spot.setBookingRate(extractDouble(doc.get("bookingRate"), 0.0));
-        spot.setCheckInPenaltyRate(extractDouble(doc.get("checkInPenaltyRate"), 0.0));
-        spot.setCheckOutPenaltyRate(extractDouble(doc.get("checkOutPenaltyRate"), 0.0));
+        spot.setBookingRate(Money.fromStored(doc.get("bookingRate")));
+        spot.setCheckInPenaltyRate(Money.fromStored(doc.get("checkInPenaltyRate")));
+        spot.setCheckOutPenaltyRate(Money.fromStored(doc.get("checkOutPenaltyRate")));
         spot.setDescription(doc.getString("description"));
         spot.setActive(Boolean.TRUE.equals(doc.getBoolean("active", true)));
 
@@ -412,11 +801,4 @@ public class ParkingSpotService {
         }
         return defaultValue;
     }
-
-    private double extractDouble(Object value, double defaultValue) {
-        if (value instanceof Number n) {
-            return n.doubleValue();
-        }
-        return defaultValue;
-    }
 }
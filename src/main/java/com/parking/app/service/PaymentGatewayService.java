@@ -1,8 +1,6 @@
 package com.parking.app.service;
 
 import com.parking.app.model.Transactions;
-import com.parking.app.model.Wallet;
-import com.parking.app.repository.WalletRepository;
 import com.razorpay.Order;
 import com.razorpay.RazorpayClient;
 import org.json.JSONObject;
@@ -10,10 +8,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
-
 @Service
 public class PaymentGatewayService {
 
@@ -24,13 +21,12 @@ public class PaymentGatewayService {
     private static final String CURRENCY_INR = "INR";
     private static final String PAYMENT_METHOD = "wallet_recharge";
     private static final String RECEIPT_PREFIX = "wallet_recharge_";
-    private static final String STATUS_SUCCESS = "success";
+    private static final String TYPE_WALLET_TOPUP = "wallet_topup";
     private static final String STATUS_FAILED = "failed";
     private static final String ORDER_ID_KEY = "id";
     private static final String JSON_AMOUNT_KEY = "amount";
     private static final String JSON_CURRENCY_KEY = "currency";
     private static final String JSON_RECEIPT_KEY = "receipt";
-    private static final int PAISE_MULTIPLIER = 100;
 
     // Error messages
     private static final String ERROR_MISSING_CREDENTIALS = "Razorpay credentials are missing";
@@ -39,27 +35,28 @@ public class PaymentGatewayService {
     // Log messages
     private static final String LOG_ORDER_CREATED = "Razorpay order created for user {}: {}";
     private static final String LOG_WALLET_RECHARGED = "Wallet recharged for user {} via payment {}";
+    private static final String LOG_PAYMENT_ALREADY_APPLIED = "Payment {} already credited to wallet of user {}";
     private static final String LOG_PAYMENT_FAILED = "Payment failed for user {}: order {}";
     private static final String LOG_PAYMENT_INITIATION_FAILED = "Payment initiation failed for user {}: {}";
     private static final String LOG_CALLBACK_ERROR = "Error handling payment callback: {}";
 
-    @Autowired
-    private WalletRepository walletRepository;
-
     @Autowired
     private TransactionService transactionService;
 
     @Autowired
     private WalletService walletService;
 
+    @Autowired
+    private WalletProjector walletProjector;
+
     @Value("${razorpay.key:}")
     private String razorpayKey;
 
     @Value("${razorpay.secret:}")
     private String razorpaySecret;
 
-    // Initiate payment (Razorpay or mock)
-    public String initiatePayment(String userId, double amount) {
+    // Initiate payment (Razorpay or mock); amount in paise
+    public String initiatePayment(String userId, long amount) {
         try {
             validateRazorpayCredentials();
 
@@ -77,7 +74,7 @@ public class PaymentGatewayService {
     }
 
     // Handle payment callback/webhook
-    public boolean handlePaymentCallback(String orderId, String paymentId, boolean success, String userId, double amount) {
+    public boolean handlePaymentCallback(String orderId, String paymentId, boolean success, String userId, long amount) {
         try {
             if (success) {
                 return processSuccessfulPayment(orderId, paymentId, userId, amount);
@@ -100,42 +97,56 @@ public class PaymentGatewayService {
         }
     }
 
-    private JSONObject createOrderRequest(String userId, double amount) {
+    private JSONObject createOrderRequest(String userId, long amount) {
         JSONObject orderRequest = new JSONObject();
-        orderRequest.put(JSON_AMOUNT_KEY, (int)(amount * PAISE_MULTIPLIER));
+        orderRequest.put(JSON_AMOUNT_KEY, amount); // Razorpay takes paise as well
         orderRequest.put(JSON_CURRENCY_KEY, CURRENCY_INR);
         orderRequest.put(JSON_RECEIPT_KEY, RECEIPT_PREFIX + userId);
         return orderRequest;
     }
 
-    private boolean processSuccessfulPayment(String orderId, String paymentId, String userId, double amount) {
-        Optional<Wallet> walletOpt = walletService.findByUserId(userId);
-        if (walletOpt.isPresent()) {
-            Wallet wallet = walletOpt.get();
-            wallet.setBalance(wallet.getBalance() + amount);
-            wallet.setLastUpdated(new java.util.Date());
-            walletRepository.save(wallet);
+    /**
+     * Records the payment and credits the wallet under a durable key
+     *
+     * The success record is the dedupe: a unique index on gatewayPaymentId among success records
+     * (see MongoIndexConfig) makes the insert for a repeated callback fail, however long ago the first
+     * one was. The record is inserted claimed and applied straight away by WalletProjector; if this
+     * instance dies before the credit, a projector drain finishes it, so the money is never dropped.
+     */
+    private boolean processSuccessfulPayment(String orderId, String paymentId, String userId, long amount) {
+        walletService.getOrCreateWallet(userId);
+        if (isRecorded(paymentId)) {
+            logger.info(LOG_PAYMENT_ALREADY_APPLIED, paymentId, userId);
+            return true;
+        }
 
-            logger.info(LOG_WALLET_RECHARGED, userId, paymentId);
-            recordSuccessfulTransaction(orderId, paymentId, userId, amount);
+        Transactions transaction = createTransactionBase(orderId, paymentId, userId, amount);
+        transaction.setType(TYPE_WALLET_TOPUP);
+        transaction.setReferenceId(paymentId);
+        transaction.setStatus(Transactions.STATUS_SUCCESS);
+        try {
+            walletProjector.recordAndApply(transaction);
+        } catch (DuplicateKeyException e) {
+            logger.info(LOG_PAYMENT_ALREADY_APPLIED, paymentId, userId);
             return true;
         }
-        return false;
+        logger.info(LOG_WALLET_RECHARGED, userId, paymentId);
+        return true;
     }
 
-    private void recordSuccessfulTransaction(String orderId, String paymentId, String userId, double amount) {
-        Transactions transaction = createTransactionBase(orderId, paymentId, userId, amount);
-        transaction.setStatus(STATUS_SUCCESS);
-        transactionService.recordTransaction(transaction);
+    // Also covers success records written before the unique index existed
+    private boolean isRecorded(String paymentId) {
+        return paymentId != null && transactionService.getTransactionsByGatewayPaymentId(paymentId).stream()
+                .anyMatch(tx -> Transactions.STATUS_SUCCESS.equalsIgnoreCase(tx.getStatus()));
     }
 
-    private void recordFailedTransaction(String orderId, String paymentId, String userId, double amount) {
+    private void recordFailedTransaction(String orderId, String paymentId, String userId, long amount) {
         Transactions transaction = createTransactionBase(orderId, paymentId, userId, amount);
         transaction.setStatus(STATUS_FAILED);
         transactionService.recordTransaction(transaction);
     }
 
-    private Transactions createTransactionBase(String orderId, String paymentId, String userId, double amount) {
+    private Transactions createTransactionBase(String orderId, String paymentId, String userId, long amount) {
         Transactions transaction = new Transactions();
         transaction.setUserId(userId);
         transaction.setGateway(GATEWAY_NAME);
@@ -0,0 +1,275 @@
+package com.parking.app.service;
+
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.model.SpotCapacityShard;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sharded availability counters for hot parking spots
+ *
+ * A spot with counterShards = N keeps its availability in N spot_capacity_shards documents.
+ * Reserve/release start at a random shard and probe the others only when it is empty/full,
+ * so concurrent bookings rarely touch the same document. The total is the sum of all shards.
+ * Non-sharded spots keep using ParkingSpot.available directly.
+ *
+ * The mode lives on the ParkingSpot document (counterShards). The in-memory set below only picks
+ * the first path to try: single-counter writes match counterShards <= 1, and a write that misses
+ * re-reads the spot's mode ({@link #refreshMode}) before giving up, so an instance with a stale
+ * view can never decrement the wrong counter. Layout changes run under the spot lock and move the
+ * units with atomic updates (see {@link #configureShards}).
+ */
+@Service
+public class ShardedSpotCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedSpotCounterService.class);
+
+    private static final int RESERVE_VALUE = -1;
+    private static final int RELEASE_VALUE = 1;
+    private static final int MIN_AVAILABLE = 0;
+    private static final int SINGLE_COUNTER = 1;
+    private static final long SHARDED_SPOTS_REFRESH_MS = 30000;
+
+    private final MongoOperations mongoOperations;
+
+    // Spots currently using shards; refreshed periodically so other instances' changes are picked up
+    private final Set<String> shardedSpots = ConcurrentHashMap.newKeySet();
+    private final Map<String, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    public ShardedSpotCounterService(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelay = SHARDED_SPOTS_REFRESH_MS, initialDelay = SHARDED_SPOTS_REFRESH_MS)
+    public void refreshShardedSpots() {
+        try {
+            Query query = new Query(Criteria.where(ParkingSpot.FIELD_COUNTER_SHARDS).gt(SINGLE_COUNTER));
+            query.fields().include(ParkingSpot.FIELD_COUNTER_SHARDS);
+
+            Map<String, Integer> latest = new HashMap<>();
+            for (ParkingSpot spot : mongoOperations.find(query, ParkingSpot.class)) {
+                latest.put(spot.getId(), spot.getCounterShards());
+            }
+            shardCounts.putAll(latest);
+            shardCounts.keySet().retainAll(latest.keySet());
+            shardedSpots.addAll(latest.keySet());
+            shardedSpots.retainAll(latest.keySet());
+        } catch (Exception e) {
+            logger.warn("Could not refresh sharded spot list: {}", e.getMessage());
+        }
+    }
+
+    public boolean isSharded(String spotId) {
+        return shardedSpots.contains(spotId);
+    }
+
+    /**
+     * Re-reads the spot's mode after a write missed because the cached mode was stale
+     * @return whether the spot is sharded now
+     */
+    public boolean refreshMode(String spotId) {
+        Query query = new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId));
+        query.fields().include(ParkingSpot.FIELD_COUNTER_SHARDS);
+        ParkingSpot spot = mongoOperations.findOne(query, ParkingSpot.class);
+        if (spot != null && spot.getCounterShards() > SINGLE_COUNTER) {
+            shardCounts.put(spotId, spot.getCounterShards());
+            shardedSpots.add(spotId);
+            return true;
+        }
+        shardedSpots.remove(spotId);
+        shardCounts.remove(spotId);
+        return false;
+    }
+
+    /**
+     * Matches the spot only while it uses the single ParkingSpot.available counter
+     * ($not $gt also matches spots without the field)
+     */
+    public static Criteria singleCounter() {
+        return Criteria.where(ParkingSpot.FIELD_COUNTER_SHARDS).not().gt(SINGLE_COUNTER);
+    }
+
+    // ===== Counter Operations =====
+
+    /**
+     * Takes one unit from any non-empty shard
+     * @return false if every shard is empty
+     */
+    public boolean reserve(String spotId) {
+        int shards = shardCounts.getOrDefault(spotId, SINGLE_COUNTER);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            Query query = new Query(Criteria.where(SpotCapacityShard.FIELD_ID).is(SpotCapacityShard.buildId(spotId, shard))
+                    .and(SpotCapacityShard.FIELD_AVAILABLE).gt(MIN_AVAILABLE));
+            Update update = new Update().inc(SpotCapacityShard.FIELD_AVAILABLE, RESERVE_VALUE);
+            if (mongoOperations.updateFirst(query, update, SpotCapacityShard.class).getModifiedCount() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns one unit to any shard that is below its own capacity
+     * @return false if the spot has no shard to take it (layout changed meanwhile)
+     */
+    public boolean release(String spotId) {
+        int shards = shardCounts.getOrDefault(spotId, SINGLE_COUNTER);
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            Query query = new Query(new Criteria().andOperator(
+                    Criteria.where(SpotCapacityShard.FIELD_ID).is(SpotCapacityShard.buildId(spotId, shard)),
+                    Criteria.expr(ComparisonOperators.valueOf(SpotCapacityShard.FIELD_AVAILABLE)
+                            .lessThan(SpotCapacityShard.FIELD_CAPACITY))));
+            Update update = new Update().inc(SpotCapacityShard.FIELD_AVAILABLE, RELEASE_VALUE);
+            if (mongoOperations.updateFirst(query, update, SpotCapacityShard.class).getModifiedCount() > 0) {
+                return true;
+            }
+        }
+        if (!mongoOperations.exists(new Query(Criteria.where(SpotCapacityShard.FIELD_SPOT_ID).is(spotId)),
+                SpotCapacityShard.class)) {
+            return false;
+        }
+        logger.warn("All capacity shards of spot {} already full - release ignored", spotId);
+        return true;
+    }
+
+    public int getAvailable(String spotId) {
+        return getAvailable(List.of(spotId)).getOrDefault(spotId, MIN_AVAILABLE);
+    }
+
+    /**
+     * Sums shard availability for several spots with one aggregation
+     */
+    public Map<String, Integer> getAvailable(Collection<String> spotIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where(SpotCapacityShard.FIELD_SPOT_ID).in(spotIds)),
+                Aggregation.group(SpotCapacityShard.FIELD_SPOT_ID).sum(SpotCapacityShard.FIELD_AVAILABLE).as("total"));
+
+        Map<String, Integer> totals = new HashMap<>();
+        for (Document result : mongoOperations.aggregate(aggregation, SpotCapacityShard.class, Document.class)) {
+            totals.put(result.getString("_id"), ((Number) result.get("total")).intValue());
+        }
+        return totals;
+    }
+
+    // ===== Shard Layout Management =====
+
+    /**
+     * Moves the spot's availability to the given number of shards, or back to the single counter
+     * when shards <= 1. The caller must hold the spot lock, so no reservation runs meanwhile;
+     * releases may, and none is lost:
+     * - leaving shards: each shard is removed with findAndRemove and its units $inc'ed onto the
+     *   counter; a release that finds no shard falls back to the counter
+     * - entering shards: empty shards are created first, then one findAndModify sets counterShards
+     *   and takes the counter's units (available = 0), which are then $inc'ed onto the shards
+     * The spot document is only changed with targeted $set/$inc, never saved whole.
+     */
+    public ParkingSpot configureShards(ParkingSpot spot, int shards) {
+        String spotId = spot.getId();
+        collapseShards(spotId);
+        if (shards <= SINGLE_COUNTER) {
+            shardedSpots.remove(spotId);
+            shardCounts.remove(spotId);
+            ParkingSpot updated = mongoOperations.findById(spotId, ParkingSpot.class);
+            logger.info("Spot {} uses a single availability counter ({} available)",
+                    spotId, updated != null ? updated.getAvailable() : 0);
+            return updated;
+        }
+
+        List<SpotCapacityShard> shardDocs = new ArrayList<>();
+        for (int shard = 0; shard < shards; shard++) {
+            SpotCapacityShard doc = new SpotCapacityShard();
+            doc.setId(SpotCapacityShard.buildId(spotId, shard));
+            doc.setSpotId(spotId);
+            doc.setShard(shard);
+            doc.setCapacity(split(spot.getCapacity(), shards, shard));
+            doc.setAvailable(MIN_AVAILABLE);
+            shardDocs.add(doc);
+        }
+        mongoOperations.insertAll(shardDocs);
+
+        ParkingSpot before = mongoOperations.findAndModify(
+                new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId)),
+                new Update().set(ParkingSpot.FIELD_COUNTER_SHARDS, shards).set(ParkingSpot.FIELD_AVAILABLE, MIN_AVAILABLE),
+                FindAndModifyOptions.options().returnNew(false),
+                ParkingSpot.class);
+        int available = before != null ? Math.max(MIN_AVAILABLE, before.getAvailable()) : MIN_AVAILABLE;
+        for (int shard = 0; shard < shards; shard++) {
+            int units = split(available, shards, shard);
+            if (units > 0) {
+                mongoOperations.updateFirst(
+                        new Query(Criteria.where(SpotCapacityShard.FIELD_ID).is(SpotCapacityShard.buildId(spotId, shard))),
+                        new Update().inc(SpotCapacityShard.FIELD_AVAILABLE, units),
+                        SpotCapacityShard.class);
+            }
+        }
+        shardCounts.put(spotId, shards);
+        shardedSpots.add(spotId);
+        logger.info("Spot {} split into {} capacity shards ({} available)", spotId, shards, available);
+        return mongoOperations.findById(spotId, ParkingSpot.class);
+    }
+
+    /**
+     * Folds every shard of the spot back into ParkingSpot.available and switches it to the
+     * single counter; a no-op for a spot without shards
+     */
+    private void collapseShards(String spotId) {
+        mongoOperations.updateFirst(
+                new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId)
+                        .and(ParkingSpot.FIELD_COUNTER_SHARDS).gt(SINGLE_COUNTER)),
+                new Update().set(ParkingSpot.FIELD_COUNTER_SHARDS, 0).set(ParkingSpot.FIELD_AVAILABLE, MIN_AVAILABLE),
+                ParkingSpot.class);
+        Query anyShard = new Query(Criteria.where(SpotCapacityShard.FIELD_SPOT_ID).is(spotId));
+        SpotCapacityShard shard;
+        while ((shard = mongoOperations.findAndRemove(anyShard, SpotCapacityShard.class)) != null) {
+            if (shard.getAvailable() > 0) {
+                mongoOperations.updateFirst(new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId)),
+                        new Update().inc(ParkingSpot.FIELD_AVAILABLE, shard.getAvailable()),
+                        ParkingSpot.class);
+            }
+        }
+    }
+
+    public void resetToCapacity(String spotId) {
+        List<SpotCapacityShard> shards = mongoOperations.find(
+                new Query(Criteria.where(SpotCapacityShard.FIELD_SPOT_ID).is(spotId)), SpotCapacityShard.class);
+        for (SpotCapacityShard shard : shards) {
+            mongoOperations.updateFirst(
+                    new Query(Criteria.where(SpotCapacityShard.FIELD_ID).is(shard.getId())),
+                    new Update().set(SpotCapacityShard.FIELD_AVAILABLE, shard.getCapacity()),
+                    SpotCapacityShard.class);
+        }
+    }
+
+    /**
+     * Even split of total over shards, remainder going to the lowest shards
+     */
+    private int split(int total, int shards, int shard) {
+        return total / shards + (shard < total % shards ? 1 : 0);
+    }
+}
@@ -0,0 +1,111 @@
+package com.parking.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Short-lived negative cache of sold-out spots
+ *
+ * Marked when a reservation finds no capacity, cleared when this instance returns capacity.
+ * Booking requests check it before any DB read or lock, so a burst against a full spot fails
+ * immediately instead of queueing for the lock only to be told "booking full".
+ * The TTL bounds staleness from capacity returned by other instances.
+ * With app.booking.sold-out-cache.shared=true (Redis lock provider only) marks and clears are
+ * also published over Redis pub/sub and applied to every instance's local entries, so every
+ * instance sheds load after the first miss. Reads never leave the process.
+ */
+@Service
+public class SoldOutSpotCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SoldOutSpotCache.class);
+    public static final String MARKED_CHANNEL = "booking:soldout:marked";
+    public static final String CLEARED_CHANNEL = "booking:soldout:cleared";
+
+    private final long ttlMs;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    // spotId -> expiry timestamp
+    private final Map<String, Long> soldOutUntil = new ConcurrentHashMap<>();
+
+    public SoldOutSpotCache(@Value("${app.booking.sold-out-cache.ttl-ms:2000}") long ttlMs,
+                            @Value("${app.booking.sold-out-cache.shared:false}") boolean shared,
+                            ObjectProvider<RedisTemplate<String, String>> redisTemplate,
+                            ObjectProvider<RedisMessageListenerContainer> listenerContainer) {
+        this.ttlMs = ttlMs;
+        RedisMessageListenerContainer container = shared ? listenerContainer.getIfAvailable() : null;
+        this.redisTemplate = container != null ? redisTemplate.getIfAvailable() : null;
+        if (this.redisTemplate != null) {
+            // Every instance, this one included, applies the marks and clears it receives
+            container.addMessageListener((message, pattern) -> applyMark(spotIdOf(message.getBody())),
+                    new ChannelTopic(MARKED_CHANNEL));
+            container.addMessageListener((message, pattern) -> soldOutUntil.remove(spotIdOf(message.getBody())),
+                    new ChannelTopic(CLEARED_CHANNEL));
+        } else if (shared) {
+            logger.warn("Sold-out cache sharing requested but Redis is not configured - using local cache only");
+        }
+    }
+
+    public boolean isSoldOut(String spotId) {
+        if (ttlMs <= 0) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        Long until = soldOutUntil.get(spotId);
+        if (until != null) {
+            if (until > now) {
+                return true;
+            }
+            soldOutUntil.remove(spotId, until);
+        }
+        return false;
+    }
+
+    public void markSoldOut(String spotId) {
+        if (ttlMs <= 0) {
+            return;
+        }
+        applyMark(spotId);
+        publish(MARKED_CHANNEL, spotId);
+    }
+
+    public void clear(String spotId) {
+        soldOutUntil.remove(spotId);
+        publish(CLEARED_CHANNEL, spotId);
+    }
+
+    public void clearAll() {
+        soldOutUntil.clear();
+    }
+
+    // Each instance starts the TTL on receipt, so clocks need not agree
+    private void applyMark(String spotId) {
+        if (ttlMs > 0) {
+            soldOutUntil.put(spotId, System.currentTimeMillis() + ttlMs);
+        }
+    }
+
+    private void publish(String channel, String spotId) {
+        if (redisTemplate == null) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, spotId);
+        } catch (Exception e) {
+            logger.debug("Shared sold-out publish on {} failed for spot {}: {}", channel, spotId, e.getMessage());
+        }
+    }
+
+    private static String spotIdOf(byte[] body) {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,172 @@
+package com.parking.app.service;
+
+import com.parking.app.model.SpotSlotInventory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Reserves parking spot capacity per time interval instead of per spot.
+ *
+ * Every spot-day is one document holding 96 occupancy counters (15-minute buckets).
+ * Reserving [from, to) is a single conditional update: all buckets in the range must be
+ * below capacity, and all of them are incremented together. A spot can therefore serve
+ * back-to-back bookings on the same day without waiting for the nightly capacity reset.
+ */
+@Service
+public class SpotSlotInventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpotSlotInventoryService.class);
+
+    private static final ZoneId INVENTORY_ZONE = ZoneId.systemDefault();
+    private static final int RESERVE_VALUE = 1;
+    private static final int RELEASE_VALUE = -1;
+    private static final int RETENTION_DAYS = 2;
+
+    private final MongoOperations mongoOperations;
+
+    public SpotSlotInventoryService(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Atomically reserves one unit of capacity for every bucket touched by [from, to).
+     * Intervals spanning midnight are reserved day by day and rolled back if a later day is full.
+     *
+     * @return true if the whole interval was reserved
+     */
+    public boolean reserve(String spotId, int capacity, Instant from, Instant to) {
+        if (capacity <= 0) {
+            return false;
+        }
+
+        List<DaySegment> reserved = new ArrayList<>();
+        for (DaySegment segment : splitIntoDays(from, to)) {
+            if (!reserveSegment(spotId, capacity, segment)) {
+                logger.debug("Slot inventory full for spot {} on {} [{}-{})",
+                        spotId, segment.day(), segment.startSlot(), segment.endSlot());
+                reserved.forEach(s -> releaseSegment(spotId, s));
+                return false;
+            }
+            reserved.add(segment);
+        }
+        return true;
+    }
+
+    /**
+     * Releases one unit of capacity for every bucket touched by [from, to).
+     */
+    public void release(String spotId, Instant from, Instant to) {
+        for (DaySegment segment : splitIntoDays(from, to)) {
+            releaseSegment(spotId, segment);
+        }
+    }
+
+    // ===== Segment Operations =====
+
+    private boolean reserveSegment(String spotId, int capacity, DaySegment segment) {
+        if (tryReserveSegment(spotId, capacity, segment)) {
+            return true;
+        }
+        // A miss is either a full range or a day document that did not exist yet. Whoever creates
+        // the day (this call or a concurrent booking), the second attempt is the one that decides
+        createDayIfMissing(spotId, segment.day());
+        return tryReserveSegment(spotId, capacity, segment);
+    }
+
+    private boolean tryReserveSegment(String spotId, int capacity, DaySegment segment) {
+        Criteria criteria = Criteria.where(SpotSlotInventory.FIELD_ID)
+                .is(SpotSlotInventory.buildId(spotId, segment.day().toString()));
+        Update update = new Update();
+        for (int slot = segment.startSlot(); slot < segment.endSlot(); slot++) {
+            criteria = criteria.and(slotField(slot)).lt(capacity);
+            update.inc(slotField(slot), RESERVE_VALUE);
+        }
+        return mongoOperations.updateFirst(new Query(criteria), update, SpotSlotInventory.class)
+                .getModifiedCount() > 0;
+    }
+
+    private void releaseSegment(String spotId, DaySegment segment) {
+        Query query = new Query(Criteria.where(SpotSlotInventory.FIELD_ID)
+                .is(SpotSlotInventory.buildId(spotId, segment.day().toString())));
+        Update update = new Update();
+        for (int slot = segment.startSlot(); slot < segment.endSlot(); slot++) {
+            update.inc(slotField(slot), RELEASE_VALUE);
+        }
+        mongoOperations.updateFirst(query, update, SpotSlotInventory.class);
+    }
+
+    private void createDayIfMissing(String spotId, LocalDate day) {
+        String id = SpotSlotInventory.buildId(spotId, day.toString());
+        if (mongoOperations.exists(new Query(Criteria.where(SpotSlotInventory.FIELD_ID).is(id)),
+                SpotSlotInventory.class)) {
+            return;
+        }
+
+        SpotSlotInventory inventory = new SpotSlotInventory();
+        inventory.setId(id);
+        inventory.setSpotId(spotId);
+        inventory.setDay(day.toString());
+        inventory.setExpiresAt(Date.from(day.plusDays(RETENTION_DAYS).atStartOfDay(INVENTORY_ZONE).toInstant()));
+        try {
+            mongoOperations.insert(inventory);
+        } catch (DuplicateKeyException e) {
+            // Created concurrently by another booking
+            logger.debug("Slot inventory {} created concurrently", id);
+        }
+    }
+
+    // ===== Interval Helpers =====
+
+    /**
+     * [from, to) in INVENTORY_ZONE as per-day bucket ranges; a partly covered bucket counts as reserved
+     */
+    static List<DaySegment> splitIntoDays(Instant from, Instant to) {
+        List<DaySegment> segments = new ArrayList<>();
+        if (from == null || to == null || !to.isAfter(from)) {
+            return segments;
+        }
+
+        ZonedDateTime cursor = from.atZone(INVENTORY_ZONE);
+        ZonedDateTime end = to.atZone(INVENTORY_ZONE);
+        while (cursor.isBefore(end)) {
+            LocalDate day = cursor.toLocalDate();
+            ZonedDateTime nextDay = day.plusDays(1).atStartOfDay(INVENTORY_ZONE);
+            boolean endsToday = end.isBefore(nextDay);
+
+            int startSlot = (cursor.getHour() * 60 + cursor.getMinute()) / SpotSlotInventory.SLOT_MINUTES;
+            int endSlot = endsToday ? ceilSlot(end) : SpotSlotInventory.SLOTS_PER_DAY;
+            if (endSlot > startSlot) {
+                segments.add(new DaySegment(day, startSlot, endSlot));
+            }
+            cursor = nextDay;
+        }
+        return segments;
+    }
+
+    private static int ceilSlot(ZonedDateTime time) {
+        int minutes = time.getHour() * 60 + time.getMinute()
+                + (time.getSecond() > 0 || time.getNano() > 0 ? 1 : 0);
+        return (minutes + SpotSlotInventory.SLOT_MINUTES - 1) / SpotSlotInventory.SLOT_MINUTES;
+    }
+
+    private String slotField(int slot) {
+        return SpotSlotInventory.FIELD_SLOTS + "." + slot;
+    }
+
+    record DaySegment(LocalDate day, int startSlot, int endSlot) {
+    }
+}
@@ -12,12 +12,15 @@ import java.util.List;
 @Service
 public class TransactionService {
 
+    private static final String STATUS_COMPLETED = "completed";
+
     @Autowired
     private TransactionsRepository transactionRepository;
 
     public Transactions recordTransaction(Transactions transaction) {
         transaction.setTimestamp(new Date());
         if (transaction.getStatus() == null) transaction.setStatus("pending");
+        markForProjection(transaction);
         return transactionRepository.save(transaction);
     }
 
@@ -81,6 +84,8 @@ public class TransactionService {
         if (transactionDetails.getFailureReason() != null) existing.setFailureReason(transactionDetails.getFailureReason());
         if (transactionDetails.getMetadata() != null) existing.setMetadata(transactionDetails.getMetadata());
 
+        // A record the projector already applied stays DONE, so replaying the update never re-applies it
+        markForProjection(existing);
         return transactionRepository.save(existing);
     }
 
@@ -89,6 +94,19 @@ public class TransactionService {
     }
 
     public Transactions save(Transactions transaction) {
+        markForProjection(transaction);
         return transactionRepository.save(transaction);
     }
+
+    /**
+     * A completed record nobody has applied yet is saved as PENDING, in the same write as the record,
+     * so WalletProjector picks it up even if this instance dies right after the save
+     */
+    private void markForProjection(Transactions transaction) {
+        if (STATUS_COMPLETED.equalsIgnoreCase(transaction.getStatus())
+                && transaction.getUserId() != null
+                && transaction.getProjection() == null) {
+            transaction.setProjection(Transactions.PROJECTION_PENDING);
+        }
+    }
 }
\ No newline at end of file
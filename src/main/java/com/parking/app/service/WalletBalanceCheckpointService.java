@@ -0,0 +1,199 @@
+package com.parking.app.service;
+
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.model.WalletLedgerBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Periodic balance checkpoints over the wallet ledger
+ *
+ * Every balance change carries the wallet's next ledgerSeq into its wallet_ledger entry, so a
+ * balance can be recomputed as the latest checkpoint plus the deltas of the entries after it, read
+ * with one range query on (userId, maxSeq). The first checkpoint of a wallet is a snapshot of the
+ * wallet document itself (balance and ledgerSeq are read together); later ones roll the previous
+ * checkpoint forward over the ledger.
+ *
+ * The write path only flags a user once their seq reaches the next multiple of every-entries; the
+ * scheduled checkpointer picks flagged users up, which keeps the number of entries after the
+ * latest checkpoint around every-entries. A missing seq (an entry whose ledger append failed) is
+ * counted in wallet.ledger.gaps and the checkpoint is re-seeded from the wallet snapshot, whose
+ * balance already includes the lost delta, so later roll-forwards start past the gap. Until then
+ * ledgerBalance reports itself incomplete rather than summing around the hole.
+ */
+@Service
+public class WalletBalanceCheckpointService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletBalanceCheckpointService.class);
+    private static final long FIRST_SEQ = 1;
+
+    private final MongoOperations mongoOperations;
+    private final int everyEntries;
+
+    private final Set<String> pendingUsers = ConcurrentHashMap.newKeySet();
+    private final Counter gaps;
+
+    public WalletBalanceCheckpointService(MongoOperations mongoOperations,
+                                          MeterRegistry meterRegistry,
+                                          @Value("${app.wallet.checkpoint.every-entries:50}") int everyEntries) {
+        this.mongoOperations = mongoOperations;
+        this.everyEntries = Math.max(1, everyEntries);
+        Gauge.builder("wallet.checkpoint.pending.users", pendingUsers, Set::size)
+                .description("Wallets flagged for a balance checkpoint")
+                .register(meterRegistry);
+        this.gaps = Counter.builder("wallet.ledger.gaps")
+                .description("Checkpoint roll-forwards stopped by a missing ledger entry")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Balance recomputed from the ledger
+     * @param balance paise, as of ledger entry seq
+     * @param complete false if an entry up to the wallet's ledgerSeq is missing (a failed or still
+     *                 landing append); balance then stops at the entry before it
+     */
+    public record LedgerBalance(long balance, long seq, boolean complete) {
+    }
+
+    /**
+     * Called for every ledger entry appended; flags the user when a checkpoint is due
+     */
+    public void onAppended(String userId, long seq) {
+        if (seq == FIRST_SEQ || (seq > FIRST_SEQ && seq % everyEntries == 0)) {
+            pendingUsers.add(userId);
+        }
+    }
+
+    /**
+     * Called when a ledger append failed after its seq was taken; the gap is re-seeded past on the
+     * next checkpoint run rather than at the user's next every-entries multiple
+     */
+    public void onAppendFailed(String userId) {
+        pendingUsers.add(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.checkpoint.interval-ms:10000}")
+    public void checkpointPending() {
+        for (String userId : List.copyOf(pendingUsers)) {
+            pendingUsers.remove(userId);
+            try {
+                checkpoint(userId);
+            } catch (Exception e) {
+                logger.error("❌ Failed to checkpoint wallet balance for userId={}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint as far forward as the ledger is contiguous, or re-seeded from the wallet
+     * snapshot if a seq is missing
+     * @return the latest checkpoint afterwards, or null if the user has no wallet
+     */
+    public WalletBalanceCheckpoint checkpoint(String userId) {
+        WalletBalanceCheckpoint latest = latest(userId);
+        if (latest == null) {
+            return seedFromWallet(userId);
+        }
+
+        long seq = latest.getSeq();
+        long balance = latest.getBalance();
+        for (Wallet.TransactionRef entry : entriesAfter(userId, seq)) {
+            if (entry.getSeq() != seq + 1) {
+                gaps.increment();
+                logger.warn("⚠️ Wallet ledger for userId={} is missing seq {} - re-seeding the checkpoint from the wallet",
+                        userId, seq + 1);
+                return seedFromWallet(userId);
+            }
+            seq = entry.getSeq();
+            balance += entry.getDelta();
+        }
+        if (seq == latest.getSeq()) {
+            return latest;
+        }
+        WalletBalanceCheckpoint checkpoint = new WalletBalanceCheckpoint(userId, seq, balance);
+        mongoOperations.save(checkpoint);
+        return checkpoint;
+    }
+
+    /**
+     * Balance recomputed from the latest checkpoint and the contiguous ledger entries after it,
+     * checked against the wallet's ledgerSeq (read first, so every seq up to it has been taken)
+     * @return null if the wallet has no checkpoint yet
+     */
+    public LedgerBalance ledgerBalance(String userId) {
+        Query walletQuery = new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId));
+        walletQuery.fields().include(Wallet.FIELD_LEDGER_SEQ);
+        Wallet wallet = mongoOperations.findOne(walletQuery, Wallet.class);
+        WalletBalanceCheckpoint latest = latest(userId);
+        if (wallet == null || latest == null) {
+            return null;
+        }
+        long seq = latest.getSeq();
+        long balance = latest.getBalance();
+        for (Wallet.TransactionRef entry : entriesAfter(userId, seq)) {
+            if (entry.getSeq() != seq + 1) {
+                break;
+            }
+            seq = entry.getSeq();
+            balance += entry.getDelta();
+        }
+        return new LedgerBalance(balance, seq, seq >= wallet.getLedgerSeq());
+    }
+
+    private WalletBalanceCheckpoint latest(String userId) {
+        Query query = new Query(Criteria.where(WalletBalanceCheckpoint.FIELD_USER_ID).is(userId))
+                .with(Sort.by(Sort.Direction.DESC, WalletBalanceCheckpoint.FIELD_SEQ))
+                .limit(1);
+        return mongoOperations.findOne(query, WalletBalanceCheckpoint.class);
+    }
+
+    private WalletBalanceCheckpoint seedFromWallet(String userId) {
+        Query query = new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId));
+        query.fields().include(Wallet.FIELD_BALANCE, Wallet.FIELD_LEDGER_SEQ);
+        Wallet wallet = mongoOperations.findOne(query, Wallet.class);
+        if (wallet == null) {
+            return null;
+        }
+        WalletBalanceCheckpoint checkpoint =
+                new WalletBalanceCheckpoint(userId, wallet.getLedgerSeq(), wallet.getBalance());
+        mongoOperations.save(checkpoint);
+        logger.debug("Seeded balance checkpoint for userId={} at seq {}", userId, wallet.getLedgerSeq());
+        return checkpoint;
+    }
+
+    /**
+     * Ledger entries with seq > afterSeq in seq order (one per seq), read from the buckets whose
+     * maxSeq is past it
+     */
+    private List<Wallet.TransactionRef> entriesAfter(String userId, long afterSeq) {
+        Query query = new Query(Criteria.where(WalletLedgerBucket.FIELD_USER_ID).is(userId)
+                .and(WalletLedgerBucket.FIELD_MAX_SEQ).gt(afterSeq));
+        query.fields().include(WalletLedgerBucket.FIELD_ENTRIES);
+
+        TreeMap<Long, Wallet.TransactionRef> entries = new TreeMap<>();
+        for (WalletLedgerBucket bucket : mongoOperations.find(query, WalletLedgerBucket.class)) {
+            for (Wallet.TransactionRef entry : bucket.getEntries()) {
+                if (entry.getSeq() > afterSeq) {
+                    entries.putIfAbsent(entry.getSeq(), entry);
+                }
+            }
+        }
+        return List.copyOf(entries.values());
+    }
+}
@@ -0,0 +1,161 @@
+package com.parking.app.service;
+
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.util.Money;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One-off merge of duplicate wallets, run before the unique index on wallets.userId is built
+ *
+ * Users with more than one wallet are found with one aggregation streamed in batch-size cursor
+ * batches, so memory stays flat however many wallets there are. Each duplicate is folded into the
+ * user's most recently updated wallet without a transaction and stays correct under concurrent
+ * balance changes and reruns:
+ * 1. the primary records how much of the duplicate's balance it has absorbed (mergedBalances.<id>)
+ *    and $incs by the difference, as a compare-and-set on that record
+ * 2. the duplicate is deleted only if its balance and ledgerSeq are still what was merged;
+ *    otherwise step 1 repeats with the new balance
+ * A crash between the steps leaves the record behind, so the rerun only adds what is missing.
+ * The duplicate's recent refs are pushed onto the primary with the first merge (its full history
+ * is already in wallet_ledger), and the user's balance checkpoints are rebuilt afterwards since
+ * the wallets' ledger seqs overlapped.
+ */
+@Component
+public class WalletConsolidation {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletConsolidation.class);
+    private static final String FIELD_MERGED_BALANCES = "mergedBalances";
+    private static final String FIELD_COUNT = "count";
+    private static final int PROGRESS_LOG_INTERVAL = 1000;
+
+    private final MongoOperations mongoOperations;
+    private final WalletBalanceCheckpointService checkpointService;
+    private final int batchSize;
+
+    public WalletConsolidation(MongoOperations mongoOperations,
+                               WalletBalanceCheckpointService checkpointService,
+                               @Value("${app.wallet.consolidation.batch-size:500}") int batchSize) {
+        this.mongoOperations = mongoOperations;
+        this.checkpointService = checkpointService;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @return number of users whose wallets were merged
+     */
+    public int consolidate() {
+        long startTime = System.currentTimeMillis();
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group(Wallet.FIELD_USER_ID).count().as(FIELD_COUNT),
+                Aggregation.match(Criteria.where(FIELD_COUNT).gt(1))
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(batchSize).build());
+
+        int users = 0;
+        try (Stream<Document> groups = mongoOperations.aggregateStream(aggregation, Wallet.class, Document.class)) {
+            for (Document group : (Iterable<Document>) groups::iterator) {
+                String userId = group.getString(Wallet.FIELD_ID);
+                if (userId == null) {
+                    continue;
+                }
+                consolidateUser(userId);
+                if (++users % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("Wallet consolidation: {} users merged so far", users);
+                }
+            }
+        }
+        logger.info("✅ Wallet consolidation finished: {} users with duplicate wallets merged in {}ms",
+                users, System.currentTimeMillis() - startTime);
+        return users;
+    }
+
+    private void consolidateUser(String userId) {
+        Query byUser = new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId))
+                .with(Sort.by(Sort.Direction.DESC, Wallet.FIELD_LAST_UPDATED));
+        byUser.fields().include(Wallet.FIELD_ID);
+        List<Document> wallets = mongoOperations.find(byUser, Document.class, collection());
+        if (wallets.size() < 2) {
+            return;
+        }
+
+        Object primaryId = wallets.get(0).get(Wallet.FIELD_ID);
+        for (Document duplicate : wallets.subList(1, wallets.size())) {
+            merge(primaryId, duplicate.get(Wallet.FIELD_ID));
+        }
+
+        mongoOperations.remove(new Query(Criteria.where(WalletBalanceCheckpoint.FIELD_USER_ID).is(userId)),
+                WalletBalanceCheckpoint.class);
+        checkpointService.checkpoint(userId);
+        logger.info("Merged {} duplicate wallets into {} for userId={}", wallets.size() - 1, primaryId, userId);
+    }
+
+    private void merge(Object primaryId, Object duplicateId) {
+        String mergedField = FIELD_MERGED_BALANCES + "." + duplicateId;
+        while (true) {
+            Document duplicate = mongoOperations.findOne(byId(duplicateId), Document.class, collection());
+            if (duplicate == null) {
+                return;
+            }
+            Object balance = duplicate.get(Wallet.FIELD_BALANCE);
+            Object ledgerSeq = duplicate.get(Wallet.FIELD_LEDGER_SEQ);
+
+            Query primaryQuery = byId(primaryId);
+            primaryQuery.fields().include(mergedField);
+            Document primary = mongoOperations.findOne(primaryQuery, Document.class, collection());
+            if (primary == null) {
+                throw new IllegalStateException("Primary wallet " + primaryId + " disappeared during consolidation");
+            }
+            Document merged = primary.get(FIELD_MERGED_BALANCES, Document.class);
+            Object absorbed = merged != null ? merged.get(String.valueOf(duplicateId)) : null;
+
+            long difference = Money.fromStored(balance) - (absorbed != null ? Money.fromStored(absorbed) : 0);
+            if (absorbed == null || difference != 0) {
+                Update update = new Update()
+                        .inc(Wallet.FIELD_BALANCE, difference)
+                        .set(mergedField, Money.fromStored(balance))
+                        .max(Wallet.FIELD_LEDGER_SEQ, ledgerSeq instanceof Number seq ? seq.longValue() : 0L)
+                        .set(Wallet.FIELD_LAST_UPDATED, new Date());
+                List<?> refs = duplicate.getList(Wallet.FIELD_TRANSACTIONS, Object.class);
+                if (absorbed == null && refs != null && !refs.isEmpty()) {
+                    update.push(Wallet.FIELD_TRANSACTIONS).slice(-WalletService.MAX_TRANSACTION_REFS).each(refs.toArray());
+                }
+                Query compareAndSet = new Query(Criteria.where(Wallet.FIELD_ID).is(primaryId)
+                        .and(mergedField).is(absorbed));
+                if (mongoOperations.updateFirst(compareAndSet, update, collection()).getModifiedCount() == 0) {
+                    continue;
+                }
+            }
+
+            // Unchanged since it was merged: safe to drop. Otherwise merge the new balance first
+            Query unchanged = new Query(Criteria.where(Wallet.FIELD_ID).is(duplicateId)
+                    .and(Wallet.FIELD_BALANCE).is(balance)
+                    .and(Wallet.FIELD_LEDGER_SEQ).is(ledgerSeq));
+            if (mongoOperations.remove(unchanged, collection()).getDeletedCount() == 1) {
+                return;
+            }
+        }
+    }
+
+    private Query byId(Object id) {
+        return new Query(Criteria.where(Wallet.FIELD_ID).is(id));
+    }
+
+    private String collection() {
+        return mongoOperations.getCollectionName(Wallet.class);
+    }
+}
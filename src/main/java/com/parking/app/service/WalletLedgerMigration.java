@@ -0,0 +1,156 @@
+package com.parking.app.service;
+
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletLedgerBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * One-off move of the embedded wallet transaction arrays into wallet_ledger
+ *
+ * Streams wallets not yet migrated (no ledgerMigratedAt), one at a time, so memory stays flat
+ * however many wallets there are. Refs written before the ledger existed have no timestamp; it is
+ * taken from the matching Transactions record, or the wallet's creation time if there is none.
+ * Buckets get deterministic ids, so rerunning after a crash rewrites them rather than duplicating.
+ * Afterwards the wallet's array is trimmed to the recent window.
+ *
+ * Enable with: app.wallet.ledger.migration.enabled=true
+ */
+@Component
+@ConditionalOnProperty(name = "app.wallet.ledger.migration.enabled", havingValue = "true")
+public class WalletLedgerMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLedgerMigration.class);
+    private static final int PROGRESS_LOG_INTERVAL = 1000;
+
+    private final MongoOperations mongoOperations;
+    private final WalletLedgerService walletLedgerService;
+
+    public WalletLedgerMigration(MongoOperations mongoOperations, WalletLedgerService walletLedgerService) {
+        this.mongoOperations = mongoOperations;
+        this.walletLedgerService = walletLedgerService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        long startTime = System.currentTimeMillis();
+        Query query = new Query(Criteria.where(Wallet.FIELD_LEDGER_MIGRATED_AT).exists(false));
+        query.fields().include(Wallet.FIELD_USER_ID, Wallet.FIELD_TRANSACTIONS, Wallet.FIELD_CREATED_AT);
+
+        int migratedWallets = 0;
+        int migratedEntries = 0;
+        try (Stream<Wallet> wallets = mongoOperations.stream(query, Wallet.class)) {
+            for (Wallet wallet : (Iterable<Wallet>) wallets::iterator) {
+                migratedEntries += migrateWallet(wallet);
+                if (++migratedWallets % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("Wallet ledger migration: {} wallets, {} entries so far",
+                            migratedWallets, migratedEntries);
+                }
+            }
+            logger.info("✅ Wallet ledger migration finished: {} wallets, {} entries in {}ms",
+                    migratedWallets, migratedEntries, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            logger.error("❌ Wallet ledger migration stopped after {} wallets - rerun to resume: {}",
+                    migratedWallets, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return number of entries copied to the ledger
+     */
+    private int migrateWallet(Wallet wallet) {
+        List<Wallet.TransactionRef> legacy = new ArrayList<>();
+        if (wallet.getTransactions() != null) {
+            for (Wallet.TransactionRef ref : wallet.getTransactions()) {
+                // Refs with a timestamp were written after the ledger existed and are already in it
+                if (ref.getTimestamp() == null) {
+                    legacy.add(ref);
+                }
+            }
+        }
+
+        if (!legacy.isEmpty()) {
+            stampFromTransactions(wallet, legacy);
+            walletLedgerService.insertBuckets(buildBuckets(wallet, legacy));
+        }
+
+        Query byId = new Query(Criteria.where(Wallet.FIELD_ID).is(wallet.getId()));
+        Update update = new Update().set(Wallet.FIELD_LEDGER_MIGRATED_AT, new Date());
+        update.push(Wallet.FIELD_TRANSACTIONS).slice(-WalletService.MAX_TRANSACTION_REFS).each();
+        mongoOperations.updateFirst(byId, update, Wallet.class);
+        return legacy.size();
+    }
+
+    private void stampFromTransactions(Wallet wallet, List<Wallet.TransactionRef> legacy) {
+        List<String> referenceIds = legacy.stream()
+                .map(Wallet.TransactionRef::getReferenceId)
+                .filter(Objects::nonNull)
+                .toList();
+        Map<String, Date> timestamps = new HashMap<>();
+        if (!referenceIds.isEmpty()) {
+            Query query = new Query(Criteria.where("referenceId").in(referenceIds));
+            query.fields().include("referenceId", "timestamp");
+            for (Transactions tx : mongoOperations.find(query, Transactions.class)) {
+                timestamps.put(tx.getReferenceId(), tx.getTimestamp());
+            }
+        }
+
+        // Keep the array order for refs without a record: creation time plus their position
+        long fallback = wallet.getCreatedAt() != null
+                ? wallet.getCreatedAt().getTime()
+                : System.currentTimeMillis();
+        for (int i = 0; i < legacy.size(); i++) {
+            Wallet.TransactionRef ref = legacy.get(i);
+            Date timestamp = ref.getReferenceId() != null ? timestamps.get(ref.getReferenceId()) : null;
+            ref.setTimestamp(timestamp != null ? timestamp : new Date(fallback + i));
+        }
+    }
+
+    private List<WalletLedgerBucket> buildBuckets(Wallet wallet, List<Wallet.TransactionRef> legacy) {
+        Map<String, List<Wallet.TransactionRef>> byPeriod = new TreeMap<>();
+        for (Wallet.TransactionRef ref : legacy) {
+            byPeriod.computeIfAbsent(walletLedgerService.periodOf(ref.getTimestamp()), p -> new ArrayList<>())
+                    .add(ref);
+        }
+
+        int bucketSize = walletLedgerService.getBucketSize();
+        List<WalletLedgerBucket> buckets = new ArrayList<>();
+        byPeriod.forEach((period, refs) -> {
+            for (int from = 0; from < refs.size(); from += bucketSize) {
+                List<Wallet.TransactionRef> entries =
+                        new ArrayList<>(refs.subList(from, Math.min(refs.size(), from + bucketSize)));
+                WalletLedgerBucket bucket = new WalletLedgerBucket();
+                bucket.setId("legacy:" + wallet.getId() + ":" + period + ":" + (from / bucketSize));
+                bucket.setUserId(wallet.getUserId());
+                bucket.setPeriod(period);
+                bucket.setEntries(entries);
+                // Full so that live appends open their own bucket
+                bucket.setCount(bucketSize);
+                bucket.setFirstAt(entries.stream().map(Wallet.TransactionRef::getTimestamp)
+                        .min(Date::compareTo).orElseThrow());
+                bucket.setLastAt(entries.stream().map(Wallet.TransactionRef::getTimestamp)
+                        .max(Date::compareTo).orElseThrow());
+                buckets.add(bucket);
+            }
+        });
+        return buckets;
+    }
+}
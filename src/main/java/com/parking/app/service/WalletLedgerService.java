@@ -0,0 +1,246 @@
+package com.parking.app.service;
+
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletLedgerBucket;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Append-only wallet history in wallet_ledger, bucketed per user per month
+ *
+ * An append is one upsert into the user's current-month bucket that still has room
+ * (count < bucket-size); a full or missing bucket makes the upsert insert a new one. Two appends
+ * racing for a fresh bucket may each insert one, which only means a slightly smaller bucket.
+ * History is read newest first with an opaque cursor of the last entry returned.
+ */
+@Service
+public class WalletLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletLedgerService.class);
+    private static final DateTimeFormatter PERIOD_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM").withZone(ZoneOffset.UTC);
+    private static final String CURSOR_SEPARATOR = ":";
+    private static final int MAX_PAGE_SIZE = 200;
+
+    // Newest first; ties on timestamp broken by referenceId so the cursor position is exact
+    private static final Comparator<Wallet.TransactionRef> NEWEST_FIRST = Comparator
+            .comparing((Wallet.TransactionRef ref) -> ref.getTimestamp().getTime())
+            .thenComparing(ref -> String.valueOf(ref.getReferenceId()))
+            .reversed();
+
+    private final MongoOperations mongoOperations;
+    private final WalletBalanceCheckpointService checkpointService;
+    private final int bucketSize;
+
+    public WalletLedgerService(MongoOperations mongoOperations,
+                               WalletBalanceCheckpointService checkpointService,
+                               @Value("${app.wallet.ledger.bucket-size:200}") int bucketSize) {
+        this.mongoOperations = mongoOperations;
+        this.checkpointService = checkpointService;
+        this.bucketSize = Math.max(1, bucketSize);
+    }
+
+    /**
+     * One page of history, newest first
+     * @param nextCursor pass back to get the following page; null on the last page
+     */
+    public record LedgerPage(List<Wallet.TransactionRef> entries, String nextCursor) {
+    }
+
+    public record LedgerEntry(String userId, Wallet.TransactionRef ref) {
+    }
+
+    // ===== Write Path =====
+
+    /**
+     * Appends the entry (with its ledger seq set) to the user's open bucket for the entry's month
+     * Never throws - the balance change it describes has already been applied. A failed append
+     * leaves its seq missing, so the user is flagged for a checkpoint re-seed past the gap
+     */
+    public void append(String userId, Wallet.TransactionRef ref) {
+        try {
+            stampIfMissing(ref);
+            mongoOperations.upsert(openBucketQuery(userId, ref), appendUpdate(ref), WalletLedgerBucket.class);
+            checkpointService.onAppended(userId, ref.getSeq());
+        } catch (Exception e) {
+            logger.error("❌ Failed to append ledger entry {} for userId={}: {}",
+                    ref.getReferenceId(), userId, e.getMessage());
+            checkpointService.onAppendFailed(userId);
+        }
+    }
+
+    /**
+     * Appends entries for several users with one unordered bulk write
+     */
+    public void appendAll(List<LedgerEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, WalletLedgerBucket.class);
+            for (LedgerEntry entry : entries) {
+                stampIfMissing(entry.ref());
+                bulk.upsert(openBucketQuery(entry.userId(), entry.ref()), appendUpdate(entry.ref()));
+            }
+            bulk.execute();
+            entries.forEach(entry -> checkpointService.onAppended(entry.userId(), entry.ref().getSeq()));
+        } catch (Exception e) {
+            logger.error("❌ Failed to append {} ledger entries: {}", entries.size(), e.getMessage());
+            entries.forEach(entry -> checkpointService.onAppendFailed(entry.userId()));
+        }
+    }
+
+    /**
+     * Full, already-built buckets (used by the migration); ids must be deterministic for reruns
+     */
+    public void insertBuckets(List<WalletLedgerBucket> buckets) {
+        BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, WalletLedgerBucket.class);
+        for (WalletLedgerBucket bucket : buckets) {
+            // Upsert by id rather than insert, so a rerun after a crash overwrites instead of failing
+            bulk.replaceOne(new Query(Criteria.where(WalletLedgerBucket.FIELD_ID).is(bucket.getId())), bucket,
+                    FindAndReplaceOptions.options().upsert());
+        }
+        bulk.execute();
+    }
+
+    /**
+     * referenceIds among the given ones that have an entry in the users' history, read with one query
+     * on the (userId, entries.referenceId) index; unlike the wallet's recent window this never forgets
+     */
+    public Set<String> findRecorded(Collection<String> userIds, Collection<String> referenceIds) {
+        if (userIds.isEmpty() || referenceIds.isEmpty()) {
+            return Set.of();
+        }
+        Query query = new Query(Criteria.where(WalletLedgerBucket.FIELD_USER_ID).in(userIds)
+                .and(WalletLedgerBucket.FIELD_ENTRY_REFERENCE_ID).in(referenceIds));
+        query.fields().include(WalletLedgerBucket.FIELD_ENTRY_REFERENCE_ID);
+
+        Set<String> wanted = new HashSet<>(referenceIds);
+        Set<String> recorded = new HashSet<>();
+        for (WalletLedgerBucket bucket : mongoOperations.find(query, WalletLedgerBucket.class)) {
+            for (Wallet.TransactionRef entry : bucket.getEntries()) {
+                if (wanted.contains(entry.getReferenceId())) {
+                    recorded.add(entry.getReferenceId());
+                }
+            }
+        }
+        return recorded;
+    }
+
+    public String periodOf(Date timestamp) {
+        return PERIOD_FORMAT.format(timestamp.toInstant());
+    }
+
+    public int getBucketSize() {
+        return bucketSize;
+    }
+
+    private Query openBucketQuery(String userId, Wallet.TransactionRef ref) {
+        return new Query(Criteria.where(WalletLedgerBucket.FIELD_USER_ID).is(userId)
+                .and(WalletLedgerBucket.FIELD_PERIOD).is(periodOf(ref.getTimestamp()))
+                .and(WalletLedgerBucket.FIELD_COUNT).lt(bucketSize));
+    }
+
+    private Update appendUpdate(Wallet.TransactionRef ref) {
+        return new Update()
+                .push(WalletLedgerBucket.FIELD_ENTRIES, ref)
+                .inc(WalletLedgerBucket.FIELD_COUNT, 1)
+                .min(WalletLedgerBucket.FIELD_FIRST_AT, ref.getTimestamp())
+                .max(WalletLedgerBucket.FIELD_LAST_AT, ref.getTimestamp())
+                .max(WalletLedgerBucket.FIELD_MAX_SEQ, ref.getSeq());
+    }
+
+    private void stampIfMissing(Wallet.TransactionRef ref) {
+        if (ref.getTimestamp() == null) {
+            ref.setTimestamp(new Date());
+        }
+    }
+
+    // ===== Read Path =====
+
+    /**
+     * Returns up to `limit` entries older than the cursor (or the newest ones without a cursor)
+     *
+     * Buckets are scanned newest-last-entry first and the scan stops once more than `limit` entries
+     * are collected and the next bucket ends before the oldest one needed, so a page touches a
+     * couple of buckets rather than the whole history.
+     */
+    public LedgerPage page(String userId, String cursor, int limit) {
+        int pageSize = Math.min(Math.max(1, limit), MAX_PAGE_SIZE);
+        Wallet.TransactionRef position = parseCursor(cursor);
+
+        Criteria criteria = Criteria.where(WalletLedgerBucket.FIELD_USER_ID).is(userId);
+        if (position != null) {
+            criteria = criteria.and(WalletLedgerBucket.FIELD_FIRST_AT).lte(position.getTimestamp());
+        }
+        Query query = new Query(criteria).with(Sort.by(Sort.Direction.DESC, WalletLedgerBucket.FIELD_LAST_AT));
+
+        List<Wallet.TransactionRef> collected = new ArrayList<>();
+        try (Stream<WalletLedgerBucket> buckets = mongoOperations.stream(query, WalletLedgerBucket.class)) {
+            Iterator<WalletLedgerBucket> iterator = buckets.iterator();
+            while (iterator.hasNext()) {
+                WalletLedgerBucket bucket = iterator.next();
+                // One entry beyond the page tells whether another page follows
+                if (collected.size() > pageSize
+                        && bucket.getLastAt().before(collected.get(pageSize).getTimestamp())) {
+                    break;
+                }
+                for (Wallet.TransactionRef ref : bucket.getEntries()) {
+                    if (position == null || NEWEST_FIRST.compare(ref, position) > 0) {
+                        collected.add(ref);
+                    }
+                }
+                collected.sort(NEWEST_FIRST);
+            }
+        }
+
+        if (collected.size() <= pageSize) {
+            return new LedgerPage(collected, null);
+        }
+        List<Wallet.TransactionRef> entries = new ArrayList<>(collected.subList(0, pageSize));
+        return new LedgerPage(entries, toCursor(entries.get(pageSize - 1)));
+    }
+
+    private String toCursor(Wallet.TransactionRef ref) {
+        return ref.getTimestamp().getTime() + CURSOR_SEPARATOR + ref.getReferenceId();
+    }
+
+    private Wallet.TransactionRef parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid ledger cursor");
+        }
+        Wallet.TransactionRef position = new Wallet.TransactionRef();
+        try {
+            position.setTimestamp(new Date(Long.parseLong(cursor.substring(0, separator))));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid ledger cursor");
+        }
+        position.setReferenceId(cursor.substring(separator + 1));
+        return position;
+    }
+}
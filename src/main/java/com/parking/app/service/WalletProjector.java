@@ -0,0 +1,301 @@
+package com.parking.app.service;
+
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Asynchronous projection of completed transactions onto wallets
+ *
+ * The work queue is the transactions collection itself: a completed record nobody has applied yet
+ * is saved with projection=PENDING in the same write as the record (see TransactionService), so a
+ * crash after the save loses nothing. Every flush-interval-ms, or as soon as batch-size records have
+ * been saved (TransactionChangeListener), one drain per instance:
+ * 1. claims up to batch-size PENDING records with one updateMulti stamping its own token; a claim
+ *    older than claim-timeout-ms belongs to a drain that died and can be taken over
+ * 2. groups them per user and drops the records already applied. Each record is applied under the
+ *    durable key "tx:" + its id, looked up both on the wallet's recent refs and in wallet_ledger, so
+ *    a record whose drain died after the $inc, or that a stale update saved as PENDING again, is
+ *    recognised however long ago it was applied
+ * 3. turns the rest of each user's records into one findAndModify ($inc balance, $push refs) via
+ *    WalletService.applyBalanceChanges, matched only while none of the keys is on the wallet; if it
+ *    loses a race it falls back to one conditional update per record
+ * 4. marks the applied records DONE, conditional on still holding the claim
+ * A user whose update fails has its records' claim released, so the next drain retries them.
+ */
+@Service
+public class WalletProjector {
+
+    private static final Logger logger = LoggerFactory.getLogger(WalletProjector.class);
+    private static final String REFERENCE_PREFIX = "tx:";
+
+    private final WalletService walletService;
+    private final WalletLedgerService walletLedgerService;
+    private final MongoOperations mongoOperations;
+    private final Executor bookingEventExecutor;
+    private final int batchSize;
+    private final long claimTimeoutMs;
+
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicInteger savedSinceDrain = new AtomicInteger();
+    private final Counter batches;
+    private final Counter duplicates;
+    private final Counter failures;
+
+    public WalletProjector(WalletService walletService,
+                           WalletLedgerService walletLedgerService,
+                           MongoOperations mongoOperations,
+                           @Qualifier("bookingEventExecutor") Executor bookingEventExecutor,
+                           MeterRegistry meterRegistry,
+                           @Value("${app.wallet.projector.batch-size:200}") int batchSize,
+                           @Value("${app.wallet.projector.claim-timeout-ms:60000}") long claimTimeoutMs) {
+        this.walletService = walletService;
+        this.walletLedgerService = walletLedgerService;
+        this.mongoOperations = mongoOperations;
+        this.bookingEventExecutor = bookingEventExecutor;
+        this.batchSize = Math.max(1, batchSize);
+        this.claimTimeoutMs = Math.max(1, claimTimeoutMs);
+        this.batches = Counter.builder("wallet.projector.batches")
+                .description("Per-user wallet updates written by the projector")
+                .register(meterRegistry);
+        this.duplicates = Counter.builder("wallet.projector.duplicates")
+                .description("Transactions skipped because they were already applied to the wallet")
+                .register(meterRegistry);
+        this.failures = Counter.builder("wallet.projector.failures")
+                .description("Per-user wallet updates that failed and were left for the next drain")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Called after a transaction is saved; the record itself is the queue entry, this only starts a
+     * drain early once batch-size pending records have been saved since the last one
+     */
+    public void submit(Transactions tx) {
+        if (!Transactions.PROJECTION_PENDING.equals(tx.getProjection())) {
+            return;
+        }
+        if (savedSinceDrain.incrementAndGet() >= batchSize && drainScheduled.compareAndSet(false, true)) {
+            bookingEventExecutor.execute(() -> {
+                drainScheduled.set(false);
+                drain();
+            });
+        }
+    }
+
+    /**
+     * Inserts a record already claimed by the caller and applies it at once, under the same key a
+     * drain uses. If this instance dies in between, a drain takes the claim over after
+     * claim-timeout-ms and finishes it, so the change is applied exactly once either way.
+     * @throws org.springframework.dao.DuplicateKeyException if a unique index rejects the record
+     */
+    public Transactions recordAndApply(Transactions tx) {
+        String token = UUID.randomUUID().toString();
+        tx.setProjection(Transactions.PROJECTION_PENDING);
+        tx.setProjectionClaim(token);
+        tx.setProjectionClaimedAt(new Date());
+        Transactions saved = mongoOperations.insert(tx);
+        project(token, List.of(saved));
+        return saved;
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.projector.flush-interval-ms:200}")
+    public void drain() {
+        // One drain per instance at a time; a skipped drain is picked up next tick
+        if (!drainLock.tryLock()) {
+            return;
+        }
+        try {
+            savedSinceDrain.set(0);
+            List<Transactions> batch;
+            boolean clean;
+            do {
+                String token = UUID.randomUUID().toString();
+                batch = claim(token);
+                clean = project(token, batch);
+            } while (batch.size() == batchSize && clean);
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Claims up to batch-size PENDING records, oldest first, and reads back the ones this drain won
+     */
+    private List<Transactions> claim(String token) {
+        Date now = new Date();
+        Query candidates = new Query(claimable(now))
+                .with(Sort.by(Sort.Direction.ASC, Transactions.FIELD_TIMESTAMP))
+                .limit(batchSize);
+        candidates.fields().include(Transactions.FIELD_ID);
+        List<String> ids = mongoOperations.find(candidates, Transactions.class).stream()
+                .map(Transactions::getId)
+                .toList();
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        // Re-checked per record, so a record another instance claimed in between is left to it
+        Query claimQuery = new Query(new Criteria().andOperator(
+                Criteria.where(Transactions.FIELD_ID).in(ids), claimable(now)));
+        mongoOperations.updateMulti(claimQuery, new Update()
+                .set(Transactions.FIELD_PROJECTION_CLAIM, token)
+                .set(Transactions.FIELD_PROJECTION_CLAIMED_AT, now), Transactions.class);
+
+        return mongoOperations.find(new Query(Criteria.where(Transactions.FIELD_PROJECTION_CLAIM).is(token))
+                .with(Sort.by(Sort.Direction.ASC, Transactions.FIELD_TIMESTAMP)), Transactions.class);
+    }
+
+    private Criteria claimable(Date now) {
+        return Criteria.where(Transactions.FIELD_PROJECTION).is(Transactions.PROJECTION_PENDING).orOperator(
+                Criteria.where(Transactions.FIELD_PROJECTION_CLAIMED_AT).is(null),
+                Criteria.where(Transactions.FIELD_PROJECTION_CLAIMED_AT).lt(new Date(now.getTime() - claimTimeoutMs)));
+    }
+
+    /**
+     * @return false if some user's records could not be applied and were released for a retry
+     */
+    private boolean project(String token, List<Transactions> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        Map<String, List<Transactions>> byUser = new LinkedHashMap<>();
+        Set<String> referenceIds = new HashSet<>();
+        for (Transactions tx : batch) {
+            byUser.computeIfAbsent(tx.getUserId(), userId -> new ArrayList<>()).add(tx);
+            referenceIds.add(referenceIdOf(tx));
+        }
+
+        Set<String> applied = findOnWallets(byUser.keySet(), referenceIds);
+        applied.addAll(walletLedgerService.findRecorded(byUser.keySet(), referenceIds));
+
+        List<String> done = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        byUser.forEach((userId, records) -> {
+            List<Wallet.TransactionRef> pending = new ArrayList<>();
+            for (Transactions tx : records) {
+                if (applied.contains(referenceIdOf(tx))) {
+                    duplicates.increment();
+                } else {
+                    pending.add(toRef(tx));
+                }
+            }
+            List<String> ids = records.stream().map(Transactions::getId).toList();
+            try {
+                if (!pending.isEmpty()) {
+                    apply(userId, pending);
+                }
+                done.addAll(ids);
+            } catch (Exception e) {
+                failures.increment();
+                failed.addAll(ids);
+                logger.error("❌ Failed to project {} transactions onto wallet of userId={}: {}",
+                        pending.size(), userId, e.getMessage(), e);
+            }
+        });
+
+        if (!done.isEmpty()) {
+            mongoOperations.updateMulti(claimedBy(token, done), new Update()
+                    .set(Transactions.FIELD_PROJECTION, Transactions.PROJECTION_DONE)
+                    .unset(Transactions.FIELD_PROJECTION_CLAIM)
+                    .unset(Transactions.FIELD_PROJECTION_CLAIMED_AT), Transactions.class);
+        }
+        if (!failed.isEmpty()) {
+            mongoOperations.updateMulti(claimedBy(token, failed), new Update()
+                    .unset(Transactions.FIELD_PROJECTION_CLAIM)
+                    .unset(Transactions.FIELD_PROJECTION_CLAIMED_AT), Transactions.class);
+        }
+        return failed.isEmpty();
+    }
+
+    private Query claimedBy(String token, List<String> ids) {
+        return new Query(Criteria.where(Transactions.FIELD_ID).in(ids)
+                .and(Transactions.FIELD_PROJECTION_CLAIM).is(token));
+    }
+
+    private void apply(String userId, List<Wallet.TransactionRef> refs) {
+        if (walletService.applyBalanceChanges(userId, refs) != null) {
+            batches.increment();
+            return;
+        }
+        if (walletService.findByUserId(userId).isEmpty()) {
+            walletService.getOrCreateWallet(userId);
+            if (walletService.applyBalanceChanges(userId, refs) != null) {
+                batches.increment();
+                return;
+            }
+        }
+        // Some ref was applied meanwhile: let each one's own conditional update decide
+        for (Wallet.TransactionRef ref : refs) {
+            walletService.applyBalanceChange(userId, ref.getDelta(), ref, false);
+        }
+    }
+
+    /**
+     * referenceIds of the batch still in their wallet's recent refs, read with one query; covers a
+     * change whose ledger append has not landed
+     */
+    private Set<String> findOnWallets(Set<String> userIds, Set<String> referenceIds) {
+        Query query = new Query(Criteria.where(Wallet.FIELD_USER_ID).in(userIds)
+                .and(Wallet.FIELD_TRANSACTION_REFERENCE_ID).in(referenceIds));
+        query.fields().include(Wallet.FIELD_TRANSACTION_REFERENCE_ID);
+
+        Set<String> applied = new HashSet<>();
+        for (Wallet wallet : mongoOperations.find(query, Wallet.class)) {
+            for (Wallet.TransactionRef ref : wallet.getTransactions()) {
+                if (referenceIds.contains(ref.getReferenceId())) {
+                    applied.add(ref.getReferenceId());
+                }
+            }
+        }
+        return applied;
+    }
+
+    // The record's own id, not its client- or gateway-supplied referenceId, which may be missing or reused
+    private String referenceIdOf(Transactions tx) {
+        return REFERENCE_PREFIX + tx.getId();
+    }
+
+    // Add to balance for topup/refund, subtract for payment; other types are recorded with no change
+    private Wallet.TransactionRef toRef(Transactions tx) {
+        long delta = 0;
+        if ("wallet_topup".equalsIgnoreCase(tx.getType()) || "refund".equalsIgnoreCase(tx.getType())) {
+            delta = tx.getAmount();
+        } else if ("payment".equalsIgnoreCase(tx.getType())) {
+            delta = -tx.getAmount();
+        }
+
+        Wallet.TransactionRef ref = new Wallet.TransactionRef();
+        ref.setReferenceId(referenceIdOf(tx));
+        ref.setType(tx.getType());
+        ref.setAmount(tx.getAmount());
+        ref.setStatus(tx.getStatus());
+        ref.setDelta(delta);
+        return ref;
+    }
+}
@@ -4,8 +4,16 @@ import com.parking.app.exception.NotFoundException;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.Transactions;
 import com.parking.app.model.Wallet;
-import com.parking.app.repository.WalletRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -13,34 +21,233 @@ import java.util.*;
 @Service
 public class WalletService {
 
-    @Autowired
-    private WalletRepository walletRepository;
+    private static final Logger logger = LoggerFactory.getLogger(WalletService.class);
+    public static final int MAX_TRANSACTION_REFS = 100; // newest refs kept on the wallet document
+    private static final int BSON_INT64 = 18; // paise; any other number type is rupees from a pre-paise instance
+    private static final String STATUS_COMPLETED = "completed";
+    private static final String TYPE_WALLET_TOPUP = "wallet_topup";
+    private static final String TYPE_PENALTY_DEDUCTION = "penalty_deduction";
+    private static final String TYPE_REFUND = "refund";
+    private static final String TYPE_PAYMENT = "payment";
 
     @Autowired
     private TransactionService transactionService;
 
-    // Deduct amount from wallet
-    public Wallet deductFromWallet(String userId, double amount) {
-        Optional<Wallet> walletOpt = getWalletByUserId(userId);
-        if (walletOpt.isPresent()) {
-            Wallet wallet = walletOpt.get();
-            if (wallet.getBalance() >= amount) {
-                wallet.setBalance(wallet.getBalance() - amount);
-                wallet.setLastUpdated(new Date());
-                return walletRepository.save(wallet);
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private WalletLedgerService walletLedgerService;
+
+    @Autowired
+    private WalletBalanceCheckpointService walletBalanceCheckpointService;
+
+    @Value("${app.wallet.recent-entries:20}")
+    private int recentEntries;
+
+    // ===== Atomic balance changes =====
+
+    /**
+     * Applies a balance change and records its TransactionRef in one conditional findAndModify:
+     * $inc balance, $push the ref (keeping the newest MAX_TRANSACTION_REFS), set lastUpdated.
+     * Never reads and rewrites the wallet document, so concurrent changes cannot be lost.
+     * The change also takes the wallet's next ledgerSeq, and the ref is then appended to the
+     * wallet_ledger history under that seq.
+     *
+     * @param delta paise; negative for a debit
+     * @param requireFunds for debits: only apply while balance >= the debited amount
+     * @return the updated wallet with its recent refs, or null if there is no wallet, the balance is
+     *         insufficient, or a ref with the same referenceId was already applied
+     * @throws IllegalStateException if the balance is not stored in paise (see MoneyMinorUnitMigration)
+     */
+    public Wallet applyBalanceChange(String userId, long delta, Wallet.TransactionRef ref, boolean requireFunds) {
+        Criteria criteria = Criteria.where(Wallet.FIELD_USER_ID).is(userId);
+        Criteria balance = criteria.and(Wallet.FIELD_BALANCE).type(BSON_INT64);
+        if (requireFunds && delta < 0) {
+            balance.gte(-delta);
+        }
+        if (ref.getReferenceId() != null) {
+            criteria = criteria.and(Wallet.FIELD_TRANSACTION_REFERENCE_ID).ne(ref.getReferenceId());
+        }
+        if (ref.getTimestamp() == null) {
+            ref.setTimestamp(new Date());
+        }
+        ref.setDelta(delta);
+        Update update = new Update()
+                .inc(Wallet.FIELD_BALANCE, delta)
+                .inc(Wallet.FIELD_LEDGER_SEQ, 1)
+                .set(Wallet.FIELD_LAST_UPDATED, new Date());
+        update.push(Wallet.FIELD_TRANSACTIONS).slice(-MAX_TRANSACTION_REFS).each(ref);
+
+        Query query = new Query(criteria);
+        query.fields().slice(Wallet.FIELD_TRANSACTIONS, -recentEntries);
+        Wallet wallet = mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Wallet.class);
+        if (wallet != null) {
+            ref.setSeq(wallet.getLedgerSeq());
+            walletLedgerService.append(userId, ref);
+        } else {
+            requirePaiseBalance(userId);
+        }
+        return wallet;
+    }
+
+    /**
+     * Applies several changes to one wallet in a single findAndModify: $inc balance by the sum of
+     * the refs' deltas, $inc ledgerSeq by their count and $push them all, matched only while none of
+     * their referenceIds is on the wallet yet. The refs take consecutive ledger seqs in list order
+     * and are appended to wallet_ledger.
+     *
+     * @param refs changes with their delta (paise) set; no funds check is made
+     * @return the updated wallet with its recent refs, or null if there is no wallet or one of the
+     *         refs was already applied
+     * @throws IllegalStateException if the balance is not stored in paise (see MoneyMinorUnitMigration)
+     */
+    public Wallet applyBalanceChanges(String userId, List<Wallet.TransactionRef> refs) {
+        long total = 0;
+        List<String> referenceIds = new ArrayList<>();
+        Date now = new Date();
+        for (Wallet.TransactionRef ref : refs) {
+            total += ref.getDelta();
+            if (ref.getReferenceId() != null) {
+                referenceIds.add(ref.getReferenceId());
+            }
+            if (ref.getTimestamp() == null) {
+                ref.setTimestamp(now);
             }
         }
-        return null;
+        Criteria criteria = Criteria.where(Wallet.FIELD_USER_ID).is(userId)
+                .and(Wallet.FIELD_BALANCE).type(BSON_INT64);
+        if (!referenceIds.isEmpty()) {
+            criteria = criteria.and(Wallet.FIELD_TRANSACTION_REFERENCE_ID).nin(referenceIds);
+        }
+        Update update = new Update()
+                .inc(Wallet.FIELD_BALANCE, total)
+                .inc(Wallet.FIELD_LEDGER_SEQ, refs.size())
+                .set(Wallet.FIELD_LAST_UPDATED, now);
+        update.push(Wallet.FIELD_TRANSACTIONS).slice(-MAX_TRANSACTION_REFS).each(refs.toArray());
+
+        Query query = new Query(criteria);
+        query.fields().slice(Wallet.FIELD_TRANSACTIONS, -recentEntries);
+        Wallet wallet = mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Wallet.class);
+        if (wallet != null) {
+            long seq = wallet.getLedgerSeq() - refs.size();
+            List<WalletLedgerService.LedgerEntry> entries = new ArrayList<>();
+            for (Wallet.TransactionRef ref : refs) {
+                ref.setSeq(++seq);
+                entries.add(new WalletLedgerService.LedgerEntry(userId, ref));
+            }
+            walletLedgerService.appendAll(entries);
+        } else {
+            requirePaiseBalance(userId);
+        }
+        return wallet;
+    }
+
+    /**
+     * Tells a change that found no wallet apart from one that found a rupee balance: adding paise
+     * to that would corrupt it, so the change fails until the balance is migrated
+     */
+    private void requirePaiseBalance(String userId) {
+        Query legacy = new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId)
+                .and(Wallet.FIELD_BALANCE).not().type(BSON_INT64));
+        if (mongoOperations.exists(legacy, Wallet.class)) {
+            throw new IllegalStateException("Wallet of userId=" + userId
+                    + " holds a rupee balance written by a pre-paise instance; rerun the money migration");
+        }
+    }
+
+    /**
+     * Debits the wallet if the balance covers it, then records the completed transaction
+     * @return updated wallet, or null if there is no wallet or the balance is insufficient
+     */
+    public Wallet debit(String userId, long amount, String type) {
+        return debit(userId, amount, type, true);
+    }
+
+    /**
+     * @param requireFunds false for charges that must be collected even past a zero balance (penalties)
+     * @return updated wallet, or null if there is no wallet or (requireFunds) the balance is insufficient
+     */
+    public Wallet debit(String userId, long amount, String type, boolean requireFunds) {
+        Wallet.TransactionRef ref = newTransactionRef(type, -amount);
+        Wallet wallet = applyBalanceChange(userId, -amount, ref, requireFunds);
+        if (wallet != null) {
+            recordTransaction(userId, -amount, type, ref);
+        }
+        return wallet;
+    }
+
+    /**
+     * Credits the wallet, then records the completed transaction
+     * @return updated wallet, or null if the user has no wallet
+     */
+    public Wallet credit(String userId, long amount, String type) {
+        return credit(userId, amount, type, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Credit under a caller-chosen referenceId, so retrying the same credit never applies it twice
+     * @return updated wallet, or null if the user has no wallet or the credit was already applied
+     */
+    public Wallet credit(String userId, long amount, String type, String referenceId) {
+        Wallet.TransactionRef ref = newTransactionRef(type, amount);
+        ref.setReferenceId(referenceId);
+        Wallet wallet = applyBalanceChange(userId, amount, ref, false);
+        if (wallet != null) {
+            recordTransaction(userId, amount, type, ref);
+        }
+        return wallet;
+    }
+
+    public static Wallet.TransactionRef newTransactionRef(String type, long amount) {
+        Wallet.TransactionRef ref = new Wallet.TransactionRef();
+        ref.setReferenceId(UUID.randomUUID().toString());
+        ref.setType(type);
+        ref.setAmount(amount);
+        ref.setStatus(STATUS_COMPLETED);
+        return ref;
+    }
+
+    /**
+     * The balance change is already applied, so the record is saved as projected. The record is a
+     * second write (the projector cannot apply conditional debits, and depends on this service), so
+     * a failed insert is logged with everything needed to re-create it; the change itself is also in
+     * wallet_ledger under the same referenceId and seq.
+     */
+    private void recordTransaction(String userId, long amount, String type, Wallet.TransactionRef ref) {
+        Transactions tx = new Transactions();
+        tx.setReferenceId(ref.getReferenceId());
+        tx.setUserId(userId);
+        tx.setAmount(amount);
+        tx.setType(type);
+        tx.setStatus(STATUS_COMPLETED);
+        tx.setProjection(Transactions.PROJECTION_DONE);
+        tx.setTimestamp(new Date());
+        try {
+            transactionService.recordTransaction(tx);
+        } catch (Exception e) {
+            logger.error("❌ Wallet change applied without its transaction record - re-create it: userId={}, "
+                            + "amount={}, type={}, referenceId={}, seq={}, timestamp={}: {}",
+                    userId, amount, type, ref.getReferenceId(), ref.getSeq(), ref.getTimestamp().toInstant(),
+                    e.getMessage(), e);
+        }
+    }
+
+    // Deduct amount from wallet; null if there is no wallet or the balance is insufficient
+    public Wallet deductFromWallet(String userId, long amount) {
+        return debit(userId, amount, TYPE_PAYMENT);
     }
 
     // Record a wallet transaction
-    public Transactions recordWalletTransaction(String userId, double amount, String type) {
+    public Transactions recordWalletTransaction(String userId, long amount, String type) {
         Transactions tx = new Transactions();
         tx.setReferenceId(UUID.randomUUID().toString());
         tx.setUserId(userId);
         tx.setAmount(amount);
         tx.setType(type);
-        tx.setStatus("completed");
+        tx.setStatus(STATUS_COMPLETED);
         tx.setTimestamp(new Date());
         return transactionService.recordTransaction(tx);
     }
@@ -57,7 +264,31 @@ public class WalletService {
         wallet.setBalance(0);
         wallet.setLastUpdated(new Date());
         wallet.setTransactions(new ArrayList<>());
-        return walletRepository.save(wallet);
+        try {
+            return mongoOperations.insert(wallet);
+        } catch (DuplicateKeyException e) {
+            // Created concurrently; the unique index on userId keeps it to one wallet
+            return resolveWallet(userId);
+        }
+    }
+
+    /**
+     * Wallet with only the newest recent-entries refs; older history is paged from wallet_ledger
+     */
+    public Wallet getWalletSummary(String userId) {
+        return getOrCreateWallet(userId);
+    }
+
+    /**
+     * Balance recomputed from the latest checkpoint plus the ledger entries after it, flagged
+     * incomplete if an entry is missing; null if the wallet has no checkpoint yet
+     */
+    public WalletBalanceCheckpointService.LedgerBalance getLedgerBalance(String userId) {
+        return walletBalanceCheckpointService.ledgerBalance(userId);
+    }
+
+    public WalletLedgerService.LedgerPage getLedgerPage(String userId, String cursor, int limit) {
+        return walletLedgerService.page(userId, cursor, limit);
     }
 
     public Optional<Wallet> getWalletByUserId(String userId) {
@@ -73,100 +304,35 @@ public class WalletService {
         return transactionService.getTransactionsByUserId(userId);
     }
 
-    public Wallet topUpWallet(String userId, double amount) {
-        Wallet wallet = getOrCreateWallet(userId);
-        Transactions tx = recordWalletTransaction(userId, amount, "wallet_topup");
-        wallet.setBalance(wallet.getBalance() + amount);
-        wallet.setLastUpdated(new Date());
-        Wallet.TransactionRef ref = new Wallet.TransactionRef();
-        ref.setReferenceId(tx.getReferenceId());
-        ref.setType(tx.getType());
-        ref.setAmount(amount);
-        ref.setStatus("completed");
-        List<Wallet.TransactionRef> txnList = wallet.getTransactions() == null ? new ArrayList<>() : wallet.getTransactions();
-        txnList.add(ref);
-        wallet.setTransactions(txnList);
-        return walletRepository.save(wallet);
+    public Wallet topUpWallet(String userId, long amount) {
+        getOrCreateWallet(userId);
+        return credit(userId, amount, TYPE_WALLET_TOPUP);
     }
 
-    public Wallet deductPenalty(String userId, double penaltyAmount) {
-        Wallet wallet = deductFromWallet(userId, penaltyAmount);
-        if (wallet != null) {
-            Transactions tx = recordWalletTransaction(userId, -penaltyAmount, "penalty_deduction");
-            Wallet.TransactionRef ref = new Wallet.TransactionRef();
-            ref.setReferenceId(tx.getReferenceId());
-            ref.setType(tx.getType());
-            ref.setAmount(-penaltyAmount);
-            ref.setStatus("completed");
-            List<Wallet.TransactionRef> txnList = wallet.getTransactions() == null ? new ArrayList<>() : wallet.getTransactions();
-            txnList.add(ref);
-            wallet.setTransactions(txnList);
-            return walletRepository.save(wallet);
-        }
-        return null;
-    }
-
-    // Grouped: Wallet persistence methods
-    public Wallet saveWallet(Wallet wallet) {
-        return walletRepository.save(wallet);
-    }
-
-    public Wallet save(Wallet wallet) {
-        return walletRepository.save(wallet);
+    public Wallet deductPenalty(String userId, long penaltyAmount) {
+        return debit(userId, penaltyAmount, TYPE_PENALTY_DEDUCTION);
     }
 
     // Grouped: Refund method
     public void refundWalletAndRecordTransaction(Bookings booking) {
-        Wallet wallet = Optional.ofNullable(resolveWallet(booking.getUserId()))
-                .orElseThrow(() -> new NotFoundException("Wallet not found"));
-        wallet.setBalance(wallet.getBalance() + booking.getAmount());
-        wallet.setLastUpdated(new Date());
-        walletRepository.save(wallet);
+        refund(booking.getUserId(), booking.getAmount(), TYPE_REFUND);
+    }
+
+    public Wallet refund(String userId, long amount, String description) {
+        Wallet wallet = credit(userId, amount, description);
+        if (wallet == null) {
+            throw new NotFoundException("Wallet not found");
+        }
+        return wallet;
     }
 
     /**
-     * Resolve wallet for a user, consolidating duplicates if they exist.
-     * This protects against IncorrectResultSizeDataAccessException when multiple wallet documents share the same userId.
+     * The user's wallet with its newest recent-entries refs: one findOne on the unique userId index
+     * (duplicates are merged once at startup by WalletConsolidation, see MongoIndexConfig)
      */
     private Wallet resolveWallet(String userId) {
-        List<Wallet> wallets = walletRepository.findAllByUserId(userId);
-        if (wallets == null || wallets.isEmpty()) {
-            return null;
-        }
-        if (wallets.size() == 1) {
-            return wallets.get(0);
-        }
-
-        // Consolidate duplicates: sum balances and merge transaction refs, keep the most recently updated wallet
-        wallets.sort((a, b) -> {
-            Date aDate = a.getLastUpdated() != null ? a.getLastUpdated() : a.getCreatedAt();
-            Date bDate = b.getLastUpdated() != null ? b.getLastUpdated() : b.getCreatedAt();
-            if (aDate == null && bDate == null) return 0;
-            if (aDate == null) return -1;
-            if (bDate == null) return 1;
-            return bDate.compareTo(aDate);
-        });
-
-        Wallet primary = wallets.get(0);
-        double totalBalance = 0;
-        List<Wallet.TransactionRef> mergedTxns = new ArrayList<>();
-
-        for (Wallet w : wallets) {
-            totalBalance += w.getBalance();
-            if (w.getTransactions() != null) {
-                mergedTxns.addAll(w.getTransactions());
-            }
-        }
-
-        primary.setBalance(totalBalance);
-        primary.setTransactions(mergedTxns);
-        primary.setLastUpdated(new Date());
-
-        // Delete duplicates, keep primary
-        for (int i = 1; i < wallets.size(); i++) {
-            walletRepository.delete(wallets.get(i));
-        }
-
-        return walletRepository.save(primary);
+        Query query = new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId));
+        query.fields().slice(Wallet.FIELD_TRANSACTIONS, -recentEntries);
+        return mongoOperations.findOne(query, Wallet.class);
     }
 }
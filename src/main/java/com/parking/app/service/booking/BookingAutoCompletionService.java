@@ -4,13 +4,12 @@ import com.parking.app.constants.BookingStatus;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.ParkingSpot;
 import com.parking.app.model.event.BookingEvent;
-import com.parking.app.repository.BookingRepository;
 import com.parking.app.service.ParkingSpotService;
 import com.parking.app.util.BookingUtility;
-import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.ZonedDateTime;
@@ -25,25 +24,25 @@ public class BookingAutoCompletionService {
 
     private static final int NO_SHOW_MINUTES = 30;
 
-    private final BookingRepository bookingRepository;
     private final MongoOperations mongoOperations;
     private final ParkingSpotService parkingSpotService;
     private final BookingWalletService walletService;
     private final BookingBreakupService breakupService;
-    private final ApplicationEventPublisher eventPublisher;
+    private final BookingOutboxService bookingOutbox;
+    private final BookingStatusTransitions statusTransitions;
 
-    public BookingAutoCompletionService(BookingRepository bookingRepository,
-                                       MongoOperations mongoOperations,
+    public BookingAutoCompletionService(MongoOperations mongoOperations,
                                        ParkingSpotService parkingSpotService,
                                        BookingWalletService walletService,
                                        BookingBreakupService breakupService,
-                                       ApplicationEventPublisher eventPublisher) {
-        this.bookingRepository = bookingRepository;
+                                       BookingOutboxService bookingOutbox,
+                                       BookingStatusTransitions statusTransitions) {
         this.mongoOperations = mongoOperations;
         this.parkingSpotService = parkingSpotService;
         this.walletService = walletService;
         this.breakupService = breakupService;
-        this.eventPublisher = eventPublisher;
+        this.bookingOutbox = bookingOutbox;
+        this.statusTransitions = statusTransitions;
     }
 
     public void autoCompleteLateBookings() {
@@ -81,27 +80,33 @@ public class BookingAutoCompletionService {
                 ? ZonedDateTime.ofInstant(booking.getActualCheckInTime().toInstant(), now.getZone())
                 : scheduledCheckIn;
 
-        double lateCheckInPenalty = BookingUtility.calculatePenaltyWithGrace(
+        long lateCheckInPenalty = BookingUtility.calculatePenaltyWithGrace(
             scheduledCheckIn, actualCheckIn, spot.getCheckInPenaltyRate());
-        double lateCheckOutPenalty = BookingUtility.calculatePenaltyWithGrace(
+        long lateCheckOutPenalty = BookingUtility.calculatePenaltyWithGrace(
             scheduledEnd, now, spot.getCheckOutPenaltyRate());
-        double totalPenalty = lateCheckInPenalty + lateCheckOutPenalty;
+        long totalPenalty = lateCheckInPenalty + lateCheckOutPenalty;
+
+        // Conditional ACTIVE -> COMPLETED: skipped if the user checked out (or another instance ran) meanwhile
+        Bookings completed = statusTransitions.transition(booking.getId(), BookingStatus.COMPLETED,
+                new Update()
+                        .set(Bookings.FIELD_QR_CODE_SCANNED, false)
+                        .set(Bookings.FIELD_AUTO_COMPLETED, true),
+                BookingEvent.BookingEventType.BOOKING_AUTO_COMPLETED, BookingStatus.ACTIVE);
+        if (completed == null) {
+            return;
+        }
+        booking = completed;
 
         if (totalPenalty > 0) {
             walletService.applyPenaltyToWallet(booking.getUserId(), totalPenalty,
                 lateCheckInPenalty, lateCheckOutPenalty);
         }
 
-        booking.setStatus(BookingStatus.COMPLETED.name());
-        booking.setQrCodeScanned(false);
-        booking.setAutoCompleted(true);
-        bookingRepository.save(booking);
-
-        parkingSpotService.incrementSpotAvailability(booking.getSpotId());
+        parkingSpotService.releaseSpotForBooking(booking);
         breakupService.applyBreakupAndRefund(booking, spot, walletService);
 
         // Publish auto-completion event for async ParkingLot update
-        eventPublisher.publishEvent(new BookingEvent(
+        bookingOutbox.publish(new BookingEvent(
             this,
             booking.getId(),
             booking.getLotName(),
@@ -111,14 +116,18 @@ public class BookingAutoCompletionService {
         ));
     }
 
-    private void autoCancelNoShowBooking(Bookings booking) {
-        booking.setStatus(BookingStatus.CANCELLED.name());
-        bookingRepository.save(booking);
+    private void autoCancelNoShowBooking(Bookings noShow) {
+        // Conditional PENDING -> CANCELLED: skipped if the user checked in meanwhile
+        Bookings booking = statusTransitions.transition(noShow.getId(), BookingStatus.CANCELLED, new Update(),
+                BookingEvent.BookingEventType.BOOKING_CANCELLED, BookingStatus.PENDING);
+        if (booking == null) {
+            return;
+        }
 
-        parkingSpotService.incrementSpotAvailability(booking.getSpotId());
+        parkingSpotService.releaseSpotForBooking(booking);
 
         // Publish cancellation event for async ParkingLot update
-        eventPublisher.publishEvent(new BookingEvent(
+        bookingOutbox.publish(new BookingEvent(
             this,
             booking.getId(),
             booking.getLotName(),
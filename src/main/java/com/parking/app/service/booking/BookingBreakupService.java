@@ -4,6 +4,7 @@ import com.parking.app.constants.BookingStatus;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.ParkingSpot;
 import com.parking.app.util.BookingUtility;
+import com.parking.app.util.Money;
 import org.springframework.stereotype.Service;
 
 import java.time.ZonedDateTime;
@@ -16,7 +17,34 @@ import java.util.Map;
 @Service
 public class BookingBreakupService {
 
+    /**
+     * Penalties and refund of a booking in paise
+     */
+    private record Breakup(long lateCheckInPenalty, long lateCheckOutPenalty, long refund, boolean autoCompleted) {
+    }
+
     public Map<String, Object> calculateBookingBreakup(Bookings booking, ParkingSpot spot) {
+        Breakup amounts = compute(booking, spot);
+        long subtotal = booking.getAmount() + amounts.lateCheckInPenalty() + amounts.lateCheckOutPenalty();
+        long totalDeducted = subtotal - amounts.refund();
+
+        // Computed in paise, reported in rupees like every other API amount
+        Map<String, Object> breakup = new HashMap<>();
+        breakup.put("bookingCharge", Money.toRupees(booking.getAmount()));
+        breakup.put("lateCheckInPenalty", Money.toRupees(amounts.lateCheckInPenalty()));
+        breakup.put("lateCheckOutPenalty", Money.toRupees(amounts.lateCheckOutPenalty()));
+        breakup.put("subtotal", Money.toRupees(subtotal));
+        breakup.put("refundAmount", Money.toRupees(amounts.refund()));
+        breakup.put("totalDeducted", Money.toRupees(totalDeducted));
+        breakup.put("status", booking.getStatus());
+        breakup.put("bookingRate", Money.toRupees(spot.getBookingRate()));
+        breakup.put("checkInPenaltyRate", Money.toRupees(spot.getCheckInPenaltyRate()));
+        breakup.put("checkOutPenaltyRate", Money.toRupees(spot.getCheckOutPenaltyRate()));
+        breakup.put("autoCompleted", amounts.autoCompleted());
+        return breakup;
+    }
+
+    private Breakup compute(Bookings booking, ParkingSpot spot) {
         ZonedDateTime now = ZonedDateTime.now();
         ZonedDateTime scheduledCheckIn = ZonedDateTime.ofInstant(booking.getCheckInTime().toInstant(), now.getZone());
         ZonedDateTime scheduledEnd = ZonedDateTime.ofInstant(booking.getCheckOutTime().toInstant(), now.getZone());
@@ -24,9 +52,9 @@ public class BookingBreakupService {
                 ? ZonedDateTime.ofInstant(booking.getActualCheckInTime().toInstant(), now.getZone())
                 : scheduledCheckIn;
 
-        double lateCheckInPenalty = 0.0;
-        double lateCheckOutPenalty = 0.0;
-        double refund = 0.0;
+        long lateCheckInPenalty = 0;
+        long lateCheckOutPenalty = 0;
+        long refund = 0;
 
         boolean isAutoCompleted = booking.getAutoCompleted() != null && booking.getAutoCompleted();
 
@@ -34,7 +62,7 @@ public class BookingBreakupService {
             boolean isAutoCancelled = actualCheckIn == null && now.isAfter(scheduledCheckIn);
             if (isAutoCancelled) {
                 lateCheckInPenalty = BookingUtility.calculatePenaltyWithGrace(scheduledCheckIn, now, spot.getCheckInPenaltyRate());
-                refund = 0.0;
+                refund = 0;
             } else if (now.isAfter(scheduledCheckIn)) {
                 lateCheckInPenalty = BookingUtility.calculatePenaltyWithGrace(scheduledCheckIn, now, spot.getCheckInPenaltyRate());
                 refund = booking.getAmount();
@@ -50,22 +78,7 @@ public class BookingBreakupService {
             }
         }
 
-        double subtotal = booking.getAmount() + lateCheckInPenalty + lateCheckOutPenalty;
-        double totalDeducted = subtotal - refund;
-
-        Map<String, Object> breakup = new HashMap<>();
-        breakup.put("bookingCharge", booking.getAmount());
-        breakup.put("lateCheckInPenalty", lateCheckInPenalty);
-        breakup.put("lateCheckOutPenalty", lateCheckOutPenalty);
-        breakup.put("subtotal", subtotal);
-        breakup.put("refundAmount", refund);
-        breakup.put("totalDeducted", totalDeducted);
-        breakup.put("status", booking.getStatus());
-        breakup.put("bookingRate", spot.getBookingRate());
-        breakup.put("checkInPenaltyRate", spot.getCheckInPenaltyRate());
-        breakup.put("checkOutPenaltyRate", spot.getCheckOutPenaltyRate());
-        breakup.put("autoCompleted", isAutoCompleted);
-        return breakup;
+        return new Breakup(lateCheckInPenalty, lateCheckOutPenalty, refund, isAutoCompleted);
     }
 
     public void applyBreakupAndRefund(Bookings booking, ParkingSpot spot,
@@ -75,8 +88,7 @@ public class BookingBreakupService {
             return;
         }
 
-        Map<String, Object> breakup = calculateBookingBreakup(booking, spot);
-        double refund = (double) breakup.get("refundAmount");
+        long refund = compute(booking, spot).refund();
 
         if (refund > 0) {
             walletService.refundToWallet(booking.getUserId(), refund, "Booking refund");
@@ -0,0 +1,340 @@
+package com.parking.app.service.booking;
+
+import com.parking.app.exception.InsufficientFundsException;
+import com.parking.app.exception.LockAcquisitionException;
+import com.parking.app.exception.SpotUnavailableException;
+import com.parking.app.model.Bookings;
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.model.event.BookingEvent;
+import com.parking.app.service.ParkingSpotService;
+import com.parking.app.service.lock.LockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Flat-combining batcher for booking bursts on the same spot
+ * ACTIVE when: app.booking.combining.enabled=true
+ *
+ * Every request is queued per spot. Whichever thread gets the spot's combiner role takes the
+ * distributed lock once and processes everything queued so far as one batch:
+ * - one counter update reserves min(batch size, remaining capacity)
+ * - one conditional debit per wallet charges the batch (see BookingWalletService.deductAndRecordBatch)
+ * - one insertMany stores all bookings with their pending events, and one more the outbox records
+ * Each caller then gets its own booking or exception. N lock handoffs become one per batch.
+ * If the batch fails after charging, every request whose booking was not stored is refunded
+ * (keyed on its debit referenceId) and its capacity released; stored bookings are returned to
+ * their callers even if publishing their events fails.
+ */
+@Component
+public class BookingCombiner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingCombiner.class);
+    private static final long WAITER_POLL_MS = 20; // how often a waiting caller checks whether it should combine
+    private static final String BOOKING_CHARGE = "Booking charge";
+    private static final String BOOKING_REFUND = "Booking refund";
+
+    private final LockService lockService;
+    private final ParkingSpotService parkingSpotService;
+    private final BookingWalletService bookingWalletService;
+    private final MongoOperations mongoOperations;
+    private final BookingIntervalIndex intervalIndex;
+    private final BookingOutboxService bookingOutbox;
+    private final SpotLockFence spotFence;
+    private final boolean enabled;
+    private final int maxBatchSize;
+
+    private final Map<String, SpotBatchQueue> queuesBySpot = new ConcurrentHashMap<>();
+
+    public BookingCombiner(LockService lockService,
+                           ParkingSpotService parkingSpotService,
+                           BookingWalletService bookingWalletService,
+                           MongoOperations mongoOperations,
+                           BookingIntervalIndex intervalIndex,
+                           BookingOutboxService bookingOutbox,
+                           SpotLockFence spotFence,
+                           @Value("${app.booking.combining.enabled:false}") boolean enabled,
+                           @Value("${app.booking.combining.max-batch-size:50}") int maxBatchSize) {
+        this.lockService = lockService;
+        this.parkingSpotService = parkingSpotService;
+        this.bookingWalletService = bookingWalletService;
+        this.mongoOperations = mongoOperations;
+        this.intervalIndex = intervalIndex;
+        this.bookingOutbox = bookingOutbox;
+        this.spotFence = spotFence;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues the booking request and waits until it was processed by this or another thread's batch
+     */
+    public Bookings submit(ParkingSpot spot, String userId, ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
+                           String vehicleNumber, long amount, long waitTimeMs) {
+        SpotBatchQueue queue = queuesBySpot.computeIfAbsent(spot.getId(), id -> new SpotBatchQueue());
+        PendingBooking request = new PendingBooking(userId, checkInTime, checkOutTime, vehicleNumber, amount,
+                UUID.randomUUID().toString(), new CompletableFuture<>());
+        queue.pending.add(request);
+        long deadline = System.currentTimeMillis() + waitTimeMs;
+
+        while (!request.result().isDone()) {
+            long remainingMs = deadline - System.currentTimeMillis();
+            if (remainingMs <= 0 && queue.pending.remove(request)) {
+                throw new LockAcquisitionException("Unable to acquire lock for spot: " + spot.getId());
+            }
+            if (queue.combining.tryLock()) {
+                try {
+                    if (!request.result().isDone()) {
+                        combine(spot, queue, Math.max(0, remainingMs));
+                    }
+                } finally {
+                    queue.combining.unlock();
+                }
+            } else {
+                awaitQuietly(request.result());
+            }
+        }
+        return unwrap(request.result());
+    }
+
+    private void combine(ParkingSpot spot, SpotBatchQueue queue, long waitTimeMs) {
+        try {
+            lockService.executeWithFencedLock(spot.getId(), waitTimeMs, fencingToken -> {
+                processBatch(spot, drain(queue), fencingToken);
+                return null;
+            });
+        } catch (LockAcquisitionException e) {
+            // Nothing was drained; queued callers retry combining until their own deadline
+            logger.debug("Combiner could not lock spot {}: {}", spot.getId(), e.getMessage());
+        }
+    }
+
+    private List<PendingBooking> drain(SpotBatchQueue queue) {
+        List<PendingBooking> batch = new ArrayList<>();
+        PendingBooking next;
+        while (batch.size() < maxBatchSize && (next = queue.pending.poll()) != null) {
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    private void processBatch(ParkingSpot spot, List<PendingBooking> batch, long fencingToken) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        String spotId = spot.getId();
+        List<PendingBooking> reserved = new ArrayList<>();
+        List<PendingBooking> paid = new ArrayList<>();
+        List<Bookings> bookings = new ArrayList<>();
+        boolean chargeAttempted = false;
+        boolean chargeKnown = false;
+
+        try {
+            // Reserve capacity: one counter update when possible, otherwise one reservation per request
+            // The fencing token is part of each reservation, so a holder that lost the lock stops here
+            boolean intervalReserved = parkingSpotService.isSlotInventoryEnabled();
+            if (parkingSpotService.supportsBatchReserve(spotId)) {
+                reserved.addAll(batch.subList(0, spotFence.reserveUnits(spotId, batch.size(), fencingToken)));
+            } else {
+                for (PendingBooking request : batch) {
+                    if (spotFence.reserve(spot, request.checkInTime(), request.checkOutTime(), fencingToken)) {
+                        reserved.add(request);
+                    }
+                }
+            }
+            for (PendingBooking request : batch) {
+                if (!reserved.contains(request)) {
+                    request.result().completeExceptionally(
+                            new SpotUnavailableException("No spots available - booking full"));
+                }
+            }
+
+            // Charge every wallet, each with its own conditional debit
+            List<BookingWalletService.WalletDebit> debits = reserved.stream()
+                    .map(PendingBooking::debit)
+                    .toList();
+            chargeAttempted = true;
+            Set<String> charged = bookingWalletService.deductAndRecordBatch(debits, BOOKING_CHARGE);
+            chargeKnown = true;
+
+            for (PendingBooking request : new ArrayList<>(reserved)) {
+                if (charged.contains(request.referenceId())) {
+                    paid.add(request);
+                } else {
+                    reserved.remove(request);
+                    parkingSpotService.releaseSpotForInterval(spotId, request.checkInTime(), request.checkOutTime());
+                    request.result().completeExceptionally(new InsufficientFundsException());
+                }
+            }
+
+            // Store all bookings with one insertMany; newPendingBooking assigns ids up front so a failed
+            // insert can be checked for the bookings that did get stored
+            for (PendingBooking request : paid) {
+                Bookings booking = BookingLifecycleService.newPendingBooking(spotId, request.userId(),
+                        spot.getLotName(), request.checkInTime(), request.checkOutTime(), request.vehicleNumber(),
+                        request.amount(), intervalReserved);
+                bookings.add(booking);
+            }
+            mongoOperations.insertAll(bookings);
+
+        } catch (Exception e) {
+            logger.error("Batch booking failed for spot {}: {}", spotId, e.getMessage(), e);
+            RuntimeException failure = e instanceof LockAcquisitionException fenced
+                    ? fenced
+                    : new RuntimeException("Failed to create booking: " + e.getMessage(), e);
+            Set<String> stored = storedIds(bookings);
+            List<PendingBooking> storedRequests = new ArrayList<>();
+            for (int i = 0; i < bookings.size(); i++) {
+                if (stored.contains(bookings.get(i).getId())) {
+                    storedRequests.add(paid.get(i));
+                }
+            }
+            if (chargeAttempted && !chargeKnown) {
+                // The charge failed part-way: look up which debits did apply
+                paid.addAll(findCharged(reserved));
+            }
+            reserved.removeAll(storedRequests);
+            undo(spotId, reserved, paid);
+            for (PendingBooking request : batch) {
+                if (!storedRequests.contains(request)) {
+                    request.result().completeExceptionally(failure);
+                }
+            }
+            if (storedRequests.isEmpty()) {
+                return;
+            }
+            bookings.removeIf(booking -> !stored.contains(booking.getId()));
+            paid.retainAll(storedRequests);
+        }
+
+        // Stored bookings are final: callers get them now, events follow
+        for (int i = 0; i < paid.size(); i++) {
+            paid.get(i).result().complete(bookings.get(i));
+        }
+        List<BookingEvent> events = new ArrayList<>();
+        for (Bookings booking : bookings) {
+            intervalIndex.upsert(booking);
+            events.add(new BookingEvent(this, booking.getId(), spot.getLotName(), spotId,
+                    BookingEvent.BookingEventType.BOOKING_CREATED, booking.getUserId()));
+        }
+        try {
+            bookingOutbox.publishAll(events);
+        } catch (Exception e) {
+            // Recorded outbox events are re-published by the relay; the bookings stand either way
+            logger.error("Publishing {} booking events for spot {} failed: {}", events.size(), spotId, e.getMessage(), e);
+        }
+        logger.info("Combined batch for spot {}: {} requests, {} booked", spotId, batch.size(), bookings.size());
+    }
+
+    /**
+     * Rolls back the requests that were reserved but not stored: refunds those already charged
+     * (by their debit referenceId, so at most once) and gives their capacity back
+     */
+    private void undo(String spotId, List<PendingBooking> reserved, List<PendingBooking> paid) {
+        for (PendingBooking request : reserved) {
+            if (paid.contains(request)) {
+                try {
+                    bookingWalletService.refundBatchDebit(request.debit(), BOOKING_REFUND);
+                } catch (Exception refundEx) {
+                    logger.error("❌ Failed to refund userId={} (ref {}) for spot {}: {}", request.userId(),
+                            request.referenceId(), spotId, refundEx.getMessage(), refundEx);
+                }
+            }
+            try {
+                parkingSpotService.releaseSpotForInterval(spotId, request.checkInTime(), request.checkOutTime());
+            } catch (Exception releaseEx) {
+                logger.error("Failed to release spot {} during error handling", spotId, releaseEx);
+            }
+        }
+    }
+
+    private List<PendingBooking> findCharged(List<PendingBooking> requests) {
+        try {
+            Set<String> charged = bookingWalletService.findAppliedDebits(
+                    requests.stream().map(PendingBooking::debit).toList());
+            return requests.stream().filter(request -> charged.contains(request.referenceId())).toList();
+        } catch (Exception e) {
+            logger.error("❌ Could not check which debits of a failed batch applied for refunds: {}", e.getMessage(), e);
+            return List.of();
+        }
+    }
+
+    private Set<String> storedIds(List<Bookings> bookings) {
+        if (bookings.isEmpty()) {
+            return Set.of();
+        }
+        List<String> ids = bookings.stream().map(Bookings::getId).toList();
+        try {
+            Query query = new Query(Criteria.where(Bookings.FIELD_ID).in(ids));
+            query.fields().include(Bookings.FIELD_ID);
+            return mongoOperations.find(query, Bookings.class).stream()
+                    .map(Bookings::getId)
+                    .collect(Collectors.toSet());
+        } catch (Exception e) {
+            // Unknown: treat them as stored rather than refund bookings that may exist
+            logger.error("❌ Could not check which bookings of a failed batch were stored: {}", e.getMessage(), e);
+            return Set.copyOf(ids);
+        }
+    }
+
+    private void awaitQuietly(CompletableFuture<Bookings> result) {
+        try {
+            result.get(WAITER_POLL_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+            // Either still pending (loop again) or done exceptionally (unwrapped by the caller)
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LockAcquisitionException("Interrupted while waiting for booking batch");
+        }
+    }
+
+    private Bookings unwrap(CompletableFuture<Bookings> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record PendingBooking(String userId, ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
+                                  String vehicleNumber, long amount, String referenceId,
+                                  CompletableFuture<Bookings> result) {
+
+        BookingWalletService.WalletDebit debit() {
+            return new BookingWalletService.WalletDebit(userId, amount, referenceId);
+        }
+    }
+
+    private static final class SpotBatchQueue {
+        private final Queue<PendingBooking> pending = new ConcurrentLinkedQueue<>();
+        private final ReentrantLock combining = new ReentrantLock();
+    }
+}
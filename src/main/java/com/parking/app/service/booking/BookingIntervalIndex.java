@@ -0,0 +1,304 @@
+package com.parking.app.service.booking;
+
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.parking.app.constants.BookingStatus;
+import com.parking.app.model.Bookings;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonTimestamp;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * In-process index of PENDING/ACTIVE booking intervals per spot
+ *
+ * Answers overlap and "is this spot free between T1 and T2" questions without a Mongo range query,
+ * but only while it is known to be complete: it is trusted ({@link #isReady()}) only with the
+ * bookings change stream enabled and caught up. Without the change stream (the default) it is
+ * never loaded and callers keep using Mongo, since writes made by other instances would be missed.
+ *
+ * A dedicated thread takes the cluster's operation time, scans PENDING/ACTIVE bookings, then tails
+ * the change stream starting at that operation time. Every write that raced with the scan (e.g. a
+ * PENDING booking cancelled after the scan read it) is therefore replayed over the scanned state,
+ * and the index becomes ready once the stream has no more events waiting. If the stream fails the
+ * index stops being trusted and is rebuilt the same way. Writes made on this instance are applied
+ * immediately as well; they arrive again through the stream and upserts are idempotent.
+ *
+ * Enable with: app.booking.interval-index.change-stream.enabled=true (requires a replica set)
+ */
+@Component
+public class BookingIntervalIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingIntervalIndex.class);
+    private static final long MAX_AWAIT_MS = 1000;
+    private static final long RETRY_DELAY_MS = 5000;
+    private static final long RELEASED_RETENTION_MS = TimeUnit.MINUTES.toMillis(10);
+
+    private final MongoOperations mongoOperations;
+    private final boolean changeStreamEnabled;
+    private final Map<String, SpotIntervals> intervalsBySpot = new ConcurrentHashMap<>();
+    private final Map<String, String> spotByBooking = new ConcurrentHashMap<>();
+    private final Map<String, Long> released = new ConcurrentHashMap<>(); // bookingId -> removedAt
+    private volatile boolean ready;
+    private volatile boolean running = true;
+    private Thread feed;
+
+    public BookingIntervalIndex(MongoOperations mongoOperations,
+                                @Value("${app.booking.interval-index.change-stream.enabled:false}") boolean changeStreamEnabled) {
+        this.mongoOperations = mongoOperations;
+        this.changeStreamEnabled = changeStreamEnabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!changeStreamEnabled) {
+            logger.info("Booking interval index disabled (no change stream) - overlap checks stay on MongoDB");
+            return;
+        }
+        feed = Thread.ofPlatform().name("booking-interval-index").daemon().start(this::follow);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (feed != null) {
+            feed.interrupt();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private void follow() {
+        while (running) {
+            try {
+                BsonTimestamp startAt = currentOperationTime();
+                load();
+                tail(startAt);
+            } catch (Exception e) {
+                ready = false;
+                if (!running) {
+                    return;
+                }
+                logger.error("❌ Booking interval index feed failed - overlap checks on MongoDB until rebuilt: {}",
+                        e.getMessage(), e);
+                try {
+                    Thread.sleep(RETRY_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private BsonTimestamp currentOperationTime() {
+        Document hello = mongoOperations.executeCommand(new Document("hello", 1));
+        Object operationTime = hello.get("operationTime");
+        if (!(operationTime instanceof BsonTimestamp timestamp)) {
+            throw new IllegalStateException("MongoDB reported no operationTime - the change stream needs a replica set");
+        }
+        return timestamp;
+    }
+
+    private void load() {
+        long startTime = System.currentTimeMillis();
+        intervalsBySpot.clear();
+        spotByBooking.clear();
+        released.clear();
+        Query query = new Query(Criteria.where(Bookings.FIELD_STATUS)
+                .in(BookingStatus.PENDING.name(), BookingStatus.ACTIVE.name()));
+        try (Stream<Bookings> bookings = mongoOperations.stream(query, Bookings.class)) {
+            bookings.forEach(this::upsert);
+        }
+        logger.info("Booking interval index scanned: {} bookings across {} spots in {}ms",
+                spotByBooking.size(), intervalsBySpot.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Applies changes from startAt onwards until the stream fails or the index is stopped
+     */
+    private void tail(BsonTimestamp startAt) {
+        MongoCollection<Document> collection =
+                mongoOperations.getCollection(mongoOperations.getCollectionName(Bookings.class));
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = collection.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .startAtOperationTime(startAt)
+                .maxAwaitTime(MAX_AWAIT_MS, TimeUnit.MILLISECONDS)
+                .cursor()) {
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change == null) {
+                    pruneReleased();
+                    if (!ready) {
+                        ready = true;
+                        logger.info("✅ Booking interval index caught up with the change stream: {} bookings",
+                                spotByBooking.size());
+                    }
+                    continue;
+                }
+                apply(change);
+            }
+        }
+    }
+
+    // Stale local upserts arrive within moments of the release; older ids need not be remembered
+    private void pruneReleased() {
+        long cutoff = System.currentTimeMillis() - RELEASED_RETENTION_MS;
+        released.values().removeIf(removedAt -> removedAt < cutoff);
+    }
+
+    private void apply(ChangeStreamDocument<Document> change) {
+        Document fullDocument = change.getFullDocument();
+        // Deleted, or already gone by the time the update was looked up
+        if (change.getOperationType() == OperationType.DELETE || fullDocument == null) {
+            String bookingId = bookingId(change.getDocumentKey());
+            if (bookingId != null) {
+                remove(bookingId);
+            }
+            return;
+        }
+        upsert(mongoOperations.getConverter().read(Bookings.class, fullDocument));
+    }
+
+    private String bookingId(BsonDocument documentKey) {
+        if (documentKey == null || !documentKey.containsKey("_id")) {
+            return null;
+        }
+        BsonValue id = documentKey.get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+
+    // ===== Write Path =====
+
+    /**
+     * Adds, moves or removes the booking depending on its current status and times. A booking that
+     * left PENDING/ACTIVE never returns to them, so a late upsert of an older version (a local write
+     * applied after the stream already delivered the cancel) is ignored rather than put back.
+     */
+    public void upsert(Bookings booking) {
+        if (!changeStreamEnabled || booking == null || booking.getId() == null
+                || released.containsKey(booking.getId())) {
+            return;
+        }
+        boolean holdsSpot = BookingStatus.PENDING.name().equalsIgnoreCase(booking.getStatus())
+                || BookingStatus.ACTIVE.name().equalsIgnoreCase(booking.getStatus());
+        if (!holdsSpot || booking.getSpotId() == null
+                || booking.getCheckInTime() == null || booking.getCheckOutTime() == null) {
+            remove(booking.getId());
+            return;
+        }
+
+        String previousSpotId = spotByBooking.put(booking.getId(), booking.getSpotId());
+        if (previousSpotId != null && !previousSpotId.equals(booking.getSpotId())) {
+            removeFromSpot(previousSpotId, booking.getId());
+        }
+        intervalsBySpot.computeIfAbsent(booking.getSpotId(), id -> new SpotIntervals())
+                .put(new Interval(booking.getId(),
+                        booking.getCheckInTime().getTime(),
+                        booking.getCheckOutTime().getTime()));
+        if (released.containsKey(booking.getId())) {
+            remove(booking.getId());
+        }
+    }
+
+    public void remove(String bookingId) {
+        if (!changeStreamEnabled) {
+            return;
+        }
+        released.put(bookingId, System.currentTimeMillis());
+        String spotId = spotByBooking.remove(bookingId);
+        if (spotId != null) {
+            removeFromSpot(spotId, bookingId);
+        }
+    }
+
+    private void removeFromSpot(String spotId, String bookingId) {
+        SpotIntervals intervals = intervalsBySpot.get(spotId);
+        if (intervals != null) {
+            intervals.remove(bookingId);
+        }
+    }
+
+    // ===== Read Path =====
+
+    public boolean hasOverlap(String spotId, ZonedDateTime from, ZonedDateTime to, String excludeBookingId) {
+        SpotIntervals intervals = intervalsBySpot.get(spotId);
+        return intervals != null && intervals.overlaps(
+                from.toInstant().toEpochMilli(), to.toInstant().toEpochMilli(), excludeBookingId);
+    }
+
+    public boolean isFree(String spotId, ZonedDateTime from, ZonedDateTime to) {
+        return !hasOverlap(spotId, from, to, null);
+    }
+
+    // ===== Per-spot Interval Set =====
+
+    private record Interval(String bookingId, long start, long end) {
+    }
+
+    /**
+     * Intervals of one spot sorted by start time. Any interval overlapping [from, to) must start
+     * within [from - longest duration, to), so a lookup is one bounded subSet scan.
+     */
+    private static final class SpotIntervals {
+
+        private static final Comparator<Interval> ORDER =
+                Comparator.comparingLong(Interval::start).thenComparing(Interval::bookingId);
+
+        private final NavigableSet<Interval> byStart = new TreeSet<>(ORDER);
+        private final Map<String, Interval> byBooking = new HashMap<>();
+        private long longestDuration;
+
+        synchronized void put(Interval interval) {
+            Interval previous = byBooking.put(interval.bookingId(), interval);
+            if (previous != null) {
+                byStart.remove(previous);
+            }
+            byStart.add(interval);
+            longestDuration = Math.max(longestDuration, interval.end() - interval.start());
+        }
+
+        synchronized void remove(String bookingId) {
+            Interval previous = byBooking.remove(bookingId);
+            if (previous != null) {
+                byStart.remove(previous);
+            }
+        }
+
+        synchronized boolean overlaps(long from, long to, String excludeBookingId) {
+            Interval lower = new Interval("", from - longestDuration, 0);
+            Interval upper = new Interval("", to, 0);
+            for (Interval candidate : byStart.subSet(lower, true, upper, false)) {
+                if (candidate.end() > from && !candidate.bookingId().equals(excludeBookingId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -5,7 +5,9 @@ import com.parking.app.constants.CheckInMode;
 import com.parking.app.exception.ConflictException;
 import com.parking.app.exception.IllegalStateException;
 import com.parking.app.exception.InsufficientFundsException;
+import com.parking.app.exception.LockAcquisitionException;
 import com.parking.app.exception.NotFoundException;
+import com.parking.app.exception.SpotUnavailableException;
 import com.parking.app.model.Bookings;
 import com.parking.app.model.ParkingSpot;
 import com.parking.app.model.Users;
@@ -18,15 +20,25 @@ import com.parking.app.service.UserService;
 import com.parking.app.service.WalletService;
 import com.parking.app.service.lock.LockService;
 import com.parking.app.util.BookingUtility;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 
 import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Service responsible for core booking lifecycle operations
@@ -38,6 +50,9 @@ public class BookingLifecycleService {
     private static final Logger logger = LoggerFactory.getLogger(BookingLifecycleService.class);
     private static final long LOCK_WAIT_TIME_MS = 10000; // 30 seconds max wait for lock (increased from 5s)
     private static final int MAX_RETRY_ATTEMPTS = 3;
+    private static final long CANDIDATE_LOCK_WAIT_MS = 50; // lot-level bookings move on instead of queueing
+    private static final long PRE_LOCK_READ_TIMEOUT_MS = 3000; // one deadline for all concurrent pre-lock reads
+    private static final long UNFENCED = 0; // no spot lock held; fencing tokens start at 1
 
     private final BookingRepository bookingRepository;
     private final UserService userService;
@@ -48,7 +63,15 @@ public class BookingLifecycleService {
     private final BookingBreakupService breakupService;
     private final UserRepository userRepository;
     private final LockService lockService;
-    private final ApplicationEventPublisher eventPublisher;
+    private final BookingOutboxService bookingOutbox;
+    private final BookingIntervalIndex intervalIndex;
+    private final SpotSelectionService spotSelectionService;
+    private final SpotContentionTracker contentionTracker;
+    private final SpotAdmissionQueue admissionQueue;
+    private final BookingCombiner bookingCombiner;
+    private final BookingStatusTransitions statusTransitions;
+    private final SpotLockFence spotFence;
+    private final Executor bookingReadExecutor;
 
     public BookingLifecycleService(BookingRepository bookingRepository,
                                   UserService userService,
@@ -59,7 +82,15 @@ public class BookingLifecycleService {
                                   BookingBreakupService breakupService,
                                   UserRepository userRepository,
                                   LockService lockService,
-                                  ApplicationEventPublisher eventPublisher) {
+                                  BookingOutboxService bookingOutbox,
+                                  BookingIntervalIndex intervalIndex,
+                                  SpotSelectionService spotSelectionService,
+                                  SpotContentionTracker contentionTracker,
+                                  SpotAdmissionQueue admissionQueue,
+                                  BookingCombiner bookingCombiner,
+                                  BookingStatusTransitions statusTransitions,
+                                  SpotLockFence spotFence,
+                                  @Qualifier("bookingReadExecutor") Executor bookingReadExecutor) {
         this.bookingRepository = bookingRepository;
         this.userService = userService;
         this.walletService = walletService;
@@ -69,17 +100,27 @@ public class BookingLifecycleService {
         this.breakupService = breakupService;
         this.userRepository = userRepository;
         this.lockService = lockService;
-        this.eventPublisher = eventPublisher;
+        this.bookingOutbox = bookingOutbox;
+        this.intervalIndex = intervalIndex;
+        this.spotSelectionService = spotSelectionService;
+        this.contentionTracker = contentionTracker;
+        this.admissionQueue = admissionQueue;
+        this.bookingCombiner = bookingCombiner;
+        this.statusTransitions = statusTransitions;
+        this.spotFence = spotFence;
+        this.bookingReadExecutor = bookingReadExecutor;
     }
 
     /**
      * Creates a new booking with proper concurrency control and ACID guarantees
      *
      * CONCURRENCY STRATEGY:
+     * 0. Admission Queue - Same-spot requests take turns in arrival order; full queue or sold-out spot = instant 409
+     *    Spots with leased capacity (app.capacity-leasing.lots) skip steps 0 and 1: their units come from a local pool
      * 1. Distributed Lock (Redis/MongoDB) - Prevents multiple instances from processing same spot
      * 2. Optimistic Locking - MongoDB's findAndModify ensures atomic spot reservation
      * 3. Transaction Management - All operations within transaction boundary
-     * 4. Retry Mechanism - Handles transient failures due to contention
+     * 4. Retry Mechanism - Handles transient failures due to contention (never for sold-out / full queue)
      *
      * RACE CONDITION HANDLING:
      * - If 1000 users try to book 10 spots, distributed lock ensures serialized access per spot
@@ -92,6 +133,7 @@ public class BookingLifecycleService {
      */
     @Retryable(
         value = {ConflictException.class},
+        noRetryFor = {SpotUnavailableException.class},
         maxAttempts = MAX_RETRY_ATTEMPTS,
         backoff = @Backoff(delay = 100, multiplier = 2, maxDelay = 1000)
     )
@@ -105,19 +147,32 @@ public class BookingLifecycleService {
         BookingUtility.validateTimes(checkInTime, checkOutTime);
         BookingUtility.validateBookingWindow(checkInTime, checkOutTime);
 
-        // STEP 2: Fetch required entities (read-only operations)
-        ParkingSpot spot = parkingSpotService.getParkingSpotById(spotId);
+        // Shed the herd: a reservation on this spot just failed for lack of capacity
+        if (parkingSpotService.isKnownSoldOut(spotId)) {
+            throw new SpotUnavailableException("No spots available - booking full");
+        }
+
+        // STEP 2: Fetch required entities concurrently (independent reads, one overall timeout)
+        CompletableFuture<ParkingSpot> spotRead = readAsync(() -> parkingSpotService.getParkingSpotById(spotId));
+        CompletableFuture<Optional<Users>> userRead = readAsync(() -> userService.findById(userId));
+        CompletableFuture<Optional<Wallet>> walletRead = readAsync(() -> walletService.findByUserId(userId));
+        awaitPreLockReads(spotRead, userRead, walletRead);
+
+        ParkingSpot spot = spotRead.join();
         if (spot == null) {
             throw new NotFoundException("Parking spot not found");
         }
+        if (!parkingSpotService.isSlotInventoryEnabled() && spot.getAvailable() <= 0) {
+            throw new SpotUnavailableException("No spots available - booking full");
+        }
 
-        Users user = userService.findById(userId)
+        Users user = userRead.join()
                 .orElseThrow(() -> new NotFoundException("User not found"));
 
         // STEP 3: Calculate amount early to validate balance before acquiring lock
-        double amount = BookingUtility.calculateCharge(checkInTime, checkOutTime, spot.getBookingRate());
+        long amount = BookingUtility.calculateCharge(checkInTime, checkOutTime, spot.getBookingRate());
 
-        Wallet wallet = walletService.findByUserId(userId)
+        Wallet wallet = walletRead.join()
                 .orElseThrow(() -> new NotFoundException("Wallet not found"));
 
         if (!validationService.hasSufficientBalance(wallet, amount)) {
@@ -126,16 +181,131 @@ public class BookingLifecycleService {
             throw new InsufficientFundsException();
         }
 
+        // Leased capacity is taken with a local CAS, so there is nothing for the queue or the spot lock to order
+        if (parkingSpotService.isAdmittedFromLease(spotId)) {
+            return createBookingWithTransaction(spotId, userId, spot.getLotName(), checkInTime, checkOutTime,
+                                               vehicleNumber, amount, spot, UNFENCED);
+        }
+
         // STEP 4: CRITICAL SECTION - Use distributed lock for multi-instance coordination
         // This ensures only ONE instance processes booking for this spot at a time
         // LockService is either Redis (high-performance) or MongoDB (fallback)
-        return lockService.executeWithLock(spotId, LOCK_WAIT_TIME_MS, () -> {
-            logger.debug("Acquired distributed lock for spotId={}", spotId);
+        // Burst mode: one lock holder books every queued request for the spot in a single batch
+        if (bookingCombiner.isEnabled()) {
+            return bookingCombiner.submit(spot, userId, checkInTime, checkOutTime, vehicleNumber,
+                                          amount, LOCK_WAIT_TIME_MS);
+        }
 
-            // Execute the actual booking creation within transaction
-            return createBookingWithTransaction(spotId, userId, spot.getLotName(), checkInTime, checkOutTime,
-                                               vehicleNumber, amount, spot);
-        });
+        // Requests for this spot queue FIFO on this instance and share one overall wait budget
+        return admissionQueue.runInTurn(spotId, LOCK_WAIT_TIME_MS, remainingWaitMs ->
+                executeWithSpotLock(spotId, remainingWaitMs, fencingToken -> {
+                    logger.debug("Acquired distributed lock for spotId={} with fencing token {}", spotId, fencingToken);
+
+                    // Execute the actual booking creation within transaction
+                    return createBookingWithTransaction(spotId, userId, spot.getLotName(), checkInTime, checkOutTime,
+                                                       vehicleNumber, amount, spot, fencingToken);
+                }));
+    }
+
+    private <T> CompletableFuture<T> readAsync(Supplier<T> read) {
+        return CompletableFuture.supplyAsync(read, bookingReadExecutor);
+    }
+
+    /**
+     * Waits for all pre-lock reads under one deadline
+     * The first failing read's exception is rethrown as-is; on timeout the remaining reads are cancelled
+     */
+    private void awaitPreLockReads(CompletableFuture<?>... reads) {
+        try {
+            CompletableFuture.allOf(reads).get(PRE_LOCK_READ_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to load booking data: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            cancelAll(reads);
+            throw new RuntimeException("Timed out loading booking data after " + PRE_LOCK_READ_TIMEOUT_MS + "ms");
+        } catch (InterruptedException e) {
+            cancelAll(reads);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while loading booking data");
+        }
+    }
+
+    private void cancelAll(CompletableFuture<?>... reads) {
+        for (CompletableFuture<?> read : reads) {
+            read.cancel(true);
+        }
+    }
+
+    /**
+     * Creates a booking on any free spot of a lot, chosen by the server
+     *
+     * Candidates are ranked by zone preference, in-flight contention and remaining capacity
+     * (see SpotSelectionService). Each candidate gets only a short lock wait; a busy or full
+     * spot is skipped in favour of the next one instead of queueing behind the hot spot.
+     *
+     * @return Created booking
+     * @throws ConflictException if no spot in the lot could be booked
+     * @throws InsufficientFundsException if the wallet cannot pay for any remaining candidate
+     */
+    public Bookings createBookingInLot(String lotId, String userId,
+                                       ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
+                                       String vehicleNumber, String preferredZone) {
+        logger.info("Creating lot booking for lotId={}, userId={}, zone={}, timeRange=[{} to {}]",
+                    lotId, userId, preferredZone, checkInTime, checkOutTime);
+
+        BookingUtility.validateTimes(checkInTime, checkOutTime);
+        BookingUtility.validateBookingWindow(checkInTime, checkOutTime);
+
+        userService.findById(userId)
+                .orElseThrow(() -> new NotFoundException("User not found"));
+        Wallet wallet = walletService.findByUserId(userId)
+                .orElseThrow(() -> new NotFoundException("Wallet not found"));
+
+        List<ParkingSpot> candidates = spotSelectionService.rankCandidates(lotId, preferredZone);
+        boolean spotAttempted = false;
+
+        for (ParkingSpot spot : candidates) {
+            if (parkingSpotService.isKnownSoldOut(spot.getId())) {
+                continue;
+            }
+            long amount = BookingUtility.calculateCharge(checkInTime, checkOutTime, spot.getBookingRate());
+            if (!validationService.hasSufficientBalance(wallet, amount)) {
+                continue;
+            }
+
+            spotAttempted = true;
+            try {
+                return executeWithSpotLock(spot.getId(), CANDIDATE_LOCK_WAIT_MS, fencingToken ->
+                        createBookingWithTransaction(spot.getId(), userId, spot.getLotName(), checkInTime,
+                                                     checkOutTime, vehicleNumber, amount, spot, fencingToken));
+            } catch (LockAcquisitionException e) {
+                logger.debug("Spot {} busy, trying next candidate in lot {}", spot.getId(), lotId);
+            } catch (ConflictException e) {
+                logger.debug("Spot {} full, trying next candidate in lot {}", spot.getId(), lotId);
+            }
+        }
+
+        if (!candidates.isEmpty() && !spotAttempted) {
+            throw new InsufficientFundsException();
+        }
+        logger.warn("No bookable spot found in lot {} after {} candidates", lotId, candidates.size());
+        throw new ConflictException("No spots available in this lot");
+    }
+
+    /**
+     * Runs the operation under the spot's distributed lock while counting it as in-flight contention
+     */
+    private <T> T executeWithSpotLock(String spotId, long waitTimeMs,
+                                      LockService.FencedLockOperation<T> operation) {
+        contentionTracker.enter(spotId);
+        try {
+            return lockService.executeWithFencedLock(spotId, waitTimeMs, operation);
+        } finally {
+            contentionTracker.exit(spotId);
+        }
     }
 
     /**
@@ -149,36 +319,45 @@ public class BookingLifecycleService {
 //    )
     protected Bookings createBookingWithTransaction(String spotId, String userId, String lotName,
                                                     ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
-                                                    String vehicleNumber, double amount, ParkingSpot spot) {
+                                                    String vehicleNumber, long amount, ParkingSpot spot,
+                                                    long fencingToken) {
         logger.debug("Starting transaction for booking creation spotId={}", spotId);
 
-        try {
-            //TODO : time based spot check not possible. need to change db model
-
-            // STEP 6: ATOMIC OPERATION - Reserve spot using MongoDB's findAndModify
-            // This is the CRITICAL operation that prevents double-booking
-            // MongoDB ensures this operation is atomic across all instances
-            boolean spotReserved = parkingSpotService.atomicReserveSpotForBooking(spotId);
-            if (!spotReserved) {
-                logger.warn("Failed to reserve spot {} - no availability", spotId);
-                throw new ConflictException("No spots available - booking full");
-            }
+        // STEP 5: ATOMIC OPERATION - Reserve spot using MongoDB's findAndModify
+        // This is the CRITICAL operation that prevents double-booking
+        // MongoDB ensures this operation is atomic across all instances
+        // With app.booking.inventory-model=slots only the [checkIn, checkOut) buckets are reserved
+        // The fencing token is part of the reservation: a holder whose lease passed on is rejected here,
+        // before anything is charged or stored
+        boolean spotReserved = fencingToken == UNFENCED
+                ? parkingSpotService.reserveSpotForInterval(spot, checkInTime, checkOutTime)
+                : spotFence.reserve(spot, checkInTime, checkOutTime, fencingToken);
+        if (!spotReserved) {
+            logger.warn("Failed to reserve spot {} - no availability", spotId);
+            throw new SpotUnavailableException("No spots available - booking full");
+        }
 
-            logger.info("Successfully reserved spot {} for userId={}", spotId, userId);
+        logger.info("Successfully reserved spot {} for userId={}", spotId, userId);
 
-            // STEP 7: Deduct wallet balance and create transaction record
-            // If this fails, @Transactional will rollback and spot will be released
-            bookingWalletService.deductAndRecord(userId, amount, "Booking charge");
+        try {
+            // STEP 6: Deduct wallet balance and create transaction record
+            // Conditional debit: if the balance was spent concurrently since validation, give the spot back
+            try {
+                bookingWalletService.deductAndRecord(userId, amount, "Booking charge");
+            } catch (InsufficientFundsException e) {
+                parkingSpotService.releaseSpotForInterval(spotId, checkInTime, checkOutTime);
+                throw e;
+            }
 
-            // STEP 8: Create and persist booking
+            // STEP 7: Create and persist booking
             Bookings booking = createAndSaveBooking(spotId, userId, lotName, checkInTime,
                                                    checkOutTime, vehicleNumber, amount);
 
             logger.info("Booking created successfully: bookingId={}, spotId={}, userId={}",
                        booking.getId(), spotId, userId);
 
-            // STEP 9: Publish booking created event for async ParkingLot update
-            eventPublisher.publishEvent(new BookingEvent(
+            // STEP 8: Publish booking created event for async ParkingLot update
+            bookingOutbox.publish(new BookingEvent(
                 this,
                 booking.getId(),
                 lotName,
@@ -201,7 +380,7 @@ public class BookingLifecycleService {
                         spotId, e.getMessage(), e);
             // Release spot explicitly as a safety measure
             try {
-                parkingSpotService.incrementSpotAvailability(spotId);
+                parkingSpotService.releaseSpotForInterval(spotId, checkInTime, checkOutTime);
             } catch (Exception releaseEx) {
                 logger.error("Failed to release spot {} during error handling", spotId, releaseEx);
             }
@@ -209,7 +388,6 @@ public class BookingLifecycleService {
         }
     }
 
-
     private Bookings findBookingByAuthMode(String bookingId, CheckInMode mode, String vehicleNumber,
                                            String pin, String requiredStatus) {
         // If bookingId is provided (QR_CODE mode), use direct lookup - fastest path
@@ -271,15 +449,18 @@ public class BookingLifecycleService {
         ParkingSpot spot = parkingSpotService.findById(booking.getSpotId());
         if (spot == null) throw new NotFoundException("Parking spot not found");
 
-        // Update booking status to ACTIVE
-        ZonedDateTime now = ZonedDateTime.now();
-        booking.setStatus(BookingStatus.ACTIVE.name());
-        booking.setCheckInTime(Date.from(now.toInstant()));
-        booking.setActualCheckInTime(Date.from(now.toInstant()));
-        booking.setQrCodeScanned(true);
-        booking.setCheckInOperatorId(checkInOperatorId);  // Store operator ID who performed check-in
-
-        return bookingRepository.save(booking);
+        // Conditional PENDING -> ACTIVE: only the changed fields, in one round trip
+        Date now = new Date();
+        Bookings checkedIn = statusTransitions.transition(booking.getId(), BookingStatus.ACTIVE,
+                new Update()
+                        .set(Bookings.FIELD_CHECK_IN_TIME, now)
+                        .set(Bookings.FIELD_ACTUAL_CHECK_IN_TIME, now)
+                        .set(Bookings.FIELD_QR_CODE_SCANNED, true)
+                        .set(Bookings.FIELD_CHECK_IN_OPERATOR_ID, checkInOperatorId),  // operator who performed check-in
+                BookingStatus.PENDING);
+
+        return checkedIn != null ? checkedIn : duplicateTransition(booking.getId(), BookingStatus.ACTIVE,
+                "Only pending bookings can check in");
     }
 
     /**
@@ -308,29 +489,35 @@ public class BookingLifecycleService {
                 ? ZonedDateTime.ofInstant(booking.getActualCheckInTime().toInstant(), now.getZone())
                 : scheduledCheckIn;
 
-        double lateCheckInPenalty = BookingUtility.calculatePenaltyWithGrace(
+        long lateCheckInPenalty = BookingUtility.calculatePenaltyWithGrace(
             scheduledCheckIn, actualCheckIn, spot.getCheckInPenaltyRate());
-        double lateCheckOutPenalty = BookingUtility.calculatePenaltyWithGrace(
+        long lateCheckOutPenalty = BookingUtility.calculatePenaltyWithGrace(
             scheduledEnd, now, spot.getCheckOutPenaltyRate());
-        double totalPenalty = lateCheckInPenalty + lateCheckOutPenalty;
+        long totalPenalty = lateCheckInPenalty + lateCheckOutPenalty;
+
+        // Conditional ACTIVE -> COMPLETED: penalties, release and refunds only for the caller that won it
+        Bookings completed = statusTransitions.transition(booking.getId(), BookingStatus.COMPLETED,
+                new Update()
+                        .set(Bookings.FIELD_CHECK_OUT_TIME, Date.from(now.toInstant()))
+                        .set(Bookings.FIELD_QR_CODE_SCANNED, true)
+                        .set(Bookings.FIELD_AUTO_COMPLETED, false)
+                        .set(Bookings.FIELD_CHECK_OUT_OPERATOR_ID, checkOutOperatorId),  // operator who performed check-out
+                BookingEvent.BookingEventType.BOOKING_COMPLETED, BookingStatus.ACTIVE);
+        if (completed == null) {
+            return duplicateTransition(booking.getId(), BookingStatus.COMPLETED, "Booking is not active");
+        }
+        booking = completed;
 
         if (totalPenalty > 0) {
             bookingWalletService.applyPenaltyToWallet(booking.getUserId(), totalPenalty,
                 lateCheckInPenalty, lateCheckOutPenalty);
         }
 
-        booking.setStatus(BookingStatus.COMPLETED.name());
-        booking.setCheckOutTime(Date.from(now.toInstant()));
-        booking.setQrCodeScanned(true);
-        booking.setAutoCompleted(false);
-        booking.setCheckOutOperatorId(checkOutOperatorId);  // Store operator ID who performed check-out
-
-        bookingRepository.save(booking);
-        parkingSpotService.incrementSpotAvailability(booking.getSpotId());
+        parkingSpotService.releaseSpotForBooking(booking);
         breakupService.applyBreakupAndRefund(booking, spot, bookingWalletService);
 
         // Publish booking completed event for async ParkingLot update
-        eventPublisher.publishEvent(new BookingEvent(
+        bookingOutbox.publish(new BookingEvent(
             this,
             booking.getId(),
             booking.getLotName(),
@@ -360,12 +547,12 @@ public class BookingLifecycleService {
         ParkingSpot spot = parkingSpotService.findById(booking.getSpotId());
         if (spot == null) throw new NotFoundException("Parking spot not found");
 
-        double newAmount = BookingUtility.calculateCharge(
+        long newAmount = BookingUtility.calculateCharge(
                 ZonedDateTime.ofInstant(booking.getCheckInTime().toInstant(), newCheckOutTime.getZone()),
                 newCheckOutTime,
                 spot.getBookingRate()
         );
-        double diff = newAmount - booking.getAmount();
+        long diff = newAmount - booking.getAmount();
 
         if (diff > 0) {
             Wallet wallet = walletService.findByUserId(booking.getUserId())
@@ -373,31 +560,45 @@ public class BookingLifecycleService {
             if (!validationService.hasSufficientBalance(wallet, diff)) {
                 throw new InsufficientFundsException();
             }
-            bookingWalletService.deductAndRecord(booking.getUserId(), diff, "Booking extension charge");
         }
 
+        if (!parkingSpotService.reserveSpotExtension(spot, booking, newCheckOutTime)) {
+            throw new ConflictException("Cannot extend: spot is fully booked for the requested time");
+        }
+
+        if (diff > 0) {
+            try {
+                bookingWalletService.deductAndRecord(booking.getUserId(), diff, "Booking extension charge");
+            } catch (InsufficientFundsException e) {
+                parkingSpotService.releaseSpotExtension(booking, newCheckOutTime);
+                throw e;
+            }
+        }
+
+        if (booking.getReservedTo() != null) {
+            booking.setReservedTo(Date.from(newCheckOutTime.toInstant()));
+        }
         booking.setCheckOutTime(Date.from(newCheckOutTime.toInstant()));
         booking.setAmount(newAmount);
 
-        return bookingRepository.save(booking);
+        return saveAndIndex(booking);
     }
 
     public boolean cancelBooking(String bookingId) {
-        Bookings booking = findBookingOrThrow(bookingId);
-        if (BookingStatus.CANCELLED.name().equalsIgnoreCase(booking.getStatus())) {
-            return false;
-        }
-
-        if (BookingStatus.PENDING.name().equalsIgnoreCase(booking.getStatus()) ||
-            BookingStatus.ACTIVE.name().equalsIgnoreCase(booking.getStatus())) {
-            bookingWalletService.refundToWallet(booking.getUserId(),
-                booking.getAmount(), "Booking refund");
+        // Conditional PENDING/ACTIVE -> CANCELLED: a repeated cancel cannot refund twice
+        Bookings booking = statusTransitions.transition(bookingId, BookingStatus.CANCELLED, new Update(),
+                BookingEvent.BookingEventType.BOOKING_CANCELLED, BookingStatus.PENDING, BookingStatus.ACTIVE);
+        if (booking == null) {
+            Bookings current = findBookingOrThrow(bookingId);
+            if (BookingStatus.CANCELLED.name().equalsIgnoreCase(current.getStatus())) {
+                return false;
+            }
+            throw new IllegalStateException("Only pending or active bookings can be cancelled");
         }
 
-        booking.setStatus(BookingStatus.CANCELLED.name());
-
-        bookingRepository.save(booking);
-        parkingSpotService.incrementSpotAvailability(booking.getSpotId());
+        bookingWalletService.refundToWallet(booking.getUserId(),
+            booking.getAmount(), "Booking refund");
+        parkingSpotService.releaseSpotForBooking(booking);
 
         ParkingSpot spot = parkingSpotService.findById(booking.getSpotId());
         if (spot != null) {
@@ -405,7 +606,7 @@ public class BookingLifecycleService {
         }
 
         // Publish booking cancelled event for async ParkingLot update
-        eventPublisher.publishEvent(new BookingEvent(
+        bookingOutbox.publish(new BookingEvent(
             this,
             booking.getId(),
             booking.getLotName(),
@@ -421,19 +622,40 @@ public class BookingLifecycleService {
         if (status == null) {
             throw new IllegalArgumentException("Status cannot be null");
         }
-        Bookings booking = findBookingOrThrow(id);
-        String currentStatus = booking.getStatus();
-        if (BookingStatus.COMPLETED.name().equalsIgnoreCase(currentStatus) ||
-            BookingStatus.CANCELLED.name().equalsIgnoreCase(currentStatus)) {
+        Bookings booking = statusTransitions.transitionUnless(id, status,
+                BookingStatus.COMPLETED, BookingStatus.CANCELLED);
+        if (booking == null) {
+            findBookingOrThrow(id);
             throw new IllegalStateException("Cannot update status of completed/cancelled booking");
         }
-        booking.setStatus(status);
+        return booking;
+    }
 
-        return bookingRepository.save(booking);
+    /**
+     * A conditional transition matched nothing: a concurrent duplicate (e.g. second gate scan) already
+     * moved the booking to the target status, which is returned unchanged; anything else is an error
+     */
+    private Bookings duplicateTransition(String bookingId, BookingStatus target, String errorMessage) {
+        Bookings current = findBookingOrThrow(bookingId);
+        if (target.name().equalsIgnoreCase(current.getStatus())) {
+            logger.info("Duplicate {} transition for bookingId={} ignored", target, bookingId);
+            return current;
+        }
+        throw new IllegalStateException(errorMessage);
     }
 
     public void deleteBooking(String id) {
         bookingRepository.deleteById(id);
+        intervalIndex.remove(id);
+    }
+
+    /**
+     * Persists the booking and mirrors its interval into the in-memory overlap index
+     */
+    private Bookings saveAndIndex(Bookings booking) {
+        Bookings saved = bookingRepository.save(booking);
+        intervalIndex.upsert(saved);
+        return saved;
     }
 
     private Bookings findBookingOrThrow(String bookingId) {
@@ -443,8 +665,19 @@ public class BookingLifecycleService {
 
     private Bookings createAndSaveBooking(String spotId, String userId, String lotName,
                                          ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
-                                         String vehicleNumber, double amount) {
+                                         String vehicleNumber, long amount) {
+        return saveAndIndex(newPendingBooking(spotId, userId, lotName, checkInTime, checkOutTime,
+                vehicleNumber, amount, parkingSpotService.isSlotInventoryEnabled()));
+    }
+
+    /**
+     * Builds a new PENDING booking; reservedFrom/To are set when capacity was reserved per interval
+     */
+    static Bookings newPendingBooking(String spotId, String userId, String lotName,
+                                      ZonedDateTime checkInTime, ZonedDateTime checkOutTime,
+                                      String vehicleNumber, long amount, boolean intervalReserved) {
         Bookings booking = new Bookings();
+        booking.setId(new ObjectId().toHexString());
         booking.setSpotId(spotId);
         booking.setUserId(userId);
         booking.setLotName(lotName);
@@ -457,6 +690,13 @@ public class BookingLifecycleService {
         booking.setQrCodeScanned(false);
         booking.setActualCheckInTime(null);
         booking.setAutoCompleted(false);
-        return bookingRepository.save(booking);
+        if (intervalReserved) {
+            booking.setReservedFrom(Date.from(checkInTime.toInstant()));
+            booking.setReservedTo(Date.from(checkOutTime.toInstant()));
+        }
+        // Stored by the same insert as the booking; cleared once the event is delivered
+        booking.getPendingEvents().add(Bookings.PendingEvent.of(booking.getId(),
+                BookingEvent.BookingEventType.BOOKING_CREATED));
+        return booking;
     }
 }
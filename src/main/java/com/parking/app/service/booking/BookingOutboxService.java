@@ -0,0 +1,276 @@
+package com.parking.app.service.booking;
+
+import com.mongodb.client.result.UpdateResult;
+import com.parking.app.model.BookingOutboxEvent;
+import com.parking.app.model.Bookings;
+import com.parking.app.model.event.BookingEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional-outbox style delivery of BookingEvents
+ *
+ * Every booking change stores its event inside the booking document in the same write
+ * (Bookings.pendingEvents, see BookingStatusTransitions and newPendingBooking), so a change is never
+ * committed without its event. publish() then writes the delivery record to booking_outbox and
+ * hands the event to the in-memory listeners (fast path). Consumers apply an event only after
+ * claiming its record (PENDING -> DELIVERING), and mark it DELIVERED once applied, which also
+ * clears the event from its booking; each record is applied by one consumer at a time and
+ * duplicates from the relay are dropped. A consumer crashing between applying and marking is
+ * covered on the consumer side (ParkingLotService.applyAvailabilityDelta).
+ *
+ * The relay re-publishes records still PENDING after relay-grace-ms (instance died before the
+ * listener ran) and DELIVERING records whose claim is older than claim-timeout-ms (consumer died
+ * mid-delivery). It also records and publishes events still embedded in a booking after
+ * relay-grace-ms whose outbox write never happened. Delivery is therefore at least once, in
+ * batches of relay-batch-size.
+ */
+@Service
+public class BookingOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingOutboxService.class);
+
+    private final MongoOperations mongoOperations;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long relayGraceMs;
+    private final long claimTimeoutMs;
+    private final int relayBatchSize;
+
+    public BookingOutboxService(MongoOperations mongoOperations,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${app.booking.outbox.relay-grace-ms:30000}") long relayGraceMs,
+                                @Value("${app.booking.outbox.claim-timeout-ms:60000}") long claimTimeoutMs,
+                                @Value("${app.booking.outbox.relay-batch-size:200}") int relayBatchSize) {
+        this.mongoOperations = mongoOperations;
+        this.eventPublisher = eventPublisher;
+        this.relayGraceMs = relayGraceMs;
+        this.claimTimeoutMs = claimTimeoutMs;
+        this.relayBatchSize = relayBatchSize;
+    }
+
+    // ===== Producer =====
+
+    /**
+     * Persists the event to the outbox, then publishes it to in-memory listeners
+     * If the outbox write fails the event is left to the relay, which finds it on its booking
+     */
+    public void publish(BookingEvent event) {
+        BookingOutboxEvent outboxEvent = BookingOutboxEvent.from(event);
+        try {
+            mongoOperations.insert(outboxEvent);
+        } catch (DuplicateKeyException e) {
+            // Same booking transition recorded before (retry) - delivery is already tracked
+            logger.debug("Outbox event {} already recorded", outboxEvent.getId());
+        } catch (Exception e) {
+            logger.error("❌ Failed to write outbox event {}, leaving it to the relay: {}",
+                    outboxEvent.getId(), e.getMessage());
+            return;
+        }
+        event.setOutboxId(outboxEvent.getId());
+        eventPublisher.publishEvent(event);
+    }
+
+    /**
+     * Persists several events with one insertMany, then publishes them
+     */
+    public void publishAll(List<BookingEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<BookingOutboxEvent> outboxEvents = events.stream().map(BookingOutboxEvent::from).toList();
+        try {
+            mongoOperations.insertAll(outboxEvents);
+        } catch (Exception e) {
+            logger.warn("Batch outbox write failed ({}), recording events one by one", e.getMessage());
+            events.forEach(this::publish);
+            return;
+        }
+        for (int i = 0; i < events.size(); i++) {
+            events.get(i).setOutboxId(outboxEvents.get(i).getId());
+            eventPublisher.publishEvent(events.get(i));
+        }
+    }
+
+    // ===== Consumer =====
+
+    /**
+     * Claims the given records for delivery; records already delivered or claimed by a live
+     * delivery are left out
+     */
+    public OutboxClaim claim(Collection<String> outboxIds) {
+        String claimToken = UUID.randomUUID().toString();
+        if (outboxIds.isEmpty()) {
+            return new OutboxClaim(claimToken, Set.of());
+        }
+        Date now = new Date();
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where(BookingOutboxEvent.FIELD_ID).in(outboxIds),
+                claimableCriteria(now)));
+        Update update = new Update()
+                .set(BookingOutboxEvent.FIELD_STATUS, BookingOutboxEvent.Status.DELIVERING)
+                .set(BookingOutboxEvent.FIELD_CLAIM_TOKEN, claimToken)
+                .set(BookingOutboxEvent.FIELD_CLAIMED_AT, now)
+                .inc(BookingOutboxEvent.FIELD_ATTEMPTS, 1);
+
+        UpdateResult result = mongoOperations.updateMulti(query, update, BookingOutboxEvent.class);
+        if (result.getModifiedCount() == 0) {
+            return new OutboxClaim(claimToken, Set.of());
+        }
+        if (result.getModifiedCount() == outboxIds.size()) {
+            return new OutboxClaim(claimToken, Set.copyOf(outboxIds));
+        }
+
+        // Partially claimed: look up which ones carry our token
+        Query claimedQuery = new Query(Criteria.where(BookingOutboxEvent.FIELD_CLAIM_TOKEN).is(claimToken));
+        claimedQuery.fields().include(BookingOutboxEvent.FIELD_ID);
+        Set<String> claimed = mongoOperations.find(claimedQuery, BookingOutboxEvent.class).stream()
+                .map(BookingOutboxEvent::getId)
+                .collect(Collectors.toSet());
+        return new OutboxClaim(claimToken, claimed);
+    }
+
+    /**
+     * Marks every record of the claim as delivered
+     */
+    public void markDelivered(OutboxClaim claim) {
+        if (claim.outboxIds().isEmpty()) {
+            return;
+        }
+        Query query = new Query(Criteria.where(BookingOutboxEvent.FIELD_CLAIM_TOKEN).is(claim.claimToken()));
+        Update update = new Update()
+                .set(BookingOutboxEvent.FIELD_STATUS, BookingOutboxEvent.Status.DELIVERED)
+                .set(BookingOutboxEvent.FIELD_DELIVERED_AT, new Date())
+                .unset(BookingOutboxEvent.FIELD_CLAIM_TOKEN);
+        mongoOperations.updateMulti(query, update, BookingOutboxEvent.class);
+        clearPendingEvents(claim.outboxIds());
+    }
+
+    /**
+     * Outbox ids among the given ones that need no more tracking: delivered, or already removed by
+     * the retention TTL
+     */
+    public Set<String> findSettled(Collection<String> outboxIds) {
+        if (outboxIds.isEmpty()) {
+            return Set.of();
+        }
+        Query unsettledQuery = new Query(Criteria.where(BookingOutboxEvent.FIELD_ID).in(outboxIds)
+                .and(BookingOutboxEvent.FIELD_STATUS).ne(BookingOutboxEvent.Status.DELIVERED));
+        unsettledQuery.fields().include(BookingOutboxEvent.FIELD_ID);
+        Set<String> unsettled = mongoOperations.find(unsettledQuery, BookingOutboxEvent.class).stream()
+                .map(BookingOutboxEvent::getId)
+                .collect(Collectors.toSet());
+        return outboxIds.stream().filter(id -> !unsettled.contains(id)).collect(Collectors.toSet());
+    }
+
+    // Delivered events no longer need their copy inside the booking
+    private void clearPendingEvents(Collection<String> outboxIds) {
+        Set<String> bookingIds = outboxIds.stream()
+                .map(BookingOutboxEvent::bookingIdOf)
+                .collect(Collectors.toSet());
+        mongoOperations.updateMulti(new Query(Criteria.where(Bookings.FIELD_ID).in(bookingIds)),
+                new Update().pull(Bookings.FIELD_PENDING_EVENTS,
+                        new Document(Bookings.PendingEvent.FIELD_OUTBOX_ID, new Document("$in", outboxIds))),
+                Bookings.class);
+    }
+
+    // ===== Relay =====
+
+    @Scheduled(fixedDelayString = "${app.booking.outbox.relay-interval-ms:5000}",
+               initialDelayString = "${app.booking.outbox.relay-interval-ms:5000}")
+    public void relayUndelivered() {
+        try {
+            Date now = new Date();
+            Query query = new Query(new Criteria().orOperator(
+                    Criteria.where(BookingOutboxEvent.FIELD_STATUS).is(BookingOutboxEvent.Status.PENDING)
+                            .and(BookingOutboxEvent.FIELD_CREATED_AT).lt(new Date(now.getTime() - relayGraceMs)),
+                    Criteria.where(BookingOutboxEvent.FIELD_STATUS).is(BookingOutboxEvent.Status.DELIVERING)
+                            .and(BookingOutboxEvent.FIELD_CLAIMED_AT).lt(new Date(now.getTime() - claimTimeoutMs))))
+                    .with(Sort.by(Sort.Direction.ASC, BookingOutboxEvent.FIELD_CREATED_AT))
+                    .limit(relayBatchSize);
+
+            List<BookingOutboxEvent> undelivered = mongoOperations.find(query, BookingOutboxEvent.class);
+            for (BookingOutboxEvent outboxEvent : undelivered) {
+                BookingEvent event = new BookingEvent(this, outboxEvent.getBookingId(), outboxEvent.getLotName(),
+                        outboxEvent.getSpotId(), outboxEvent.getEventType(), outboxEvent.getUserId());
+                event.setOutboxId(outboxEvent.getId());
+                eventPublisher.publishEvent(event);
+            }
+            if (!undelivered.isEmpty()) {
+                logger.info("Relayed {} undelivered booking outbox events", undelivered.size());
+            }
+            relayUnrecorded(now);
+        } catch (Exception e) {
+            logger.error("❌ Booking outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Events still embedded in their booking after relay-grace-ms: records and publishes those whose
+     * outbox write never happened, and clears those already delivered
+     */
+    private void relayUnrecorded(Date now) {
+        Date cutoff = new Date(now.getTime() - relayGraceMs);
+        Query query = new Query(Criteria.where(Bookings.FIELD_PENDING_EVENT_AT).lt(cutoff)).limit(relayBatchSize);
+        query.fields().include(Bookings.FIELD_LOT_NAME, Bookings.FIELD_SPOT_ID, Bookings.FIELD_USER_ID,
+                Bookings.FIELD_PENDING_EVENTS);
+
+        int recorded = 0;
+        List<String> alreadyRecorded = new ArrayList<>();
+        for (Bookings booking : mongoOperations.find(query, Bookings.class)) {
+            for (Bookings.PendingEvent pending : booking.getPendingEvents()) {
+                if (!pending.getAt().before(cutoff)) {
+                    continue;
+                }
+                BookingEvent event = new BookingEvent(this, booking.getId(), booking.getLotName(),
+                        booking.getSpotId(), pending.getEventType(), booking.getUserId());
+                BookingOutboxEvent outboxEvent = BookingOutboxEvent.from(event);
+                try {
+                    mongoOperations.insert(outboxEvent);
+                } catch (DuplicateKeyException e) {
+                    // Recorded already; the record's own relay delivers it if it is not delivered yet
+                    alreadyRecorded.add(outboxEvent.getId());
+                    continue;
+                }
+                event.setOutboxId(outboxEvent.getId());
+                eventPublisher.publishEvent(event);
+                recorded++;
+            }
+        }
+        Set<String> settled = findSettled(alreadyRecorded);
+        if (!settled.isEmpty()) {
+            clearPendingEvents(settled);
+        }
+        if (recorded > 0) {
+            logger.info("Recorded and relayed {} booking events missing from the outbox", recorded);
+        }
+    }
+
+    private Criteria claimableCriteria(Date now) {
+        return new Criteria().orOperator(
+                Criteria.where(BookingOutboxEvent.FIELD_STATUS).is(BookingOutboxEvent.Status.PENDING),
+                Criteria.where(BookingOutboxEvent.FIELD_STATUS).is(BookingOutboxEvent.Status.DELIVERING)
+                        .and(BookingOutboxEvent.FIELD_CLAIMED_AT).lt(new Date(now.getTime() - claimTimeoutMs)));
+    }
+
+    public record OutboxClaim(String claimToken, Set<String> outboxIds) {
+    }
+}
@@ -0,0 +1,82 @@
+package com.parking.app.service.booking;
+
+import com.parking.app.constants.BookingStatus;
+import com.parking.app.model.Bookings;
+import com.parking.app.model.event.BookingEvent;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Conditional booking status transitions
+ *
+ * A transition is one findAndModify that matches the booking only while it is still in one of the
+ * expected statuses and sets just the status plus the fields the transition changes. Of two
+ * concurrent callers (e.g. two gate scanners reading the same car) exactly one gets the updated
+ * booking back; the other gets null and must skip side effects such as refunds and penalties.
+ */
+@Component
+public class BookingStatusTransitions {
+
+    private final MongoOperations mongoOperations;
+    private final BookingIntervalIndex intervalIndex;
+
+    public BookingStatusTransitions(MongoOperations mongoOperations, BookingIntervalIndex intervalIndex) {
+        this.mongoOperations = mongoOperations;
+        this.intervalIndex = intervalIndex;
+    }
+
+    /**
+     * Moves the booking to `to` if it is currently in one of `from`
+     * @param changes additional fields to set in the same update (may be empty)
+     * @return the updated booking, or null if it was not in an expected status (or does not exist)
+     */
+    public Bookings transition(String bookingId, BookingStatus to, Update changes, BookingStatus... from) {
+        List<String> expected = Arrays.stream(from).map(BookingStatus::name).toList();
+        Query query = new Query(Criteria.where(Bookings.FIELD_ID).is(bookingId)
+                .and(Bookings.FIELD_STATUS).in(expected));
+        Update update = changes.set(Bookings.FIELD_STATUS, to.name());
+
+        Bookings updated = mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Bookings.class);
+        if (updated != null) {
+            intervalIndex.upsert(updated);
+        }
+        return updated;
+    }
+
+    /**
+     * Same as above, and stores the booking event the transition publishes in the same update, so the
+     * event survives a crash before BookingOutboxService records it
+     * @return the updated booking, or null if it was not in an expected status (or does not exist)
+     */
+    public Bookings transition(String bookingId, BookingStatus to, Update changes,
+                               BookingEvent.BookingEventType event, BookingStatus... from) {
+        changes.push(Bookings.FIELD_PENDING_EVENTS, Bookings.PendingEvent.of(bookingId, event));
+        return transition(bookingId, to, changes, from);
+    }
+
+    /**
+     * Moves the booking to `to` unless it is currently in one of `terminal`
+     * @return the updated booking, or null if it was in a terminal status (or does not exist)
+     */
+    public Bookings transitionUnless(String bookingId, String to, BookingStatus... terminal) {
+        List<String> excluded = Arrays.stream(terminal).map(BookingStatus::name).toList();
+        Query query = new Query(Criteria.where(Bookings.FIELD_ID).is(bookingId)
+                .and(Bookings.FIELD_STATUS).nin(excluded));
+        Update update = new Update().set(Bookings.FIELD_STATUS, to);
+
+        Bookings updated = mongoOperations.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Bookings.class);
+        if (updated != null) {
+            intervalIndex.upsert(updated);
+        }
+        return updated;
+    }
+}
@@ -19,16 +19,24 @@ import java.util.Date;
 public class BookingValidationService {
 
     private final MongoOperations mongoOperations;
+    private final BookingIntervalIndex intervalIndex;
 
-    public BookingValidationService(MongoOperations mongoOperations) {
+    public BookingValidationService(MongoOperations mongoOperations, BookingIntervalIndex intervalIndex) {
         this.mongoOperations = mongoOperations;
+        this.intervalIndex = intervalIndex;
     }
 
-    public boolean hasSufficientBalance(Wallet wallet, double amount) {
-        return wallet.getBalance() >= Math.ceil(amount);
+    public boolean hasSufficientBalance(Wallet wallet, long amount) {
+        return wallet.getBalance() >= amount;
     }
 
     public void ensureNoBookingOverlap(String spotId, ZonedDateTime checkInTime, ZonedDateTime checkOutTime) {
+        if (intervalIndex.isReady()) {
+            if (intervalIndex.hasOverlap(spotId, checkInTime, checkOutTime, null)) {
+                throw new ConflictException("Booking time overlaps with an existing booking for this spot");
+            }
+            return;
+        }
         Query overlapQuery = new Query(
                 Criteria.where(Bookings.FIELD_SPOT_ID).is(spotId)
                         .andOperator(
@@ -43,6 +51,12 @@ public class BookingValidationService {
     }
 
     public void ensureNoBookingOverlapForExtension(String spotId, String bookingId, ZonedDateTime currentCheckOut, ZonedDateTime newCheckOutTime) {
+        if (intervalIndex.isReady()) {
+            if (intervalIndex.hasOverlap(spotId, currentCheckOut, newCheckOutTime, bookingId)) {
+                throw new ConflictException("Cannot extend: spot is booked for the requested time");
+            }
+            return;
+        }
         Query overlapQuery = new Query(
                 Criteria.where(Bookings.FIELD_SPOT_ID).is(spotId)
                         .andOperator(
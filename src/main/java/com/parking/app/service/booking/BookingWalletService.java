@@ -1,12 +1,24 @@
 package com.parking.app.service.booking;
 
+import com.parking.app.exception.InsufficientFundsException;
 import com.parking.app.model.Transactions;
 import com.parking.app.model.Wallet;
 import com.parking.app.service.TransactionService;
+import com.parking.app.service.WalletLedgerService;
 import com.parking.app.service.WalletService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service responsible for wallet operations related to bookings
@@ -14,52 +26,130 @@ import java.util.Date;
 @Service
 public class BookingWalletService {
 
+    private static final Logger logger = LoggerFactory.getLogger(BookingWalletService.class);
+    private static final String STATUS_COMPLETED = "completed";
+    private static final String REFUND_SUFFIX = ":refund";
+
     private final WalletService walletService;
     private final TransactionService transactionService;
+    private final MongoOperations mongoOperations;
+    private final WalletLedgerService walletLedgerService;
 
-    public BookingWalletService(WalletService walletService, TransactionService transactionService) {
+    public BookingWalletService(WalletService walletService, TransactionService transactionService,
+                                MongoOperations mongoOperations, WalletLedgerService walletLedgerService) {
         this.walletService = walletService;
         this.transactionService = transactionService;
+        this.mongoOperations = mongoOperations;
+        this.walletLedgerService = walletLedgerService;
     }
 
-    public void deductWalletBalance(Wallet wallet, double amount) {
-        wallet.setBalance(wallet.getBalance() - amount);
-        wallet.setLastUpdated(new Date());
-        walletService.save(wallet);
+    /**
+     * One debit of a batched booking charge (amount in paise); referenceId makes it idempotent
+     */
+    public record WalletDebit(String userId, long amount, String referenceId) {
     }
 
-    public void recordWalletTransaction(String userId, double amount, String description) {
+    public void recordWalletTransaction(String userId, long amount, String description) {
         transactionService.save(new Transactions(userId, amount, description, new Date()));
     }
 
-    public void deductAndRecord(String userId, double amount, String description) {
-        walletService.deductFromWallet(userId, amount);
-        walletService.recordWalletTransaction(userId, -amount, description);
+    /**
+     * Debits the wallet with one conditional update and records the transaction
+     * @throws InsufficientFundsException if the balance no longer covers the amount
+     */
+    public void deductAndRecord(String userId, long amount, String description) {
+        if (walletService.debit(userId, amount, description) == null) {
+            throw new InsufficientFundsException();
+        }
+    }
+
+    /**
+     * Charges several wallets, one conditional findAndModify per debit
+     *
+     * Each debit is a conditional $inc (balance >= amount) that also pushes its TransactionRef, so a
+     * debit applies at most once and never overdraws, and returns the ledger seq it took. The matching
+     * Transactions are inserted in one batch afterwards, already marked as projected so WalletProjector
+     * leaves the wallet alone.
+     *
+     * @return referenceIds of the debits that were applied (the rest had insufficient balance)
+     */
+    public Set<String> deductAndRecordBatch(List<WalletDebit> debits, String description) {
+        Set<String> applied = new HashSet<>();
+        List<Transactions> records = new ArrayList<>();
+        for (WalletDebit debit : debits) {
+            Wallet.TransactionRef ref = WalletService.newTransactionRef(description, -debit.amount());
+            ref.setReferenceId(debit.referenceId());
+            if (walletService.applyBalanceChange(debit.userId(), -debit.amount(), ref, true) == null) {
+                continue;
+            }
+            applied.add(debit.referenceId());
+            Transactions tx = new Transactions(debit.userId(), -debit.amount(), description, new Date());
+            tx.setReferenceId(debit.referenceId());
+            tx.setStatus(STATUS_COMPLETED);
+            tx.setProjection(Transactions.PROJECTION_DONE);
+            records.add(tx);
+        }
+        if (!records.isEmpty()) {
+            mongoOperations.insertAll(records);
+        }
+        return applied;
+    }
+
+    /**
+     * referenceIds among the given batch debits that were applied to their wallet, looked up by
+     * referenceId on the wallets' recent refs and in wallet_ledger, so a debit is found however
+     * many changes the wallet took since
+     */
+    public Set<String> findAppliedDebits(List<WalletDebit> debits) {
+        if (debits.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> userIds = debits.stream().map(WalletDebit::userId).collect(Collectors.toSet());
+        Set<String> referenceIds = debits.stream().map(WalletDebit::referenceId).collect(Collectors.toSet());
+
+        Query query = new Query(Criteria.where(Wallet.FIELD_USER_ID).in(userIds)
+                .and(Wallet.FIELD_TRANSACTION_REFERENCE_ID).in(referenceIds));
+        query.fields().include(Wallet.FIELD_TRANSACTION_REFERENCE_ID);
+
+        Set<String> applied = new HashSet<>(walletLedgerService.findRecorded(userIds, referenceIds));
+        for (Wallet wallet : mongoOperations.find(query, Wallet.class)) {
+            for (Wallet.TransactionRef ref : wallet.getTransactions()) {
+                if (referenceIds.contains(ref.getReferenceId())) {
+                    applied.add(ref.getReferenceId());
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Gives back a batched booking charge; keyed on the debit's referenceId, so it refunds at most once
+     */
+    public void refundBatchDebit(WalletDebit debit, String description) {
+        walletService.credit(debit.userId(), debit.amount(), description, debit.referenceId() + REFUND_SUFFIX);
     }
 
-    public void applyPenaltyToWallet(String userId, double totalPenalty,
-                                     double lateCheckInPenalty, double lateCheckOutPenalty) {
+    public void applyPenaltyToWallet(String userId, long totalPenalty,
+                                     long lateCheckInPenalty, long lateCheckOutPenalty) {
         if (totalPenalty > 0) {
-            walletService.deductFromWallet(userId, totalPenalty);
+            // Penalties are owed whatever the balance, so they may take the wallet below zero
             if (lateCheckInPenalty > 0) {
-                transactionService.save(new Transactions(userId, -lateCheckInPenalty,
-                    "Late check-in penalty", new Date()));
+                debitPenalty(userId, lateCheckInPenalty, "Late check-in penalty");
             }
             if (lateCheckOutPenalty > 0) {
-                transactionService.save(new Transactions(userId, -lateCheckOutPenalty,
-                    "Late check-out penalty", new Date()));
+                debitPenalty(userId, lateCheckOutPenalty, "Late check-out penalty");
             }
         }
     }
 
-    public void refundToWallet(String userId, double amount, String description) {
-        walletService.refundWalletAndRecordTransaction(
-            new com.parking.app.model.Bookings() {{
-                setUserId(userId);
-                setAmount(amount);
-            }}
-        );
-        transactionService.save(new Transactions(userId, amount, description, new Date()));
+    private void debitPenalty(String userId, long amount, String description) {
+        if (walletService.debit(userId, amount, description, false) == null) {
+            logger.error("❌ {} of {} paise not collected: no wallet for userId={}", description, amount, userId);
+        }
+    }
+
+    public void refundToWallet(String userId, long amount, String description) {
+        walletService.refund(userId, amount, description);
     }
 }
 
@@ -0,0 +1,83 @@
+package com.parking.app.service.booking;
+
+import com.parking.app.exception.LockAcquisitionException;
+import com.parking.app.exception.SpotUnavailableException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongFunction;
+
+/**
+ * Per-spot FIFO admission queue for booking requests on this instance
+ *
+ * Requests for the same spot take turns in arrival order (fair semaphore) before competing for
+ * the distributed lock, so the lock is handed out in order instead of to whichever poller wins.
+ * The queue is bounded: once app.booking.admission.max-queue-length requests are waiting, new
+ * ones are rejected immediately with 409 rather than timing out after the full lock wait. A
+ * request whose turn does not come within its wait budget gets the same 409.
+ *
+ * LocalStripedLockService also queues same-instance lock contenders FIFO, but on shared stripes,
+ * unbounded, for every lock user, and only when local striping is enabled. This queue is per spot
+ * and bounded, and only booking creation goes through it; a request in turn only waits on its
+ * stripe for checkouts, cancels or a spot sharing the stripe.
+ */
+@Component
+public class SpotAdmissionQueue {
+
+    private final int maxQueueLength;
+    private final Map<String, SpotQueue> queuesBySpot = new ConcurrentHashMap<>();
+
+    public SpotAdmissionQueue(@Value("${app.booking.admission.max-queue-length:100}") int maxQueueLength) {
+        this.maxQueueLength = maxQueueLength;
+    }
+
+    /**
+     * Waits for this request's turn on the spot, then runs the operation with the remaining wait budget
+     * @throws SpotUnavailableException if the queue is already full or the turn does not come within waitTimeMs
+     * @throws LockAcquisitionException if interrupted while waiting
+     */
+    public <T> T runInTurn(String spotId, long waitTimeMs, LongFunction<T> operation) {
+        long startTime = System.currentTimeMillis();
+        SpotQueue queue = queuesBySpot.compute(spotId, (id, existing) -> {
+            SpotQueue current = existing == null ? new SpotQueue() : existing;
+            current.members.incrementAndGet();
+            return current;
+        });
+
+        try {
+            // Members = the request in turn + everyone waiting behind it
+            if (queue.members.get() > maxQueueLength + 1) {
+                throw new SpotUnavailableException("Too many bookings queued for this spot - please try again shortly");
+            }
+            if (!queue.turn.tryAcquire(waitTimeMs, TimeUnit.MILLISECONDS)) {
+                throw new SpotUnavailableException("Timed out waiting for this spot's booking queue - please try again shortly");
+            }
+            try {
+                return operation.apply(Math.max(0, waitTimeMs - (System.currentTimeMillis() - startTime)));
+            } finally {
+                queue.turn.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LockAcquisitionException("Interrupted waiting in booking queue for spot: " + spotId);
+        } finally {
+            // Drop the queue once empty so the map only holds spots with waiting requests
+            queuesBySpot.computeIfPresent(spotId, (id, current) -> current.members.decrementAndGet() <= 0 ? null : current);
+        }
+    }
+
+    public int getQueueLength(String spotId) {
+        SpotQueue queue = queuesBySpot.get(spotId);
+        return queue == null ? 0 : queue.members.get();
+    }
+
+    private static final class SpotQueue {
+        private final Semaphore turn = new Semaphore(1, true);
+        private final AtomicInteger members = new AtomicInteger();
+    }
+}
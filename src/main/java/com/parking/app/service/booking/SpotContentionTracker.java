@@ -0,0 +1,31 @@
+package com.parking.app.service.booking;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how many booking requests on this instance are currently waiting for
+ * or holding the lock of each spot. Used to steer lot-level bookings away from hot spots.
+ */
+@Component
+public class SpotContentionTracker {
+
+    private final Map<String, AtomicInteger> inFlightBySpot = new ConcurrentHashMap<>();
+
+    public void enter(String spotId) {
+        inFlightBySpot.computeIfAbsent(spotId, id -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void exit(String spotId) {
+        // Drop the counter once idle so the map only holds spots that are actually contended
+        inFlightBySpot.computeIfPresent(spotId, (id, counter) -> counter.decrementAndGet() <= 0 ? null : counter);
+    }
+
+    public int getInFlight(String spotId) {
+        AtomicInteger counter = inFlightBySpot.get(spotId);
+        return counter == null ? 0 : counter.get();
+    }
+}
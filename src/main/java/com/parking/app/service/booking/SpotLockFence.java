@@ -0,0 +1,79 @@
+package com.parking.app.service.booking;
+
+import com.parking.app.exception.LockAcquisitionException;
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.service.ParkingSpotService;
+import com.parking.app.service.lock.LockFenceFloor;
+import com.parking.app.service.lock.LockService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Fenced reservations for the holder of a spot lock
+ *
+ * The fence travels with the reservation write itself (see ParkingSpotService), so a holder whose lease
+ * passed to someone else cannot take capacity; charge and booking insert follow only a reservation
+ * that got through. A rejected token is either a stale holder or a fence counter that went back
+ * (lost Redis data, provider switch). The second case is made visible (booking.lock.fence.rejected)
+ * and recoverable: the counter is raised past the spot's lockFence, so the retry gets a token that passes.
+ */
+@Component
+public class SpotLockFence {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpotLockFence.class);
+
+    private final ParkingSpotService parkingSpotService;
+    private final LockService lockService;
+    private final LockFenceFloor fenceFloor;
+    private final Counter rejections;
+
+    public SpotLockFence(ParkingSpotService parkingSpotService,
+                         LockService lockService,
+                         LockFenceFloor fenceFloor,
+                         MeterRegistry meterRegistry) {
+        this.parkingSpotService = parkingSpotService;
+        this.lockService = lockService;
+        this.fenceFloor = fenceFloor;
+        this.rejections = Counter.builder("booking.lock.fence.rejected")
+                .description("Writes under a spot lock rejected because a newer fencing token had written")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws LockAcquisitionException if a holder with a newer token has already written to the spot
+     */
+    public boolean reserve(ParkingSpot spot, ZonedDateTime checkIn, ZonedDateTime checkOut, long fencingToken) {
+        try {
+            return parkingSpotService.reserveSpotForInterval(spot, checkIn, checkOut, fencingToken);
+        } catch (LockAcquisitionException e) {
+            throw rejected(spot.getId(), fencingToken, e);
+        }
+    }
+
+    /**
+     * @return number of units taken
+     * @throws LockAcquisitionException if a holder with a newer token has already written to the spot
+     */
+    public int reserveUnits(String spotId, int units, long fencingToken) {
+        try {
+            return parkingSpotService.reserveSpotUnits(spotId, units, fencingToken);
+        } catch (LockAcquisitionException e) {
+            throw rejected(spotId, fencingToken, e);
+        }
+    }
+
+    private LockAcquisitionException rejected(String spotId, long fencingToken, LockAcquisitionException e) {
+        rejections.increment();
+        long floor = fenceFloor.of(spotId);
+        // No-op if a newer holder exists; repairs the counter if it was reset
+        lockService.seedFencingToken(spotId, floor);
+        logger.warn("Stale lock holder for spot {} (fencing token {}, spot fence {}) - aborting reservation",
+                spotId, fencingToken, floor);
+        return e;
+    }
+}
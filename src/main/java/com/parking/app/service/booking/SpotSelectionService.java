@@ -0,0 +1,54 @@
+package com.parking.app.service.booking;
+
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.service.ParkingSpotService;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Service responsible for choosing which spot of a lot a lot-level booking should try first
+ */
+@Service
+public class SpotSelectionService {
+
+    private final ParkingSpotService parkingSpotService;
+    private final SpotContentionTracker contentionTracker;
+
+    public SpotSelectionService(ParkingSpotService parkingSpotService, SpotContentionTracker contentionTracker) {
+        this.parkingSpotService = parkingSpotService;
+        this.contentionTracker = contentionTracker;
+    }
+
+    /**
+     * Returns the lot's bookable spots ordered by preference:
+     * preferred zone first, then fewest in-flight requests on this instance, then most remaining capacity.
+     * In slot inventory mode the `available` counter is not maintained, so capacity is used instead.
+     */
+    public List<ParkingSpot> rankCandidates(String lotId, String preferredZone) {
+        boolean slotInventory = parkingSpotService.isSlotInventoryEnabled();
+
+        Comparator<ParkingSpot> order = Comparator
+                .comparing((ParkingSpot spot) -> !matchesZone(spot, preferredZone))
+                .thenComparingInt(spot -> contentionTracker.getInFlight(spot.getId()))
+                .thenComparing(Comparator.comparingInt(
+                        (ParkingSpot spot) -> remainingCapacity(spot, slotInventory)).reversed());
+
+        return parkingSpotService.getSpotsByLotId(lotId).stream()
+                .filter(ParkingSpot::isActive)
+                .filter(spot -> remainingCapacity(spot, slotInventory) > 0)
+                .sorted(order)
+                .collect(Collectors.toList());
+    }
+
+    private boolean matchesZone(ParkingSpot spot, String preferredZone) {
+        return preferredZone != null && !preferredZone.isBlank()
+                && preferredZone.equalsIgnoreCase(spot.getZoneName());
+    }
+
+    private int remainingCapacity(ParkingSpot spot, boolean slotInventory) {
+        return slotInventory ? spot.getCapacity() : spot.getAvailable();
+    }
+}
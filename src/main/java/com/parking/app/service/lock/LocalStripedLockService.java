@@ -0,0 +1,127 @@
+package com.parking.app.service.lock;
+
+import com.parking.app.exception.LockAcquisitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Two-level lock: local striped JVM lock in front of the distributed provider
+ * ACTIVE when: app.locking.local-striping.enabled=true (default), see LockConfig
+ *
+ * Same-instance contenders for a spot queue on a fair in-process stripe first, so only
+ * one thread per instance at a time polls Redis/MongoDB for that spot. The local permit is
+ * held until the distributed lock is released, then handed to the next local waiter in FIFO order.
+ * Different spots may share a stripe; with the default 256 stripes that is rare and only
+ * delays, never blocks, the other spot.
+ */
+public class LocalStripedLockService implements LockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalStripedLockService.class);
+
+    private final LockService delegate;
+    private final LockLeaseWatchdog leaseWatchdog;
+    private final Semaphore[] stripes;
+
+    // Distributed lock token -> stripe permit held for it
+    private final Map<String, Semaphore> heldStripes = new ConcurrentHashMap<>();
+
+    public LocalStripedLockService(LockService delegate, LockLeaseWatchdog leaseWatchdog, int stripeCount) {
+        this.delegate = delegate;
+        this.leaseWatchdog = leaseWatchdog;
+        this.stripes = new Semaphore[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Semaphore(1, true);
+        }
+        logger.info("✅ Local striped locking ENABLED ({} stripes) in front of {}",
+                stripes.length, delegate.getClass().getSimpleName());
+    }
+
+    @Override
+    public String acquireLock(String spotId, long waitTimeMs) {
+        Semaphore stripe = stripeFor(spotId);
+        long startTime = System.currentTimeMillis();
+
+        try {
+            if (!stripe.tryAcquire(waitTimeMs, TimeUnit.MILLISECONDS)) {
+                logger.warn("Failed to acquire local lock stripe for spot {} after {}ms", spotId, waitTimeMs);
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        String lockValue = null;
+        try {
+            long remainingMs = Math.max(0, waitTimeMs - (System.currentTimeMillis() - startTime));
+            lockValue = delegate.acquireLock(spotId, remainingMs);
+            if (lockValue != null) {
+                heldStripes.put(lockValue, stripe);
+            }
+            return lockValue;
+        } finally {
+            if (lockValue == null) {
+                stripe.release();
+            }
+        }
+    }
+
+    @Override
+    public boolean releaseLock(String spotId, String lockValue) {
+        try {
+            return delegate.releaseLock(spotId, lockValue);
+        } finally {
+            Semaphore stripe = heldStripes.remove(lockValue);
+            if (stripe != null) {
+                stripe.release();
+            }
+        }
+    }
+
+    @Override
+    public int releaseLocks(Map<String, String> lockValuesBySpot) {
+        try {
+            return delegate.releaseLocks(lockValuesBySpot);
+        } finally {
+            for (String lockValue : lockValuesBySpot.values()) {
+                Semaphore stripe = heldStripes.remove(lockValue);
+                if (stripe != null) {
+                    stripe.release();
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean renewLock(String spotId, String lockValue) {
+        return delegate.renewLock(spotId, lockValue);
+    }
+
+    @Override
+    public void seedFencingToken(String spotId, long floor) {
+        delegate.seedFencingToken(spotId, floor);
+    }
+
+    @Override
+    public long getLeaseTtlMs() {
+        return delegate.getLeaseTtlMs();
+    }
+
+    @Override
+    public <T> T executeWithFencedLock(String spotId, long waitTimeMs, FencedLockOperation<T> operation) {
+        String lockToken = acquireLock(spotId, waitTimeMs);
+        if (lockToken == null) {
+            throw new LockAcquisitionException("Unable to acquire lock for spot: " + spotId);
+        }
+        return leaseWatchdog.runWithRenewal(this, spotId, lockToken, operation);
+    }
+
+    private Semaphore stripeFor(String spotId) {
+        return stripes[Math.floorMod(spotId.hashCode(), stripes.length)];
+    }
+}
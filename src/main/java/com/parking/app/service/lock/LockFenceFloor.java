@@ -0,0 +1,29 @@
+package com.parking.app.service.lock;
+
+import com.parking.app.model.ParkingSpot;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Durable lower bound for a spot's fencing tokens: the highest token that has written to the spot
+ * (ParkingSpot.lockFence). Lock providers seed a counter from it when the counter starts over,
+ * e.g. after Redis lost its data or after switching provider.
+ */
+@Component
+public class LockFenceFloor {
+
+    private final MongoOperations mongoOperations;
+
+    public LockFenceFloor(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    public long of(String spotId) {
+        Query query = new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId));
+        query.fields().include(ParkingSpot.FIELD_LOCK_FENCE);
+        ParkingSpot spot = mongoOperations.findOne(query, ParkingSpot.class);
+        return spot != null ? spot.getLockFence() : 0;
+    }
+}
@@ -0,0 +1,78 @@
+package com.parking.app.service.lock;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps lock leases alive while the critical section runs
+ *
+ * Renews every TTL/3, so a lock only expires if its holder stops renewing (crash, long GC pause).
+ * Short TTLs therefore free crashed holders quickly without cutting off slow bookings.
+ * If a renewal finds the lock gone, the holder keeps running but its fenced writes are rejected.
+ */
+@Component
+public class LockLeaseWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(LockLeaseWatchdog.class);
+    private static final int RENEWALS_PER_TTL = 3;
+    private static final long MIN_RENEW_INTERVAL_MS = 100;
+    private static final int RENEWAL_THREADS = 2;
+
+    private final ScheduledExecutorService scheduler;
+
+    public LockLeaseWatchdog() {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.scheduler = Executors.newScheduledThreadPool(RENEWAL_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "lock-renewal-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the operation with the given lock's fencing token, renewing the lease until it finishes,
+     * then releases the lock
+     */
+    public <T> T runWithRenewal(LockService lockService, String spotId, String lockValue,
+                                LockService.FencedLockOperation<T> operation) {
+        long intervalMs = Math.max(MIN_RENEW_INTERVAL_MS, lockService.getLeaseTtlMs() / RENEWALS_PER_TTL);
+        AtomicBoolean lost = new AtomicBoolean();
+        ScheduledFuture<?> renewal = scheduler.scheduleAtFixedRate(
+                () -> renew(lockService, spotId, lockValue, lost), intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+        try {
+            return operation.execute(LockService.fencingTokenOf(lockValue));
+        } finally {
+            renewal.cancel(false);
+            lockService.releaseLock(spotId, lockValue);
+        }
+    }
+
+    private void renew(LockService lockService, String spotId, String lockValue, AtomicBoolean lost) {
+        if (lost.get()) {
+            return;
+        }
+        try {
+            if (!lockService.renewLock(spotId, lockValue)) {
+                lost.set(true);
+                logger.warn("⚠️ Lease on spot {} lost before the operation finished - writes are fenced off", spotId);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to renew lock lease for spot {}: {}", spotId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,103 @@
+package com.parking.app.service.lock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wakes lock waiters as soon as a spot lock is released
+ *
+ * Each spot has a release generation. A waiter reads the generation before its acquire attempt
+ * and, if the attempt fails, waits until the generation moves on - so a release that lands
+ * between the failed attempt and the wait is never missed. Releases are reported by the local
+ * release path and by the provider's cross-instance feed (Redis pub/sub, booking_locks change stream).
+ * Waits are always capped by the caller, which covers TTL expiry and lost notifications.
+ *
+ * With app.locking.wake-on-release.enabled=false every wait sleeps its full cap instead, which is
+ * the sleep-polling behaviour the providers had before (LockHandoffBenchmarkTest compares the two).
+ */
+@Component
+public class LockReleaseNotifier {
+
+    // One entry per spot ever contended; bounded by the number of spots
+    private final Map<String, ReleaseSignal> signals = new ConcurrentHashMap<>();
+    private final boolean wakeOnRelease;
+
+    public LockReleaseNotifier(@Value("${app.locking.wake-on-release.enabled:true}") boolean wakeOnRelease) {
+        this.wakeOnRelease = wakeOnRelease;
+    }
+
+    public long currentGeneration(String spotId) {
+        return signalFor(spotId).generation();
+    }
+
+    /**
+     * Waits until the spot's generation differs from observedGeneration or maxWaitMs passes
+     * @return true if a release was observed; always false when wake-on-release is disabled
+     */
+    public boolean awaitRelease(String spotId, long observedGeneration, long maxWaitMs) throws InterruptedException {
+        if (maxWaitMs <= 0) {
+            return false;
+        }
+        if (!wakeOnRelease) {
+            Thread.sleep(maxWaitMs);
+            return false;
+        }
+        return signalFor(spotId).await(observedGeneration, maxWaitMs);
+    }
+
+    public void notifyReleased(String spotId) {
+        signalFor(spotId).signal();
+    }
+
+    private ReleaseSignal signalFor(String spotId) {
+        return signals.computeIfAbsent(spotId, id -> new ReleaseSignal());
+    }
+
+    private static final class ReleaseSignal {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        private long generation;
+
+        long generation() {
+            lock.lock();
+            try {
+                return generation;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean await(long observedGeneration, long maxWaitMs) throws InterruptedException {
+            long remainingNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+            lock.lock();
+            try {
+                while (generation == observedGeneration) {
+                    if (remainingNanos <= 0) {
+                        return false;
+                    }
+                    remainingNanos = released.awaitNanos(remainingNanos);
+                }
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void signal() {
+            lock.lock();
+            try {
+                generation++;
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
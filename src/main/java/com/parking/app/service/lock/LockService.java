@@ -1,11 +1,19 @@
 package com.parking.app.service.lock;
 
+import java.util.Map;
+
 /**
  * Abstraction for distributed locking mechanism
  * Allows switching between Redis and MongoDB implementations
+ *
+ * Lock values have the form "<fencingToken>:<ownerId>". The fencing token grows monotonically
+ * per spot with every acquisition, so writes made under the lock can reject a holder whose
+ * lease has already passed to someone else.
  */
 public interface LockService {
 
+    String TOKEN_SEPARATOR = ":";
+
     /**
      * Acquires a distributed lock for a parking spot
      * @param spotId The parking spot ID
@@ -22,19 +30,82 @@ public interface LockService {
      */
     boolean releaseLock(String spotId, String lockValue);
 
+    /**
+     * Releases several distributed locks at once
+     * @param lockValuesBySpot Lock token per parking spot ID
+     * @return number of locks actually released
+     */
+    default int releaseLocks(Map<String, String> lockValuesBySpot) {
+        int released = 0;
+        for (Map.Entry<String, String> lock : lockValuesBySpot.entrySet()) {
+            if (releaseLock(lock.getKey(), lock.getValue())) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Extends the lease of a held lock by another lease TTL
+     * @param spotId The parking spot ID
+     * @param lockValue The lock token received during acquisition
+     * @return false if the lock is no longer held with this token
+     */
+    boolean renewLock(String spotId, String lockValue);
+
+    /**
+     * Raises the spot's fencing counter so every token issued from now on is above floor.
+     * Used when a token was rejected by the spot's durable lockFence: if the counter was lost or
+     * restarted, the next acquisition is ahead of the fence again instead of failing forever.
+     */
+    void seedFencingToken(String spotId, long floor);
+
+    /**
+     * Lease duration of an acquired lock before it expires unless renewed
+     */
+    long getLeaseTtlMs();
+
+    /**
+     * Execute operation with distributed lock, renewing the lease while it runs
+     * @param spotId The parking spot ID
+     * @param waitTimeMs Maximum time to wait for lock
+     * @param operation The operation to execute, given the lock's fencing token
+     * @return Result of the operation
+     * @throws com.parking.app.exception.LockAcquisitionException if lock cannot be acquired
+     */
+    <T> T executeWithFencedLock(String spotId, long waitTimeMs, FencedLockOperation<T> operation);
+
     /**
      * Execute operation with distributed lock
      * @param spotId The parking spot ID
      * @param waitTimeMs Maximum time to wait for lock
      * @param operation The operation to execute
      * @return Result of the operation
-     * @throws RuntimeException if lock cannot be acquired
+     * @throws com.parking.app.exception.LockAcquisitionException if lock cannot be acquired
      */
-    <T> T executeWithLock(String spotId, long waitTimeMs, LockOperation<T> operation);
+    default <T> T executeWithLock(String spotId, long waitTimeMs, LockOperation<T> operation) {
+        return executeWithFencedLock(spotId, waitTimeMs, fencingToken -> operation.execute());
+    }
+
+    static String buildLockValue(long fencingToken, String ownerId) {
+        return fencingToken + TOKEN_SEPARATOR + ownerId;
+    }
+
+    static long fencingTokenOf(String lockValue) {
+        return Long.parseLong(lockValue.substring(0, lockValue.indexOf(TOKEN_SEPARATOR)));
+    }
+
+    static String ownerOf(String lockValue) {
+        return lockValue.substring(lockValue.indexOf(TOKEN_SEPARATOR) + 1);
+    }
 
     @FunctionalInterface
     interface LockOperation<T> {
         T execute();
     }
-}
 
+    @FunctionalInterface
+    interface FencedLockOperation<T> {
+        T execute(long fencingToken);
+    }
+}
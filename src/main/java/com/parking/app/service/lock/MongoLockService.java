@@ -1,13 +1,17 @@
 package com.parking.app.service.lock;
 
 import com.mongodb.DuplicateKeyException;
+import com.parking.app.exception.LockAcquisitionException;
 import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
@@ -20,11 +24,18 @@ import java.util.UUID;
  * Purpose: No-Redis fallback for low-traffic environments
  * Performance: 5-10ms lock operations, uses main database
  *
- * Implementation: Uses MongoDB's unique index on lock collection
- * - acquireLock() -> tries to insert document with spotId as _id
- * - If insert succeeds -> lock acquired
- * - If DuplicateKeyException -> lock held by another process
- * - TTL index auto-expires locks to prevent deadlocks
+ * Implementation: one lock document per spot with the spotId as _id
+ * - acquireLock() -> one findAndModify (upsert) that matches the spot's document only while it is
+ *   free (released, or its lease expired) and sets the owner, lease and $inc fence together, so
+ *   the fencing token is issued by the same write that takes the lock
+ * - If the document is held, the upsert's insert hits the _id index (DuplicateKeyException)
+ * - Expired leases are taken over by that same write; no TTL monitor is involved
+ * - Release unsets lockValue instead of deleting, so the fence counter lives as long as the spot
+ * - A counter that starts over (new spot, first run after the provider switch) is seeded from
+ *   ParkingSpot.lockFence
+ * - Leases are short (app.locking.lease-ttl-ms) and renewed by LockLeaseWatchdog
+ * - Waiters are woken by LockReleaseNotifier on local releases, and on releases from other
+ *   instances when the booking_locks change stream is enabled (LockReleaseChangeStreamConfig)
  */
 @Service
 @ConditionalOnProperty(name = "app.locking.provider", havingValue = "mongodb")
@@ -32,35 +43,48 @@ public class MongoLockService implements LockService {
 
     private static final Logger logger = LoggerFactory.getLogger(MongoLockService.class);
     private static final String LOCK_COLLECTION = "booking_locks";
-    private static final long DEFAULT_LOCK_TIMEOUT_MS = 30000; // 30 seconds
+    private static final String LEGACY_TTL_INDEX = "expiresAt_1";
+    private static final String FIELD_LOCK_VALUE = "lockValue";
+    private static final String FIELD_EXPIRES_AT = "expiresAt";
+    private static final String FIELD_FENCE = "fence";
 
     private final MongoTemplate mongoTemplate;
-
-    public MongoLockService(MongoTemplate mongoTemplate) {
+    private final LockReleaseNotifier releaseNotifier;
+    private final LockLeaseWatchdog leaseWatchdog;
+    private final LockFenceFloor fenceFloor;
+    private final long leaseTtlMs;
+
+    public MongoLockService(MongoTemplate mongoTemplate,
+                            LockReleaseNotifier releaseNotifier,
+                            LockLeaseWatchdog leaseWatchdog,
+                            LockFenceFloor fenceFloor,
+                            @Value("${app.locking.lease-ttl-ms:5000}") long leaseTtlMs) {
         this.mongoTemplate = mongoTemplate;
-        createLockCollectionIndexes();
+        this.releaseNotifier = releaseNotifier;
+        this.leaseWatchdog = leaseWatchdog;
+        this.fenceFloor = fenceFloor;
+        this.leaseTtlMs = leaseTtlMs;
+        dropLegacyTtlIndex();
         logger.info("⚠️ MongoDB Lock Service ENABLED - Fallback mode for low-traffic environments");
         logger.info("   For production with high load, switch to Redis: app.locking.provider=redis");
     }
 
     /**
-     * Create TTL index to auto-expire locks and prevent deadlocks
+     * Lock documents used to be deleted on release and by a TTL index on expiresAt. They now keep
+     * the spot's fence counter, so the TTL index must not remove them.
      */
-    private void createLockCollectionIndexes() {
+    private void dropLegacyTtlIndex() {
         try {
-            mongoTemplate.getCollection(LOCK_COLLECTION)
-                    .createIndex(new Document("expiresAt", 1),
-                            new com.mongodb.client.model.IndexOptions()
-                                    .expireAfter(0L, java.util.concurrent.TimeUnit.SECONDS));
-            logger.debug("Created TTL index on booking_locks collection");
+            mongoTemplate.getCollection(LOCK_COLLECTION).dropIndex(LEGACY_TTL_INDEX);
+            logger.info("Dropped TTL index on booking_locks - lock documents now carry the fence counter");
         } catch (Exception e) {
-            logger.warn("Failed to create TTL index (may already exist): {}", e.getMessage());
+            logger.debug("No TTL index to drop on booking_locks: {}", e.getMessage());
         }
     }
 
     @Override
     public String acquireLock(String spotId, long waitTimeMs) {
-        String lockValue = UUID.randomUUID().toString();
+        String ownerId = UUID.randomUUID().toString();
         long startTime = System.currentTimeMillis();
         int attemptCount = 0;
         long backoffMs = 50; // Start with 50ms backoff
@@ -72,23 +96,21 @@ public class MongoLockService implements LockService {
         while (System.currentTimeMillis() - startTime < waitTimeMs) {
             attemptCount++;
             long elapsedMs = System.currentTimeMillis() - startTime;
+            long generation = releaseNotifier.currentGeneration(spotId);
 
             try {
-                Document lock = new Document()
-                        .append("_id", spotId)
-                        .append("lockValue", lockValue)
-                        .append("acquiredAt", new Date())
-                        .append("threadName", Thread.currentThread().getName())
-                        .append("expiresAt", new Date(System.currentTimeMillis() + DEFAULT_LOCK_TIMEOUT_MS));
-
-                mongoTemplate.insert(lock, LOCK_COLLECTION);
+                Document lock = takeLock(spotId, ownerId);
+                long fencingToken = ((Number) lock.get(FIELD_FENCE)).longValue();
+                if (fencingToken == 1) {
+                    fencingToken = seedNewCounter(spotId, ownerId);
+                }
 
                 logger.info("✅ Thread {} ACQUIRED lock for spot {} (attempt #{}, elapsed: {}ms)",
                     Thread.currentThread().getName(), spotId, attemptCount, elapsedMs);
-                return lockValue;
+                return LockService.buildLockValue(fencingToken, ownerId);
 
             } catch (DuplicateKeyException | org.springframework.dao.DuplicateKeyException e) {
-                // Lock already held by another thread - wait and retry with exponential backoff
+                // Lock held by another owner with a live lease - wait and retry with exponential backoff
                 // This catches both com.mongodb.DuplicateKeyException and org.springframework.dao.DuplicateKeyException
                 long remainingTime = waitTimeMs - elapsedMs;
 
@@ -105,10 +127,12 @@ public class MongoLockService implements LockService {
                 }
 
                 try {
-                    // Exponential backoff: 50ms -> 100ms -> 200ms -> 400ms -> 500ms (capped)
+                    // Woken early by a release; otherwise re-check with exponential backoff
+                    // 50ms -> 100ms -> 200ms -> 400ms -> 500ms (capped), which covers TTL expiry
                     long sleepTime = Math.min(backoffMs, Math.min(maxBackoffMs, remainingTime));
-                    Thread.sleep(sleepTime);
-                    backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                    if (!releaseNotifier.awaitRelease(spotId, generation, sleepTime)) {
+                        backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                    }
 
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
@@ -133,15 +157,15 @@ public class MongoLockService implements LockService {
     @Override
     public boolean releaseLock(String spotId, String lockValue) {
         try {
-            // Only delete if we own the lock (verify lockValue matches)
+            // Only free it if we own the lock (verify lockValue matches); the document and its fence stay
             Query query = Query.query(
                     Criteria.where("_id").is(spotId)
-                            .and("lockValue").is(lockValue)
+                            .and(FIELD_LOCK_VALUE).is(LockService.ownerOf(lockValue))
             );
+            Update update = new Update().unset(FIELD_LOCK_VALUE).set(FIELD_EXPIRES_AT, new Date());
 
-            Document result = mongoTemplate.findAndRemove(query, Document.class, LOCK_COLLECTION);
-
-            if (result != null) {
+            if (mongoTemplate.updateFirst(query, update, LOCK_COLLECTION).getModifiedCount() > 0) {
+                releaseNotifier.notifyReleased(spotId);
                 logger.info("🔓 Thread {} RELEASED lock for spot {} with token {}",
                     Thread.currentThread().getName(), spotId, lockValue);
                 return true;
@@ -157,16 +181,73 @@ public class MongoLockService implements LockService {
     }
 
     @Override
-    public <T> T executeWithLock(String spotId, long waitTimeMs, LockOperation<T> operation) {
+    public boolean renewLock(String spotId, String lockValue) {
+        Query query = Query.query(
+                Criteria.where("_id").is(spotId)
+                        .and(FIELD_LOCK_VALUE).is(LockService.ownerOf(lockValue)));
+        Update update = new Update().set(FIELD_EXPIRES_AT, new Date(System.currentTimeMillis() + leaseTtlMs));
+        return mongoTemplate.updateFirst(query, update, LOCK_COLLECTION).getMatchedCount() > 0;
+    }
+
+    @Override
+    public void seedFencingToken(String spotId, long floor) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(spotId)),
+                new Update().max(FIELD_FENCE, floor), LOCK_COLLECTION);
+        logger.warn("Fence counter for spot {} raised to at least {}", spotId, floor);
+    }
+
+    @Override
+    public long getLeaseTtlMs() {
+        return leaseTtlMs;
+    }
+
+    @Override
+    public <T> T executeWithFencedLock(String spotId, long waitTimeMs, FencedLockOperation<T> operation) {
         String lockToken = acquireLock(spotId, waitTimeMs);
         if (lockToken == null) {
-            throw new RuntimeException("Unable to acquire MongoDB lock for spot: " + spotId);
+            throw new LockAcquisitionException("Unable to acquire MongoDB lock for spot: " + spotId);
         }
+        return leaseWatchdog.runWithRenewal(this, spotId, lockToken, operation);
+    }
 
-        try {
-            return operation.execute();
-        } finally {
-            releaseLock(spotId, lockToken);
+    /**
+     * Takes the lock and the next fencing token in one write: matches the spot's lock document only
+     * if it is released or its lease has run out, otherwise the upsert's insert fails on _id
+     */
+    private Document takeLock(String spotId, String ownerId) {
+        Date now = new Date();
+        Query free = Query.query(Criteria.where("_id").is(spotId).orOperator(
+                Criteria.where(FIELD_LOCK_VALUE).exists(false),
+                Criteria.where(FIELD_EXPIRES_AT).lt(now)));
+        Update take = new Update()
+                .set(FIELD_LOCK_VALUE, ownerId)
+                .set("acquiredAt", now)
+                .set("threadName", Thread.currentThread().getName())
+                .set(FIELD_EXPIRES_AT, new Date(now.getTime() + leaseTtlMs))
+                .inc(FIELD_FENCE, 1L);
+        return mongoTemplate.findAndModify(free, take,
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, LOCK_COLLECTION);
+    }
+
+    /**
+     * The counter just started at 1: move it past every token that may already have written to the
+     * spot. Only the lock holder writes the fence, so this is safe while we hold the lock.
+     */
+    private long seedNewCounter(String spotId, String ownerId) {
+        long floor = fenceFloor.of(spotId);
+        if (floor < 1) {
+            return 1;
+        }
+        Document lock = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(spotId).and(FIELD_LOCK_VALUE).is(ownerId)),
+                new Update().max(FIELD_FENCE, floor + 1),
+                FindAndModifyOptions.options().returnNew(true),
+                Document.class,
+                LOCK_COLLECTION);
+        if (lock == null) {
+            throw new LockAcquisitionException("Lost MongoDB lock for spot " + spotId + " while seeding its fence");
         }
+        logger.info("Seeded fence counter for spot {} at {}", spotId, lock.get(FIELD_FENCE));
+        return ((Number) lock.get(FIELD_FENCE)).longValue();
     }
 }
@@ -1,13 +1,22 @@
 package com.parking.app.service.lock;
 
+import com.parking.app.exception.LockAcquisitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Redis-based Distributed Lock Service
@@ -15,6 +24,14 @@ import java.util.concurrent.TimeUnit;
  *
  * Purpose: High-performance distributed locking for multi-instance deployments
  * Performance: <1ms lock operations, automatic TTL, no database overhead
+ * Waiters are woken through the RELEASE_CHANNEL pub/sub message instead of sleep-polling
+ * Leases are short (app.locking.lease-ttl-ms) and renewed by LockLeaseWatchdog; fencing tokens
+ * come from a per-spot INCR counter taken right after the lock is won. Redis may lose that counter
+ * (no persistence, failover), so an INCR that returns 1 is seeded from ParkingSpot.lockFence.
+ *
+ * Acquire (SET NX + INCR fence), release (owner check + DEL + PUBLISH) and renew (owner check +
+ * PEXPIRE) are Lua scripts, so each is one atomic round trip. Lock and fence keys share a
+ * {spotId} hash tag to stay in one slot on Redis Cluster.
  */
 @Service
 @ConditionalOnProperty(name = "app.locking.provider", havingValue = "redis", matchIfMissing = true)
@@ -22,33 +39,95 @@ public class RedisLockService implements LockService {
 
     private static final Logger logger = LoggerFactory.getLogger(RedisLockService.class);
     private static final String LOCK_PREFIX = "booking:lock:";
-    private static final long DEFAULT_LOCK_TIMEOUT_MS = 10000; // 10 seconds
+    private static final String FENCE_SUFFIX = ":fence";
+    private static final long MAX_RELEASE_WAIT_MS = 200; // fallback re-check for expired locks / lost messages
+    private static final long NOT_ACQUIRED = 0L;
+    private static final long SCRIPT_OK = 1L;
+
+    // Every instance subscribes (RedisConfig) and wakes its local waiters for the released spotId
+    public static final String RELEASE_CHANNEL = "booking:lock:released";
+
+    // KEYS[1]=lock, KEYS[2]=fence; ARGV[1]=owner, ARGV[2]=ttl ms -> fencing token, or 0 if held
+    private static final String ACQUIRE_SCRIPT =
+            "if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then "
+                    + "return redis.call('INCR', KEYS[2]) "
+                    + "end "
+                    + "return 0";
+
+    // KEYS[1]=fence; ARGV[1]=floor -> counter after raising it to at least floor
+    private static final String SEED_SCRIPT =
+            "local current = tonumber(redis.call('GET', KEYS[1]) or '0') "
+                    + "local floor = tonumber(ARGV[1]) "
+                    + "if current < floor then "
+                    + "redis.call('SET', KEYS[1], floor) "
+                    + "return floor "
+                    + "end "
+                    + "return current";
+
+    // KEYS[1]=lock; ARGV[1]=owner, ARGV[2]=channel, ARGV[3]=spotId -> 1 if released
+    private static final String RELEASE_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('PUBLISH', ARGV[2], ARGV[3]) "
+                    + "return 1 "
+                    + "end "
+                    + "return 0";
+
+    // KEYS[1]=lock; ARGV[1]=owner, ARGV[2]=ttl ms -> 1 if renewed
+    private static final String RENEW_SCRIPT =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then "
+                    + "return redis.call('PEXPIRE', KEYS[1], ARGV[2]) "
+                    + "end "
+                    + "return 0";
+
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>(ACQUIRE_SCRIPT, Long.class);
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>(RELEASE_SCRIPT, Long.class);
+    private static final RedisScript<Long> RENEW = new DefaultRedisScript<>(RENEW_SCRIPT, Long.class);
+    private static final RedisScript<Long> SEED = new DefaultRedisScript<>(SEED_SCRIPT, Long.class);
 
     private final RedisTemplate<String, String> redisTemplate;
-
-    public RedisLockService(RedisTemplate<String, String> redisTemplate) {
+    private final LockReleaseNotifier releaseNotifier;
+    private final LockLeaseWatchdog leaseWatchdog;
+    private final LockFenceFloor fenceFloor;
+    private final long leaseTtlMs;
+
+    public RedisLockService(RedisTemplate<String, String> redisTemplate,
+                            LockReleaseNotifier releaseNotifier,
+                            LockLeaseWatchdog leaseWatchdog,
+                            LockFenceFloor fenceFloor,
+                            @Value("${app.locking.lease-ttl-ms:5000}") long leaseTtlMs) {
         this.redisTemplate = redisTemplate;
+        this.releaseNotifier = releaseNotifier;
+        this.leaseWatchdog = leaseWatchdog;
+        this.fenceFloor = fenceFloor;
+        this.leaseTtlMs = leaseTtlMs;
         logger.info("✅ Redis Lock Service ENABLED - High-performance distributed locking active");
     }
 
     @Override
     public String acquireLock(String spotId, long waitTimeMs) {
-        String lockKey = LOCK_PREFIX + spotId;
-        String lockValue = UUID.randomUUID().toString();
+        String ownerId = UUID.randomUUID().toString();
         long startTime = System.currentTimeMillis();
 
         while (System.currentTimeMillis() - startTime < waitTimeMs) {
-            Boolean acquired = redisTemplate.opsForValue()
-                    .setIfAbsent(lockKey, lockValue, DEFAULT_LOCK_TIMEOUT_MS, TimeUnit.MILLISECONDS);
-
-            if (Boolean.TRUE.equals(acquired)) {
+            long generation = releaseNotifier.currentGeneration(spotId);
+            Long fencingToken = redisTemplate.execute(ACQUIRE,
+                    List.of(lockKey(spotId), fenceKey(spotId)), ownerId, String.valueOf(leaseTtlMs));
+
+            if (fencingToken != null && fencingToken != NOT_ACQUIRED) {
+                if (fencingToken == 1) {
+                    // Counter was missing: only we hold the lock, so move it past the spot's durable fence
+                    fencingToken = seed(spotId, fenceFloor.of(spotId) + 1);
+                }
+                String lockValue = LockService.buildLockValue(fencingToken, ownerId);
                 logger.debug("Acquired Redis lock for spot {} with token {}", spotId, lockValue);
                 return lockValue;
             }
 
-            // Small backoff to reduce contention
+            // Wait for a release notification instead of polling
+            long remainingMs = waitTimeMs - (System.currentTimeMillis() - startTime);
             try {
-                Thread.sleep(50);
+                releaseNotifier.awaitRelease(spotId, generation, Math.min(remainingMs, MAX_RELEASE_WAIT_MS));
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
                 return null;
@@ -61,12 +140,12 @@ public class RedisLockService implements LockService {
 
     @Override
     public boolean releaseLock(String spotId, String lockValue) {
-        String lockKey = LOCK_PREFIX + spotId;
-        String currentValue = redisTemplate.opsForValue().get(lockKey);
+        // Only release if we own the lock - checked and deleted atomically by the script
+        Long released = redisTemplate.execute(RELEASE, List.of(lockKey(spotId)),
+                LockService.ownerOf(lockValue), RELEASE_CHANNEL, spotId);
 
-        // Only release if we own the lock
-        if (lockValue.equals(currentValue)) {
-            redisTemplate.delete(lockKey);
+        if (released != null && released == SCRIPT_OK) {
+            releaseNotifier.notifyReleased(spotId);
             logger.debug("Released Redis lock for spot {} with token {}", spotId, lockValue);
             return true;
         }
@@ -75,18 +154,78 @@ public class RedisLockService implements LockService {
         return false;
     }
 
+    /**
+     * Releases several spot locks in one pipelined round trip
+     */
+    @Override
+    public int releaseLocks(Map<String, String> lockValuesBySpot) {
+        List<String> spotIds = new ArrayList<>(lockValuesBySpot.keySet());
+        byte[] script = RELEASE_SCRIPT.getBytes(StandardCharsets.UTF_8);
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String spotId : spotIds) {
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 1,
+                        bytes(lockKey(spotId)),
+                        bytes(LockService.ownerOf(lockValuesBySpot.get(spotId))),
+                        bytes(RELEASE_CHANNEL),
+                        bytes(spotId));
+            }
+            return null;
+        });
+
+        int releasedCount = 0;
+        for (int i = 0; i < spotIds.size(); i++) {
+            if (results.get(i) instanceof Long released && released == SCRIPT_OK) {
+                releaseNotifier.notifyReleased(spotIds.get(i));
+                releasedCount++;
+            } else {
+                logger.warn("Failed to release Redis lock for spot {} - token mismatch", spotIds.get(i));
+            }
+        }
+        logger.debug("Released {}/{} Redis locks in one pipeline", releasedCount, spotIds.size());
+        return releasedCount;
+    }
+
     @Override
-    public <T> T executeWithLock(String spotId, long waitTimeMs, LockOperation<T> operation) {
+    public boolean renewLock(String spotId, String lockValue) {
+        Long renewed = redisTemplate.execute(RENEW, List.of(lockKey(spotId)),
+                LockService.ownerOf(lockValue), String.valueOf(leaseTtlMs));
+        return renewed != null && renewed == SCRIPT_OK;
+    }
+
+    @Override
+    public void seedFencingToken(String spotId, long floor) {
+        logger.warn("Fence counter for spot {} raised to {}", spotId, seed(spotId, floor));
+    }
+
+    private long seed(String spotId, long floor) {
+        Long counter = redisTemplate.execute(SEED, List.of(fenceKey(spotId)), String.valueOf(floor));
+        return counter != null ? counter : floor;
+    }
+
+    @Override
+    public long getLeaseTtlMs() {
+        return leaseTtlMs;
+    }
+
+    @Override
+    public <T> T executeWithFencedLock(String spotId, long waitTimeMs, FencedLockOperation<T> operation) {
         String lockToken = acquireLock(spotId, waitTimeMs);
         if (lockToken == null) {
-            throw new RuntimeException("Unable to acquire Redis lock for spot: " + spotId);
+            throw new LockAcquisitionException("Unable to acquire Redis lock for spot: " + spotId);
         }
+        return leaseWatchdog.runWithRenewal(this, spotId, lockToken, operation);
+    }
 
-        try {
-            return operation.execute();
-        } finally {
-            releaseLock(spotId, lockToken);
-        }
+    private String lockKey(String spotId) {
+        return LOCK_PREFIX + "{" + spotId + "}";
+    }
+
+    private String fenceKey(String spotId) {
+        return lockKey(spotId) + FENCE_SUFFIX;
     }
-}
 
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
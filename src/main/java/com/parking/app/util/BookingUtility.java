@@ -36,20 +36,28 @@ public class BookingUtility {
         }
     }
 
-    public static double calculatePenaltyWithGrace(ZonedDateTime scheduled, ZonedDateTime actual, double ratePerMinute) {
+    /**
+     * @param ratePerMinute paise per minute late
+     * @return penalty in paise
+     */
+    public static long calculatePenaltyWithGrace(ZonedDateTime scheduled, ZonedDateTime actual, long ratePerMinute) {
         long minutesLate = java.time.Duration.between(scheduled, actual).toMinutes();
         if (minutesLate <= 10) {
             return 0;
         }
-        return (minutesLate - 10) * ratePerMinute;
+        return Money.times(ratePerMinute, minutesLate - 10);
     }
 
-    public static double calculateCharge(ZonedDateTime from, ZonedDateTime to, double bookingRate) {
+    /**
+     * @param bookingRate paise per started hour
+     * @return charge in paise
+     */
+    public static long calculateCharge(ZonedDateTime from, ZonedDateTime to, long bookingRate) {
         long hours = java.time.temporal.ChronoUnit.HOURS.between(from, to);
         if (from.plusHours(hours).isBefore(to)) {
             hours++;
         }
-        return hours * bookingRate;
+        return Money.times(bookingRate, hours);
     }
 }
 
@@ -0,0 +1,61 @@
+package com.parking.app.util;
+
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money as a primitive long count of paise (1/100 rupee)
+ *
+ * Amounts, balances and rates are stored, summed and compared in paise, so sums are exact and
+ * Mongo $inc never drifts. Rupees only appear at the edges: the REST API (see {@link Paise}) and
+ * the payment gateway.
+ */
+public final class Money {
+
+    public static final long PAISE_PER_RUPEE = 100;
+    private static final int RUPEE_SCALE = 2;
+
+    private Money() {
+    }
+
+    /**
+     * Rupees from a request or a legacy double field, rounded half-up to the nearest paisa
+     */
+    public static long ofRupees(double rupees) {
+        return ofRupees(BigDecimal.valueOf(rupees));
+    }
+
+    public static long ofRupees(BigDecimal rupees) {
+        return rupees.movePointRight(RUPEE_SCALE).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toRupees(long paise) {
+        return BigDecimal.valueOf(paise, RUPEE_SCALE);
+    }
+
+    /**
+     * rate * units, failing loudly instead of wrapping around
+     */
+    public static long times(long paisePerUnit, long units) {
+        return Math.multiplyExact(paisePerUnit, units);
+    }
+
+    /**
+     * Reads a stored amount: int64 is paise (the app only ever writes longs); doubles, int32 and
+     * decimals are rupees written before the switch to paise or by hand
+     */
+    public static long fromStored(Object value) {
+        if (value instanceof Long paise) {
+            return paise;
+        }
+        if (value instanceof Decimal128 decimal) {
+            return ofRupees(decimal.bigDecimalValue());
+        }
+        if (value instanceof Number number) {
+            return ofRupees(number.doubleValue());
+        }
+        return 0;
+    }
+}
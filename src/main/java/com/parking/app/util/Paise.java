@@ -0,0 +1,26 @@
+package com.parking.app.util;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.springframework.data.convert.ValueConverter;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a long field holding paise
+ *
+ * Stored as an int64 (legacy double rupee values are read and converted, see PaiseValueConverter)
+ * and shown as rupees with two decimals in JSON, both ways.
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+@ValueConverter(PaiseValueConverter.class)
+@JacksonAnnotationsInside
+@JsonSerialize(using = PaiseJson.RupeeSerializer.class)
+@JsonDeserialize(using = PaiseJson.RupeeDeserializer.class)
+public @interface Paise {
+}
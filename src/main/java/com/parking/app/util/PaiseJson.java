@@ -0,0 +1,33 @@
+package com.parking.app.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * JSON side of {@link Paise}: the API keeps speaking rupees
+ */
+public final class PaiseJson {
+
+    private PaiseJson() {
+    }
+
+    public static class RupeeSerializer extends JsonSerializer<Long> {
+        @Override
+        public void serialize(Long paise, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(Money.toRupees(paise));
+        }
+    }
+
+    public static class RupeeDeserializer extends JsonDeserializer<Long> {
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return Money.ofRupees(parser.getDecimalValue());
+        }
+    }
+}
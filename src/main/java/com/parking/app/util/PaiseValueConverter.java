@@ -0,0 +1,20 @@
+package com.parking.app.util;
+
+import org.springframework.data.mongodb.core.convert.MongoConversionContext;
+import org.springframework.data.mongodb.core.convert.MongoValueConverter;
+
+/**
+ * Mongo side of {@link Paise}: writes the long as is, reads int64 as paise and anything else as rupees
+ */
+public class PaiseValueConverter implements MongoValueConverter<Long, Object> {
+
+    @Override
+    public Long read(Object value, MongoConversionContext context) {
+        return Money.fromStored(value);
+    }
+
+    @Override
+    public Object write(Long value, MongoConversionContext context) {
+        return value;
+    }
+}
@@ -0,0 +1,120 @@
+package com.parking.app.benchmark;
+
+import com.parking.app.integration.BaseIntegrationTest;
+import com.parking.app.service.lock.LockService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Request throughput while many requests are parked on one contended spot lock
+ * Simulates the servlet layer: a 200-thread platform pool (Tomcat's default max) versus one
+ * virtual thread per request. Hot requests all book the same spot; cold requests lock their own
+ * spot and should not be delayed by the hot ones. With the platform pool, hot requests waiting
+ * on the lock occupy every worker and cold requests queue behind them.
+ */
+@Tag("benchmark")
+public class LockContentionLoadBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int SERVLET_POOL_THREADS = 200;
+    private static final int HOT_REQUESTS = 1000;
+    private static final int COLD_REQUESTS = 200;
+    private static final long HOLD_TIME_MS = 5;
+    private static final long WAIT_TIME_MS = 60000;
+
+    @Autowired
+    private LockService lockService;
+
+    @Test
+    @DisplayName("Platform thread pool - throughput under lock contention")
+    void platformThreads() throws InterruptedException {
+        report("platform pool (" + SERVLET_POOL_THREADS + " threads)",
+                run(Executors.newFixedThreadPool(SERVLET_POOL_THREADS)));
+    }
+
+    @Test
+    @DisplayName("Virtual threads - throughput under lock contention")
+    void virtualThreads() throws InterruptedException {
+        report("virtual thread per request", run(Executors.newVirtualThreadPerTaskExecutor()));
+    }
+
+    private void report(String name, Result result) {
+        logger.info("📊 {}: {} requests/s, cold request avg latency {}ms, max {}ms", name,
+                String.format("%.0f", result.throughput()),
+                String.format("%.2f", result.avgColdLatencyMs()),
+                String.format("%.2f", result.maxColdLatencyMs()));
+        assertEquals(HOT_REQUESTS + COLD_REQUESTS, result.completed());
+    }
+
+    private Result run(ExecutorService executor) throws InterruptedException {
+        String hotSpotId = "bench-hot-" + UUID.randomUUID();
+        CountDownLatch done = new CountDownLatch(HOT_REQUESTS + COLD_REQUESTS);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicLong totalColdNanos = new AtomicLong();
+        AtomicLong maxColdNanos = new AtomicLong();
+
+        long startTime = System.nanoTime();
+        // Hot requests first so they fill the pool before the cold ones arrive, as in a booking burst
+        for (int i = 0; i < HOT_REQUESTS; i++) {
+            executor.submit(() -> {
+                try {
+                    lockService.executeWithLock(hotSpotId, WAIT_TIME_MS, () -> {
+                        holdLock();
+                        return null;
+                    });
+                    completed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        for (int i = 0; i < COLD_REQUESTS; i++) {
+            long submitted = System.nanoTime();
+            executor.submit(() -> {
+                try {
+                    lockService.executeWithLock("bench-cold-" + UUID.randomUUID(), WAIT_TIME_MS, () -> {
+                        holdLock();
+                        return null;
+                    });
+                    long latency = System.nanoTime() - submitted;
+                    totalColdNanos.addAndGet(latency);
+                    maxColdNanos.accumulateAndGet(latency, Math::max);
+                    completed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        done.await(WAIT_TIME_MS * 2, TimeUnit.MILLISECONDS);
+        long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+
+        return new Result(completed.get(),
+                completed.get() / (elapsedNanos / 1_000_000_000.0),
+                totalColdNanos.get() / 1_000_000.0 / COLD_REQUESTS,
+                maxColdNanos.get() / 1_000_000.0);
+    }
+
+    private void holdLock() {
+        try {
+            Thread.sleep(HOLD_TIME_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(int completed, double throughput, double avgColdLatencyMs, double maxColdLatencyMs) {
+    }
+}
@@ -0,0 +1,159 @@
+package com.parking.app.benchmark;
+
+import com.parking.app.config.RedisConfig;
+import com.parking.app.integration.BaseIntegrationTest;
+import com.parking.app.service.lock.LockFenceFloor;
+import com.parking.app.service.lock.LockLeaseWatchdog;
+import com.parking.app.service.lock.LockReleaseNotifier;
+import com.parking.app.service.lock.LockService;
+import com.parking.app.service.lock.MongoLockService;
+import com.parking.app.service.lock.RedisLockService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Lock handoff latency and throughput on a single contended spot, before and after wake-on-release
+ * Handoff = time from the end of one critical section to the start of the next (release + wake-up + acquire).
+ *
+ * Each provider is run twice with the same settings: once with waiters sleep-polling
+ * (wake-on-release disabled) and once woken by LockReleaseNotifier. The providers are called
+ * directly - through the local stripe, same-instance waiters queue in-process and never reach the
+ * provider's wait loop. Needs a local MongoDB and Redis; the Redis connection is built from
+ * RedisConfig here, since the test context runs on the MongoDB provider.
+ */
+@Tag("benchmark")
+public class LockHandoffBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int THREADS = 16;
+    private static final int ACQUISITIONS_PER_THREAD = 50;
+    private static final long WAIT_TIME_MS = 30000;
+    private static final long LEASE_TTL_MS = 5000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LockLeaseWatchdog leaseWatchdog;
+
+    @Autowired
+    private LockFenceFloor fenceFloor;
+
+    private LettuceConnectionFactory redisConnectionFactory;
+    private RedisTemplate<String, String> redisTemplate;
+
+    @BeforeAll
+    void connectRedis() {
+        RedisConfig redisConfig = new RedisConfig();
+        redisConnectionFactory = (LettuceConnectionFactory) redisConfig.redisConnectionFactory();
+        redisConnectionFactory.afterPropertiesSet();
+        redisConnectionFactory.start();
+        redisTemplate = redisConfig.redisTemplate(redisConnectionFactory);
+        redisTemplate.afterPropertiesSet();
+    }
+
+    @AfterAll
+    void disconnectRedis() {
+        redisConnectionFactory.destroy();
+    }
+
+    @Test
+    @DisplayName("MongoDB lock - sleep polling vs wake-on-release")
+    void mongoHandoff() throws InterruptedException {
+        compare("MongoDB",
+                run(new MongoLockService(mongoTemplate, new LockReleaseNotifier(false), leaseWatchdog, fenceFloor, LEASE_TTL_MS)),
+                run(new MongoLockService(mongoTemplate, new LockReleaseNotifier(true), leaseWatchdog, fenceFloor, LEASE_TTL_MS)));
+    }
+
+    @Test
+    @DisplayName("Redis lock - sleep polling vs wake-on-release")
+    void redisHandoff() throws InterruptedException {
+        compare("Redis",
+                run(new RedisLockService(redisTemplate, new LockReleaseNotifier(false), leaseWatchdog, fenceFloor, LEASE_TTL_MS)),
+                run(new RedisLockService(redisTemplate, new LockReleaseNotifier(true), leaseWatchdog, fenceFloor, LEASE_TTL_MS)));
+    }
+
+    private void compare(String provider, Result polling, Result notified) {
+        report(provider + " sleep polling", polling);
+        report(provider + " wake-on-release", notified);
+        logger.info("📊 {}: wake-on-release throughput x{}, avg handoff x{}", provider,
+                String.format("%.2f", notified.throughput() / polling.throughput()),
+                String.format("%.2f", notified.avgHandoffMs() / Math.max(polling.avgHandoffMs(), 0.001)));
+    }
+
+    private void report(String name, Result result) {
+        logger.info("📊 {}: {} acquisitions/s, avg handoff {}ms, max handoff {}ms", name,
+                String.format("%.0f", result.throughput()),
+                String.format("%.2f", result.avgHandoffMs()),
+                String.format("%.2f", result.maxHandoffMs()));
+        assertEquals(THREADS * ACQUISITIONS_PER_THREAD, result.acquisitions());
+    }
+
+    private Result run(LockService service) throws InterruptedException {
+        String spotId = "bench-lock-" + UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        AtomicInteger acquisitions = new AtomicInteger();
+        AtomicLong lastReleaseNanos = new AtomicLong();
+        AtomicLong totalHandoffNanos = new AtomicLong();
+        AtomicLong maxHandoffNanos = new AtomicLong();
+        AtomicInteger handoffs = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < ACQUISITIONS_PER_THREAD; i++) {
+                        service.executeWithLock(spotId, WAIT_TIME_MS, () -> {
+                            long released = lastReleaseNanos.get();
+                            if (released > 0) {
+                                long handoff = System.nanoTime() - released;
+                                totalHandoffNanos.addAndGet(handoff);
+                                maxHandoffNanos.accumulateAndGet(handoff, Math::max);
+                                handoffs.incrementAndGet();
+                            }
+                            acquisitions.incrementAndGet();
+                            lastReleaseNanos.set(System.nanoTime());
+                            return null;
+                        });
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+
+        int handoffCount = Math.max(1, handoffs.get());
+        return new Result(acquisitions.get(),
+                acquisitions.get() / (elapsedNanos / 1_000_000_000.0),
+                totalHandoffNanos.get() / 1_000_000.0 / handoffCount,
+                maxHandoffNanos.get() / 1_000_000.0);
+    }
+
+    private record Result(int acquisitions, double throughput, double avgHandoffMs, double maxHandoffMs) {
+    }
+}
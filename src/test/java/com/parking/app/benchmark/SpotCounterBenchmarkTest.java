@@ -0,0 +1,118 @@
+package com.parking.app.benchmark;
+
+import com.parking.app.integration.BaseIntegrationTest;
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.model.SpotCapacityShard;
+import com.parking.app.service.ParkingSpotService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput comparison of a single availability counter vs sharded counters on one hot spot
+ * Requires a local MongoDB; excluded from the default test task - run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+public class SpotCounterBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 200;
+    private static final int CAPACITY = 1000;
+    private static final int SHARDS = 8;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<String> spotIds = new ArrayList<>();
+
+    @Test
+    @DisplayName("Single counter vs sharded counters - reserve/release throughput")
+    void compareCounterThroughput() throws InterruptedException {
+        ParkingSpot single = createSpot("BENCH-SINGLE");
+        ParkingSpot sharded = createSpot("BENCH-SHARDED");
+        parkingSpotService.configureCounterShards(sharded.getId(), SHARDS);
+
+        double singleOps = run(single.getId());
+        double shardedOps = run(sharded.getId());
+
+        logger.info("📊 Single counter:  {} ops/s", String.format("%.0f", singleOps));
+        logger.info("📊 {} shards:        {} ops/s ({}x)", SHARDS,
+                String.format("%.0f", shardedOps), String.format("%.2f", shardedOps / singleOps));
+
+        // Every reserve was paired with a release, so both spots must be back at full capacity
+        assertEquals(CAPACITY, parkingSpotService.getParkingSpotById(single.getId()).getAvailable());
+        assertEquals(CAPACITY, parkingSpotService.getParkingSpotById(sharded.getId()).getAvailable());
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(SpotCapacityShard.FIELD_SPOT_ID).in(spotIds)),
+                SpotCapacityShard.class);
+        mongoTemplate.remove(new Query(Criteria.where(ParkingSpot.FIELD_ID).in(spotIds)), ParkingSpot.class);
+    }
+
+    private ParkingSpot createSpot(String zoneName) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setLotName("BENCH-LOT");
+        spot.setZoneName(zoneName);
+        spot.setCapacity(CAPACITY);
+        spot.setAvailable(CAPACITY);
+        spot.setActive(true);
+        ParkingSpot saved = parkingSpotService.createParkingSpot(spot);
+        spotIds.add(saved.getId());
+        return saved;
+    }
+
+    /**
+     * @return reserve+release pairs per second across all threads
+     */
+    private double run(String spotId) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        AtomicInteger completed = new AtomicInteger();
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        if (parkingSpotService.atomicReserveSpotForBooking(spotId)) {
+                            parkingSpotService.incrementSpotAvailability(spotId);
+                            completed.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+
+        return completed.get() / (elapsedNanos / 1_000_000_000.0);
+    }
+}
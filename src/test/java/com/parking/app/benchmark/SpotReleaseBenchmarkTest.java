@@ -0,0 +1,126 @@
+package com.parking.app.benchmark;
+
+import com.parking.app.integration.BaseIntegrationTest;
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.service.ParkingSpotService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cost of the single-update, capacity-clamped spot release against the legacy release
+ * Correctness under concurrency is covered by SpotReleaseIntegrationTest.
+ * Requires a local MongoDB; excluded from the default test task - run with ./gradlew benchmark
+ */
+@Tag("benchmark")
+public class SpotReleaseBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 25;
+    private static final int CAPACITY = 1000;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<String> spotIds = new ArrayList<>();
+
+    @Test
+    @DisplayName("Single clamped update vs legacy inc + read + save release")
+    void compareReleaseCost() throws InterruptedException {
+        ParkingSpot legacy = createSpot(0);
+        ParkingSpot clamped = createSpot(0);
+
+        double legacyOps = run(legacy.getId(), this::legacyRelease);
+        double clampedOps = run(clamped.getId(), parkingSpotService::incrementSpotAvailability);
+
+        logger.info("📊 Legacy release (3 round trips):  {} releases/s", String.format("%.0f", legacyOps));
+        logger.info("📊 Clamped release (1 round trip):  {} releases/s ({}x)",
+                String.format("%.0f", clampedOps), String.format("%.2f", clampedOps / legacyOps));
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, available(clamped.getId()));
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(ParkingSpot.FIELD_ID).in(spotIds)), ParkingSpot.class);
+    }
+
+    /**
+     * The release as it was: $inc, read back, and save the whole document if it overflowed
+     */
+    private void legacyRelease(String spotId) {
+        Query byId = new Query(Criteria.where(ParkingSpot.FIELD_ID).is(spotId));
+        mongoTemplate.updateFirst(byId, new Update().inc(ParkingSpot.FIELD_AVAILABLE, 1), ParkingSpot.class);
+        ParkingSpot spot = mongoTemplate.findById(spotId, ParkingSpot.class);
+        if (spot != null && spot.getAvailable() > spot.getCapacity()) {
+            spot.setAvailable(spot.getCapacity());
+            mongoTemplate.save(spot);
+        }
+    }
+
+    private ParkingSpot createSpot(int available) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setLotName("BENCH-LOT");
+        spot.setZoneName("BENCH-RELEASE");
+        spot.setCapacity(CAPACITY);
+        spot.setAvailable(available);
+        spot.setActive(true);
+        ParkingSpot saved = mongoTemplate.insert(spot);
+        spotIds.add(saved.getId());
+        return saved;
+    }
+
+    private int available(String spotId) {
+        return mongoTemplate.findById(spotId, ParkingSpot.class).getAvailable();
+    }
+
+    /**
+     * @return operations per second across all threads
+     */
+    private double run(String spotId, Consumer<String> operation) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.accept(spotId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+
+        return THREADS * OPERATIONS_PER_THREAD / (elapsedNanos / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.parking.app.config;
+
+import com.parking.app.AppApplication;
+import com.parking.app.service.lock.LocalStripedLockService;
+import com.parking.app.service.lock.LockService;
+import com.parking.app.service.lock.MongoLockService;
+import com.parking.app.service.lock.RedisLockService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * Starts the application once per app.locking.provider and checks which lock stack is wired
+ * Requires a local MongoDB, and Redis for the redis provider
+ */
+class LockConfigContextTest {
+
+    @Test
+    @DisplayName("MongoDB provider behind the local striped lock")
+    void mongoProvider() {
+        try (ConfigurableApplicationContext context = start("mongodb")) {
+            assertInstanceOf(LocalStripedLockService.class, context.getBean(LockService.class));
+            assertEquals(1, context.getBeanNamesForType(MongoLockService.class).length);
+            assertEquals(0, context.getBeanNamesForType(RedisLockService.class).length);
+        }
+    }
+
+    @Test
+    @DisplayName("Redis provider behind the local striped lock")
+    void redisProvider() {
+        try (ConfigurableApplicationContext context = start("redis")) {
+            assertInstanceOf(LocalStripedLockService.class, context.getBean(LockService.class));
+            assertEquals(1, context.getBeanNamesForType(RedisLockService.class).length);
+            assertEquals(0, context.getBeanNamesForType(MongoLockService.class).length);
+        }
+    }
+
+    // Command-line arguments, so they win over application-local.properties
+    private ConfigurableApplicationContext start(String provider) {
+        return new SpringApplicationBuilder(AppApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.profiles.active=local",
+                        "--app.locking.provider=" + provider,
+                        "--logging.level.com.parking.app=WARN",
+                        "--spring.data.mongodb.uri=mongodb://localhost:27017/parkingdbtest");
+    }
+}
@@ -0,0 +1,215 @@
+package com.parking.app.integration;
+
+import com.parking.app.exception.InsufficientFundsException;
+import com.parking.app.exception.SpotUnavailableException;
+import com.parking.app.model.BookingOutboxEvent;
+import com.parking.app.model.Bookings;
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.model.WalletLedgerBucket;
+import com.parking.app.service.ParkingSpotService;
+import com.parking.app.service.booking.BookingCombiner;
+import com.parking.app.service.booking.BookingIntervalIndex;
+import com.parking.app.service.booking.BookingOutboxService;
+import com.parking.app.service.booking.BookingWalletService;
+import com.parking.app.service.booking.SpotLockFence;
+import com.parking.app.service.lock.LockService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent requests on one spot through the booking combiner: capacity is never oversold, only
+ * the booked users are charged, and requests that cannot pay give their capacity back
+ *
+ * The combiner is disabled in the test profile, so an enabled one is built from the context's beans.
+ */
+public class BookingCombinerIntegrationTest extends BaseIntegrationTest {
+
+    private static final long AMOUNT = 1_000; // paise
+    private static final long WAIT_TIME_MS = 10000;
+    private static final String LOT_NAME = "it-combiner-lot";
+
+    @Autowired
+    private LockService lockService;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private BookingWalletService bookingWalletService;
+
+    @Autowired
+    private BookingIntervalIndex intervalIndex;
+
+    @Autowired
+    private BookingOutboxService bookingOutbox;
+
+    @Autowired
+    private SpotLockFence spotFence;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private BookingCombiner combiner;
+    private final List<String> userIds = new ArrayList<>();
+    private final List<String> spotIds = new ArrayList<>();
+
+    @BeforeAll
+    void createCombiner() {
+        combiner = new BookingCombiner(lockService, parkingSpotService, bookingWalletService, mongoTemplate,
+                intervalIndex, bookingOutbox, spotFence, true, 50);
+    }
+
+    @Test
+    @DisplayName("More requests than capacity: exactly capacity bookings, and only those users are charged")
+    void burstNeverOversells() throws InterruptedException {
+        int capacity = 5;
+        ParkingSpot spot = createSpot(capacity);
+        List<String> users = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            users.add(createWallet(10 * AMOUNT));
+        }
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger unavailable = new AtomicInteger();
+
+        run(users, userId -> {
+            try {
+                combiner.submit(spot, userId, checkIn(), checkIn().plusHours(1), "IT-0001", AMOUNT, WAIT_TIME_MS);
+                booked.incrementAndGet();
+            } catch (SpotUnavailableException e) {
+                unavailable.incrementAndGet();
+            }
+        });
+
+        assertEquals(capacity, booked.get());
+        assertEquals(users.size() - capacity, unavailable.get());
+        assertEquals(0, available(spot));
+        assertEquals(capacity, mongoTemplate.count(bySpot(spot), Bookings.class));
+        long charged = users.stream().filter(userId -> balance(userId) == 9 * AMOUNT).count();
+        long untouched = users.stream().filter(userId -> balance(userId) == 10 * AMOUNT).count();
+        assertEquals(capacity, charged);
+        assertEquals(users.size() - capacity, untouched);
+    }
+
+    @Test
+    @DisplayName("A request the wallet cannot pay for releases its reserved capacity")
+    void insufficientFundsReleasesCapacity() throws InterruptedException {
+        ParkingSpot spot = createSpot(3);
+        String broke = createWallet(AMOUNT - 1);
+        List<String> users = List.of(createWallet(AMOUNT), createWallet(AMOUNT), broke);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger insufficient = new AtomicInteger();
+
+        run(users, userId -> {
+            try {
+                combiner.submit(spot, userId, checkIn(), checkIn().plusHours(1), "IT-0002", AMOUNT, WAIT_TIME_MS);
+                booked.incrementAndGet();
+            } catch (InsufficientFundsException e) {
+                insufficient.incrementAndGet();
+            }
+        });
+
+        assertEquals(2, booked.get());
+        assertEquals(1, insufficient.get());
+        assertEquals(1, available(spot));
+        assertEquals(AMOUNT - 1, balance(broke));
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(Bookings.FIELD_SPOT_ID).in(spotIds)), Bookings.class);
+        mongoTemplate.remove(new Query(Criteria.where("spotId").in(spotIds)), BookingOutboxEvent.class);
+        mongoTemplate.remove(new Query(Criteria.where(ParkingSpot.FIELD_ID).in(spotIds)), ParkingSpot.class);
+        mongoTemplate.remove(new Query(Criteria.where(Wallet.FIELD_USER_ID).in(userIds)), Wallet.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), Transactions.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), WalletLedgerBucket.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), WalletBalanceCheckpoint.class);
+    }
+
+    private void run(List<String> users, UserTask task) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(users.size());
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(users.size());
+        for (String userId : users) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    task.run(userId);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        executor.shutdown();
+    }
+
+    private ParkingSpot createSpot(int capacity) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setId("it-combiner-" + UUID.randomUUID());
+        spot.setLotName(LOT_NAME);
+        spot.setCapacity(capacity);
+        spot.setAvailable(capacity);
+        spot.setBookingRate(AMOUNT);
+        spot.setActive(true);
+        spotIds.add(spot.getId());
+        return mongoTemplate.insert(spot);
+    }
+
+    private String createWallet(long balance) {
+        String userId = "it-combiner-" + UUID.randomUUID();
+        Wallet wallet = new Wallet();
+        wallet.setUserId(userId);
+        wallet.setBalance(balance);
+        wallet.setLastUpdated(new Date());
+        wallet.setTransactions(new ArrayList<>());
+        mongoTemplate.insert(wallet);
+        userIds.add(userId);
+        return userId;
+    }
+
+    private ZonedDateTime checkIn() {
+        return ZonedDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+    }
+
+    private Query bySpot(ParkingSpot spot) {
+        return new Query(Criteria.where(Bookings.FIELD_SPOT_ID).is(spot.getId()));
+    }
+
+    private int available(ParkingSpot spot) {
+        return mongoTemplate.findById(spot.getId(), ParkingSpot.class).getAvailable();
+    }
+
+    private long balance(String userId) {
+        return mongoTemplate.findOne(new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId)), Wallet.class)
+                .getBalance();
+    }
+
+    @FunctionalInterface
+    private interface UserTask {
+        void run(String userId);
+    }
+}
@@ -0,0 +1,166 @@
+package com.parking.app.integration;
+
+import com.parking.app.model.BookingOutboxEvent;
+import com.parking.app.model.Bookings;
+import com.parking.app.model.event.BookingEvent;
+import com.parking.app.service.booking.BookingOutboxService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Booking outbox relay: undelivered records are re-published, records claimed by a live delivery
+ * are not, and events whose outbox write never happened are recorded from their booking
+ *
+ * Uses its own outbox service with short grace and claim timeouts and a capturing publisher.
+ * Records are backdated by a couple of seconds only, well inside the context relay's timeouts.
+ */
+public class BookingOutboxRelayIntegrationTest extends BaseIntegrationTest {
+
+    private static final long RELAY_GRACE_MS = 1000;
+    private static final long CLAIM_TIMEOUT_MS = 1000;
+    private static final String LOT_NAME = "it-outbox-lot";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private BookingOutboxService outboxService;
+    private final List<BookingEvent> published = new CopyOnWriteArrayList<>();
+    private final List<String> bookingIds = new ArrayList<>();
+
+    @BeforeAll
+    void createOutboxService() {
+        outboxService = new BookingOutboxService(mongoTemplate, event -> published.add((BookingEvent) event),
+                RELAY_GRACE_MS, CLAIM_TIMEOUT_MS, 1000);
+    }
+
+    @BeforeEach
+    void clearPublished() {
+        published.clear();
+    }
+
+    @Test
+    @DisplayName("PENDING records past the grace and DELIVERING records past the claim timeout are relayed")
+    void undeliveredRecordsAreRelayed() {
+        Date stale = new Date(System.currentTimeMillis() - 2 * CLAIM_TIMEOUT_MS);
+        BookingOutboxEvent pending = insertRecord(BookingOutboxEvent.Status.PENDING, stale, null);
+        BookingOutboxEvent abandoned = insertRecord(BookingOutboxEvent.Status.DELIVERING, stale, stale);
+        BookingOutboxEvent live = insertRecord(BookingOutboxEvent.Status.DELIVERING, stale, new Date());
+        BookingOutboxEvent fresh = insertRecord(BookingOutboxEvent.Status.PENDING, new Date(), null);
+
+        outboxService.relayUndelivered();
+
+        Set<String> relayed = relayedIds();
+        assertTrue(relayed.contains(pending.getId()));
+        assertTrue(relayed.contains(abandoned.getId()));
+        assertFalse(relayed.contains(live.getId()), "a live delivery keeps its record");
+        assertFalse(relayed.contains(fresh.getId()), "a record inside the grace is left to the fast path");
+    }
+
+    @Test
+    @DisplayName("A claim is exclusive until it is older than claim-timeout-ms")
+    void claimIsTakenOverAfterTimeout() throws InterruptedException {
+        BookingOutboxEvent record = insertRecord(BookingOutboxEvent.Status.PENDING, new Date(), null);
+
+        BookingOutboxService.OutboxClaim first = outboxService.claim(List.of(record.getId()));
+        assertEquals(Set.of(record.getId()), first.outboxIds());
+        assertTrue(outboxService.claim(List.of(record.getId())).outboxIds().isEmpty());
+
+        Thread.sleep(CLAIM_TIMEOUT_MS + 200);
+        BookingOutboxService.OutboxClaim second = outboxService.claim(List.of(record.getId()));
+        assertEquals(Set.of(record.getId()), second.outboxIds());
+
+        // The first consumer's late mark no longer owns the record
+        outboxService.markDelivered(first);
+        assertEquals(BookingOutboxEvent.Status.DELIVERING, stored(record.getId()).getStatus());
+        outboxService.markDelivered(second);
+        assertEquals(BookingOutboxEvent.Status.DELIVERED, stored(record.getId()).getStatus());
+        assertEquals(2, stored(record.getId()).getAttempts());
+    }
+
+    @Test
+    @DisplayName("An event left on its booking without an outbox record is recorded and relayed once")
+    void unrecordedEventIsRecordedOnce() {
+        Bookings booking = insertBooking(BookingEvent.BookingEventType.BOOKING_CREATED);
+        String outboxId = BookingOutboxEvent.buildId(booking.getId(), BookingEvent.BookingEventType.BOOKING_CREATED);
+
+        outboxService.relayUndelivered();
+
+        assertEquals(1, relayedIds().stream().filter(outboxId::equals).count());
+        BookingOutboxEvent record = stored(outboxId);
+        assertNotNull(record);
+        assertEquals(BookingOutboxEvent.Status.PENDING, record.getStatus());
+
+        // Delivering it clears the booking's copy, so the relay has nothing left to record
+        BookingOutboxService.OutboxClaim claim = outboxService.claim(List.of(outboxId));
+        outboxService.markDelivered(claim);
+        assertTrue(mongoTemplate.findById(booking.getId(), Bookings.class).getPendingEvents().isEmpty());
+
+        published.clear();
+        outboxService.relayUndelivered();
+        assertFalse(relayedIds().contains(outboxId));
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(Bookings.FIELD_ID).in(bookingIds)), Bookings.class);
+        mongoTemplate.remove(new Query(Criteria.where("bookingId").in(bookingIds)), BookingOutboxEvent.class);
+    }
+
+    private BookingOutboxEvent insertRecord(BookingOutboxEvent.Status status, Date createdAt, Date claimedAt) {
+        String bookingId = "it-outbox-" + UUID.randomUUID();
+        bookingIds.add(bookingId);
+        BookingOutboxEvent record = BookingOutboxEvent.from(new BookingEvent(this, bookingId, LOT_NAME,
+                "it-outbox-spot", BookingEvent.BookingEventType.BOOKING_CREATED, "it-outbox-user"));
+        record.setStatus(status);
+        record.setCreatedAt(createdAt);
+        if (claimedAt != null) {
+            record.setClaimToken(UUID.randomUUID().toString());
+            record.setClaimedAt(claimedAt);
+        }
+        return mongoTemplate.insert(record);
+    }
+
+    // A booking whose write committed its event but whose instance died before the outbox insert
+    private Bookings insertBooking(BookingEvent.BookingEventType eventType) {
+        Bookings booking = new Bookings();
+        booking.setId("it-outbox-" + UUID.randomUUID());
+        booking.setUserId("it-outbox-user");
+        booking.setLotName(LOT_NAME);
+        booking.setSpotId("it-outbox-spot");
+        Bookings.PendingEvent pending = Bookings.PendingEvent.of(booking.getId(), eventType);
+        pending.setAt(new Date(System.currentTimeMillis() - 2 * RELAY_GRACE_MS));
+        booking.setPendingEvents(new ArrayList<>(List.of(pending)));
+        bookingIds.add(booking.getId());
+        return mongoTemplate.insert(booking);
+    }
+
+    private BookingOutboxEvent stored(String outboxId) {
+        return mongoTemplate.findById(outboxId, BookingOutboxEvent.class);
+    }
+
+    private Set<String> relayedIds() {
+        return published.stream()
+                .map(BookingEvent::getOutboxId)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,109 @@
+package com.parking.app.integration;
+
+import com.parking.app.model.ParkingSpot;
+import com.parking.app.service.ParkingSpotService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent spot releases against the real database: none may be lost and capacity is never exceeded
+ */
+public class SpotReleaseIntegrationTest extends BaseIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 25;
+    private static final int CAPACITY = 1000;
+
+    @Autowired
+    private ParkingSpotService parkingSpotService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<String> spotIds = new ArrayList<>();
+
+    @Test
+    @DisplayName("Concurrent releases are never lost")
+    void concurrentReleasesAreNotLost() throws InterruptedException {
+        ParkingSpot spot = createSpot(0);
+
+        run(spot.getId(), parkingSpotService::incrementSpotAvailability);
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, available(spot.getId()));
+    }
+
+    @Test
+    @DisplayName("Releases past capacity are clamped, concurrent reservations are kept")
+    void releasesAreClampedWithoutOverwritingReservations() throws InterruptedException {
+        ParkingSpot spot = createSpot(CAPACITY);
+
+        // Every thread reserves one unit, then releases two: one matches the reservation, one is spurious
+        run(spot.getId(), spotId -> {
+            parkingSpotService.atomicReserveSpotForBooking(spotId);
+            parkingSpotService.incrementSpotAvailability(spotId);
+            parkingSpotService.incrementSpotAvailability(spotId);
+        });
+
+        assertEquals(CAPACITY, available(spot.getId()));
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(ParkingSpot.FIELD_ID).in(spotIds)), ParkingSpot.class);
+    }
+
+    private ParkingSpot createSpot(int available) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setLotName("IT-LOT");
+        spot.setZoneName("IT-RELEASE");
+        spot.setCapacity(CAPACITY);
+        spot.setAvailable(available);
+        spot.setActive(true);
+        ParkingSpot saved = mongoTemplate.insert(spot);
+        spotIds.add(saved.getId());
+        return saved;
+    }
+
+    private int available(String spotId) {
+        return mongoTemplate.findById(spotId, ParkingSpot.class).getAvailable();
+    }
+
+    private void run(String spotId, Consumer<String> operation) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.accept(spotId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,176 @@
+package com.parking.app.integration;
+
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.model.WalletLedgerBucket;
+import com.parking.app.service.WalletBalanceCheckpointService;
+import com.parking.app.service.WalletService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads debiting and crediting one wallet: no update may be lost and the balance never goes negative
+ */
+public class WalletConcurrencyIntegrationTest extends BaseIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS_PER_THREAD = 25;
+    private static final long AMOUNT = 1_000; // paise
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletBalanceCheckpointService checkpointService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<String> userIds = new ArrayList<>();
+
+    @Test
+    @DisplayName("Concurrent credits and debits are never lost")
+    void concurrentCreditsAndDebitsAreNotLost() throws InterruptedException {
+        String userId = createWallet(1_000_000);
+        checkpointService.checkpoint(userId);
+        AtomicInteger debits = new AtomicInteger();
+        AtomicInteger credits = new AtomicInteger();
+
+        // Even threads debit, odd threads credit
+        run(thread -> {
+            if (thread % 2 == 0) {
+                if (walletService.debit(userId, AMOUNT, "Booking charge") != null) {
+                    debits.incrementAndGet();
+                }
+            } else if (walletService.credit(userId, AMOUNT, "wallet_topup") != null) {
+                credits.incrementAndGet();
+            }
+        });
+
+        assertEquals(THREADS * OPERATIONS_PER_THREAD, debits.get() + credits.get());
+
+        long expected = 1_000_000 + (credits.get() - debits.get()) * AMOUNT;
+        assertEquals(expected, balance(userId));
+        // Opening checkpoint plus every ledger entry since reproduces the stored balance exactly
+        WalletBalanceCheckpointService.LedgerBalance ledgerBalance = checkpointService.ledgerBalance(userId);
+        assertTrue(ledgerBalance.complete());
+        assertEquals(expected, ledgerBalance.balance());
+    }
+
+    @Test
+    @DisplayName("Concurrent debits never overdraw the wallet")
+    void concurrentDebitsNeverOverdraw() throws InterruptedException {
+        int affordable = 100;
+        String userId = createWallet(affordable * AMOUNT);
+        AtomicInteger applied = new AtomicInteger();
+
+        run(thread -> {
+            if (walletService.debit(userId, AMOUNT, "Booking charge") != null) {
+                applied.incrementAndGet();
+            }
+        });
+
+        assertEquals(affordable, applied.get());
+        assertEquals(0, balance(userId));
+    }
+
+    @Test
+    @DisplayName("A referenceId is applied once even when submitted from every thread")
+    void duplicateReferenceIsAppliedOnce() throws InterruptedException {
+        String userId = createWallet(0);
+        Wallet.TransactionRef ref = WalletService.newTransactionRef("wallet_recharge", AMOUNT);
+        AtomicInteger applied = new AtomicInteger();
+
+        run(thread -> {
+            if (walletService.applyBalanceChange(userId, AMOUNT, ref, false) != null) {
+                applied.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, applied.get());
+        assertEquals(AMOUNT, balance(userId));
+        Wallet wallet = mongoTemplate.findOne(byUser(userId), Wallet.class);
+        assertTrue(wallet.getTransactions().size() <= WalletService.MAX_TRANSACTION_REFS);
+    }
+
+    @AfterAll
+    void cleanup() {
+        Query query = new Query(Criteria.where(Wallet.FIELD_USER_ID).in(userIds));
+        mongoTemplate.remove(query, Wallet.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), Transactions.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), WalletLedgerBucket.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), WalletBalanceCheckpoint.class);
+    }
+
+    private String createWallet(long balance) {
+        String userId = "it-wallet-" + UUID.randomUUID();
+        Wallet wallet = new Wallet();
+        wallet.setUserId(userId);
+        wallet.setBalance(balance);
+        wallet.setLastUpdated(new Date());
+        wallet.setTransactions(new ArrayList<>());
+        mongoTemplate.insert(wallet);
+        userIds.add(userId);
+        return userId;
+    }
+
+    private Query byUser(String userId) {
+        return new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId));
+    }
+
+    private long balance(String userId) {
+        return mongoTemplate.findOne(byUser(userId), Wallet.class).getBalance();
+    }
+
+    /**
+     * Runs the operation OPERATIONS_PER_THREAD times on each of THREADS threads, all released at once
+     */
+    private void run(ThreadOperation operation) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        operation.run(thread);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        start.countDown();
+        done.await();
+        executor.shutdown();
+    }
+
+    @FunctionalInterface
+    private interface ThreadOperation {
+        void run(int thread);
+    }
+}
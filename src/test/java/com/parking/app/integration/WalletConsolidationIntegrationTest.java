@@ -0,0 +1,148 @@
+package com.parking.app.integration;
+
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.service.WalletConsolidation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Duplicate wallets are merged into the most recently updated one, and a rerun after a crash
+ * between the merge steps adds only what is still missing
+ *
+ * The unique index on wallets.userId is dropped for the duration of the class so duplicates can
+ * be inserted, and rebuilt afterwards.
+ */
+public class WalletConsolidationIntegrationTest extends BaseIntegrationTest {
+
+    private static final String WALLET_USER_INDEX = "idx_wallet_user_unique";
+
+    @Autowired
+    private WalletConsolidation walletConsolidation;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<String> userIds = new ArrayList<>();
+
+    @BeforeAll
+    void dropUniqueIndex() {
+        boolean exists = mongoTemplate.indexOps(Wallet.class).getIndexInfo().stream()
+                .anyMatch(info -> WALLET_USER_INDEX.equals(info.getName()));
+        if (exists) {
+            mongoTemplate.indexOps(Wallet.class).dropIndex(WALLET_USER_INDEX);
+        }
+    }
+
+    @Test
+    @DisplayName("Duplicate wallets are folded into the newest one")
+    void duplicatesAreMerged() {
+        String userId = newUserId();
+        Wallet primary = insertWallet(userId, 10_000, 5, 1);
+        insertWallet(userId, 2_500, 7, 2);
+        insertWallet(userId, 500, 1, 3);
+
+        assertEquals(1, walletConsolidation.consolidate());
+
+        List<Wallet> wallets = mongoTemplate.find(byUser(userId), Wallet.class);
+        assertEquals(1, wallets.size());
+        assertEquals(primary.getId(), wallets.get(0).getId());
+        assertEquals(13_000, wallets.get(0).getBalance());
+        assertEquals(7, wallets.get(0).getLedgerSeq());
+        // Checkpoints are rebuilt on the merged wallet
+        WalletBalanceCheckpoint checkpoint = mongoTemplate.findOne(new Query(
+                Criteria.where(WalletBalanceCheckpoint.FIELD_USER_ID).is(userId)), WalletBalanceCheckpoint.class);
+        assertNotNull(checkpoint);
+        assertEquals(13_000, checkpoint.getBalance());
+    }
+
+    @Test
+    @DisplayName("A rerun after a crash between the merge steps does not add the duplicate twice")
+    void rerunAfterCrashAddsNothing() {
+        String userId = newUserId();
+        Wallet primary = insertWallet(userId, 10_000, 5, 1);
+        Wallet duplicate = insertWallet(userId, 2_500, 3, 2);
+        // First step done, duplicate never deleted
+        absorb(primary, duplicate, 2_500);
+
+        walletConsolidation.consolidate();
+
+        assertEquals(List.of(12_500L), balances(userId));
+    }
+
+    @Test
+    @DisplayName("A duplicate credited after it was merged contributes only the difference")
+    void duplicateChangedAfterMergeAddsDifference() {
+        String userId = newUserId();
+        Wallet primary = insertWallet(userId, 10_000, 5, 1);
+        Wallet duplicate = insertWallet(userId, 2_500, 3, 2);
+        absorb(primary, duplicate, 2_500);
+        // A change lands on the duplicate after the first step
+        mongoTemplate.updateFirst(new Query(Criteria.where(Wallet.FIELD_ID).is(duplicate.getId())),
+                new Update().inc(Wallet.FIELD_BALANCE, 1_000L).inc(Wallet.FIELD_LEDGER_SEQ, 1), Wallet.class);
+
+        walletConsolidation.consolidate();
+
+        assertEquals(List.of(13_500L), balances(userId));
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(Wallet.FIELD_USER_ID).in(userIds)), Wallet.class);
+        mongoTemplate.remove(new Query(Criteria.where(WalletBalanceCheckpoint.FIELD_USER_ID).in(userIds)),
+                WalletBalanceCheckpoint.class);
+        mongoTemplate.indexOps(Wallet.class).createIndex(new Index()
+                .on(Wallet.FIELD_USER_ID, Sort.Direction.ASC)
+                .unique()
+                .named(WALLET_USER_INDEX));
+    }
+
+    private String newUserId() {
+        String userId = "it-consolidation-" + UUID.randomUUID();
+        userIds.add(userId);
+        return userId;
+    }
+
+    // Higher updatedSecondsAgo = older; the newest wallet becomes the primary
+    private Wallet insertWallet(String userId, long balance, long ledgerSeq, int updatedSecondsAgo) {
+        Wallet wallet = new Wallet();
+        wallet.setUserId(userId);
+        wallet.setBalance(balance);
+        wallet.setLedgerSeq(ledgerSeq);
+        wallet.setLastUpdated(new Date(System.currentTimeMillis() - updatedSecondsAgo * 1000L));
+        wallet.setTransactions(new ArrayList<>());
+        return mongoTemplate.insert(wallet);
+    }
+
+    // Step 1 of a merge: the primary records and adds the duplicate's balance
+    private void absorb(Wallet primary, Wallet duplicate, long amount) {
+        mongoTemplate.updateFirst(new Query(Criteria.where(Wallet.FIELD_ID).is(primary.getId())),
+                new Update().inc(Wallet.FIELD_BALANCE, amount).set("mergedBalances." + duplicate.getId(), amount),
+                Wallet.class);
+    }
+
+    private List<Long> balances(String userId) {
+        return mongoTemplate.find(byUser(userId), Wallet.class).stream().map(Wallet::getBalance).toList();
+    }
+
+    private Query byUser(String userId) {
+        return new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId));
+    }
+}
@@ -0,0 +1,190 @@
+package com.parking.app.integration;
+
+import com.parking.app.model.Transactions;
+import com.parking.app.model.Wallet;
+import com.parking.app.model.WalletBalanceCheckpoint;
+import com.parking.app.model.WalletLedgerBucket;
+import com.parking.app.service.WalletLedgerService;
+import com.parking.app.service.WalletProjector;
+import com.parking.app.service.WalletService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * WalletProjector recovery paths: replayed drains, claims left by a dead drain, and records
+ * whose change has left the wallet's recent window
+ *
+ * Uses its own projector with a short claim timeout. Records are saved as claimed a moment ago,
+ * so the context's scheduled projector (60s claim timeout) leaves them alone.
+ */
+public class WalletProjectorIntegrationTest extends BaseIntegrationTest {
+
+    private static final long CLAIM_TIMEOUT_MS = 500;
+    private static final long AMOUNT = 5_000; // paise
+    private static final String DEAD_DRAIN = "dead-drain";
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private WalletLedgerService walletLedgerService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private WalletProjector projector;
+    private final List<String> userIds = new ArrayList<>();
+
+    @BeforeAll
+    void createProjector() {
+        projector = new WalletProjector(walletService, walletLedgerService, mongoTemplate, Runnable::run,
+                new SimpleMeterRegistry(), 200, CLAIM_TIMEOUT_MS);
+    }
+
+    @Test
+    @DisplayName("A claim older than claim-timeout-ms is taken over and applied once")
+    void expiredClaimIsTakenOver() {
+        String userId = createWallet(0);
+        Transactions tx = insertClaimed(userId, new Date(System.currentTimeMillis() - 2 * CLAIM_TIMEOUT_MS));
+
+        projector.drain();
+
+        assertEquals(AMOUNT, balance(userId));
+        assertDone(tx);
+    }
+
+    @Test
+    @DisplayName("A claim held by a live drain is left alone")
+    void liveClaimIsNotTakenOver() {
+        String userId = createWallet(0);
+        Transactions tx = insertClaimed(userId, new Date(System.currentTimeMillis() + 10 * CLAIM_TIMEOUT_MS));
+
+        projector.drain();
+
+        assertEquals(0, balance(userId));
+        Transactions stored = mongoTemplate.findById(tx.getId(), Transactions.class);
+        assertEquals(Transactions.PROJECTION_PENDING, stored.getProjection());
+        assertEquals(DEAD_DRAIN, stored.getProjectionClaim());
+    }
+
+    @Test
+    @DisplayName("A drain that died after the $inc is replayed without applying the record twice")
+    void replayedDrainAppliesOnce() {
+        String userId = createWallet(0);
+        Transactions tx = insertClaimed(userId, new Date(System.currentTimeMillis() - 2 * CLAIM_TIMEOUT_MS));
+        // The dead drain got as far as the wallet update, under the record's durable key
+        walletService.applyBalanceChanges(userId, List.of(ref("tx:" + tx.getId(), AMOUNT)));
+
+        projector.drain();
+        assertEquals(AMOUNT, balance(userId));
+        assertDone(tx);
+
+        // Saved as PENDING again by a stale writer: still recognised as applied
+        reopen(tx);
+        projector.drain();
+        assertEquals(AMOUNT, balance(userId));
+        assertDone(tx);
+    }
+
+    @Test
+    @DisplayName("A record whose ref left the wallet window is still deduplicated through wallet_ledger")
+    void refOutsideWindowIsDedupedThroughLedger() {
+        String userId = createWallet(0);
+        Transactions tx = insertClaimed(userId, new Date(System.currentTimeMillis() - 2 * CLAIM_TIMEOUT_MS));
+        projector.drain();
+        assertDone(tx);
+
+        // Push enough later changes that the record's ref slides out of the wallet's recent window
+        List<Wallet.TransactionRef> later = new ArrayList<>();
+        for (int i = 0; i < WalletService.MAX_TRANSACTION_REFS; i++) {
+            later.add(ref(UUID.randomUUID().toString(), 1));
+        }
+        walletService.applyBalanceChanges(userId, later);
+        long balance = AMOUNT + WalletService.MAX_TRANSACTION_REFS;
+        assertEquals(balance, balance(userId));
+        Wallet wallet = mongoTemplate.findOne(byUser(userId), Wallet.class);
+        assertFalse(wallet.getTransactions().stream().anyMatch(ref -> ("tx:" + tx.getId()).equals(ref.getReferenceId())));
+
+        reopen(tx);
+        projector.drain();
+
+        assertEquals(balance, balance(userId));
+        assertDone(tx);
+    }
+
+    @AfterAll
+    void cleanup() {
+        mongoTemplate.remove(new Query(Criteria.where(Wallet.FIELD_USER_ID).in(userIds)), Wallet.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), Transactions.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), WalletLedgerBucket.class);
+        mongoTemplate.remove(new Query(Criteria.where("userId").in(userIds)), WalletBalanceCheckpoint.class);
+    }
+
+    private String createWallet(long balance) {
+        String userId = "it-projector-" + UUID.randomUUID();
+        Wallet wallet = new Wallet();
+        wallet.setUserId(userId);
+        wallet.setBalance(balance);
+        wallet.setLastUpdated(new Date());
+        wallet.setTransactions(new ArrayList<>());
+        mongoTemplate.insert(wallet);
+        userIds.add(userId);
+        return userId;
+    }
+
+    // A top-up record as a drain leaves it after claiming it at claimedAt
+    private Transactions insertClaimed(String userId, Date claimedAt) {
+        Transactions tx = new Transactions(userId, AMOUNT, "wallet_topup", new Date());
+        tx.setReferenceId(UUID.randomUUID().toString());
+        tx.setStatus("completed");
+        tx.setProjection(Transactions.PROJECTION_PENDING);
+        tx.setProjectionClaim(DEAD_DRAIN);
+        tx.setProjectionClaimedAt(claimedAt);
+        return mongoTemplate.insert(tx);
+    }
+
+    private void reopen(Transactions tx) {
+        Transactions stored = mongoTemplate.findById(tx.getId(), Transactions.class);
+        stored.setProjection(Transactions.PROJECTION_PENDING);
+        stored.setProjectionClaim(DEAD_DRAIN);
+        stored.setProjectionClaimedAt(new Date(System.currentTimeMillis() - 2 * CLAIM_TIMEOUT_MS));
+        mongoTemplate.save(stored);
+    }
+
+    private Wallet.TransactionRef ref(String referenceId, long delta) {
+        Wallet.TransactionRef ref = WalletService.newTransactionRef("wallet_topup", delta);
+        ref.setReferenceId(referenceId);
+        ref.setDelta(delta);
+        return ref;
+    }
+
+    private void assertDone(Transactions tx) {
+        Transactions stored = mongoTemplate.findById(tx.getId(), Transactions.class);
+        assertEquals(Transactions.PROJECTION_DONE, stored.getProjection());
+        assertNull(stored.getProjectionClaim());
+    }
+
+    private Query byUser(String userId) {
+        return new Query(Criteria.where(Wallet.FIELD_USER_ID).is(userId));
+    }
+
+    private long balance(String userId) {
+        return mongoTemplate.findOne(byUser(userId), Wallet.class).getBalance();
+    }
+}
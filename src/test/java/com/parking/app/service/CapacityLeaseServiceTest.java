@@ -0,0 +1,93 @@
+package com.parking.app.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.parking.app.model.ParkingSpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CapacityLeaseServiceTest {
+
+    private static final String SPOT = "spot-1";
+    private static final int CHUNK = 5;
+
+    private MongoOperations mongoOperations;
+    private CapacityLeaseService leaseService;
+
+    @BeforeEach
+    void setUp() {
+        mongoOperations = mock(MongoOperations.class);
+        leaseService = new CapacityLeaseService(mongoOperations, Set.of("lot-1"), CHUNK, 10_000);
+    }
+
+    @Test
+    @DisplayName("Lease, reset, sweep, reserve: pre-reset units are dropped and the new lease is under the new epoch")
+    void resetVoidsLeasedUnits() {
+        leaseUnder(0);
+        assertTrue(leaseService.reserve(SPOT));
+        assertEquals(CHUNK - 1, leaseService.getLocalAvailable(SPOT));
+
+        // resetAllSpotsCapacity on another instance refilled the spot and bumped its epoch
+        spotEpochIs(1);
+        leaseService.returnSurplus();
+
+        assertEquals(0, leaseService.getLocalAvailable(SPOT));
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ParkingSpot.class));
+
+        leaseUnder(1);
+        assertTrue(leaseService.reserve(SPOT));
+        assertEquals(CHUNK - 1, leaseService.getLocalAvailable(SPOT));
+    }
+
+    @Test
+    @DisplayName("Idle units go back only while the spot is still on the epoch they were leased under")
+    void returnIsConditionalOnEpoch() {
+        // Negative idle time: every pool counts as idle and is drained by the sweep
+        leaseService = new CapacityLeaseService(mongoOperations, Set.of("lot-1"), CHUNK, -1);
+        leaseUnder(3);
+        assertTrue(leaseService.reserve(SPOT));
+        spotEpochIs(3);
+        when(mongoOperations.updateFirst(any(Query.class), any(UpdateDefinition.class), eq(ParkingSpot.class)))
+                .thenReturn(UpdateResult.acknowledged(1, 1L, null));
+
+        leaseService.returnSurplus();
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoOperations).updateFirst(query.capture(), any(UpdateDefinition.class), eq(ParkingSpot.class));
+        assertTrue(query.getValue().getQueryObject().containsKey(ParkingSpot.FIELD_CAPACITY_EPOCH));
+        assertEquals(0, leaseService.getLocalAvailable(SPOT));
+    }
+
+    private void leaseUnder(long epoch) {
+        ParkingSpot before = new ParkingSpot();
+        before.setId(SPOT);
+        before.setAvailable(100);
+        before.setCapacityEpoch(epoch);
+        when(mongoOperations.findAndModify(any(Query.class), any(UpdateDefinition.class),
+                any(FindAndModifyOptions.class), eq(ParkingSpot.class))).thenReturn(before);
+    }
+
+    private void spotEpochIs(long epoch) {
+        ParkingSpot spot = new ParkingSpot();
+        spot.setId(SPOT);
+        spot.setCapacityEpoch(epoch);
+        when(mongoOperations.find(any(Query.class), eq(ParkingSpot.class))).thenReturn(List.of(spot));
+    }
+}
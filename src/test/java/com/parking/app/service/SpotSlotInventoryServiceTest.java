@@ -0,0 +1,87 @@
+package com.parking.app.service;
+
+import com.parking.app.model.SpotSlotInventory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpotSlotInventoryServiceTest {
+
+    // Same zone the service buckets in; dates are clear of DST changes
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+    private static final LocalDate DAY = LocalDate.of(2026, 6, 10);
+
+    @Test
+    @DisplayName("An interval within one day is one segment of its buckets")
+    void sameDayIsOneSegment() {
+        List<SpotSlotInventoryService.DaySegment> segments =
+                SpotSlotInventoryService.splitIntoDays(at(DAY, 9, 0), at(DAY, 10, 30));
+
+        assertEquals(List.of(new SpotSlotInventoryService.DaySegment(DAY, 36, 42)), segments);
+    }
+
+    @Test
+    @DisplayName("A partly covered bucket at either end is reserved")
+    void partialBucketsAreReserved() {
+        List<SpotSlotInventoryService.DaySegment> segments =
+                SpotSlotInventoryService.splitIntoDays(at(DAY, 9, 10), at(DAY, 9, 31));
+
+        assertEquals(List.of(new SpotSlotInventoryService.DaySegment(DAY, 36, 39)), segments);
+    }
+
+    @Test
+    @DisplayName("An interval across midnight is split into one segment per day")
+    void overnightIsSplitPerDay() {
+        LocalDate nextDay = DAY.plusDays(1);
+        List<SpotSlotInventoryService.DaySegment> segments =
+                SpotSlotInventoryService.splitIntoDays(at(DAY, 22, 0), at(nextDay, 2, 0));
+
+        assertEquals(List.of(
+                new SpotSlotInventoryService.DaySegment(DAY, 88, SpotSlotInventory.SLOTS_PER_DAY),
+                new SpotSlotInventoryService.DaySegment(nextDay, 0, 8)), segments);
+    }
+
+    @Test
+    @DisplayName("A multi-day interval covers the middle days completely")
+    void middleDaysAreFull() {
+        List<SpotSlotInventoryService.DaySegment> segments =
+                SpotSlotInventoryService.splitIntoDays(at(DAY, 12, 0), at(DAY.plusDays(2), 12, 0));
+
+        assertEquals(3, segments.size());
+        assertEquals(new SpotSlotInventoryService.DaySegment(DAY.plusDays(1), 0, SpotSlotInventory.SLOTS_PER_DAY),
+                segments.get(1));
+    }
+
+    @Test
+    @DisplayName("Ending exactly at midnight adds no empty segment for the next day")
+    void endingAtMidnightAddsNoSegment() {
+        List<SpotSlotInventoryService.DaySegment> segments =
+                SpotSlotInventoryService.splitIntoDays(at(DAY, 23, 0), at(DAY.plusDays(1), 0, 0));
+
+        assertEquals(List.of(new SpotSlotInventoryService.DaySegment(DAY, 92, SpotSlotInventory.SLOTS_PER_DAY)),
+                segments);
+    }
+
+    @Test
+    @DisplayName("Empty, reversed or open intervals reserve nothing")
+    void invalidIntervalsAreEmpty() {
+        Instant nine = at(DAY, 9, 0);
+        assertTrue(SpotSlotInventoryService.splitIntoDays(nine, nine).isEmpty());
+        assertTrue(SpotSlotInventoryService.splitIntoDays(nine, at(DAY, 8, 0)).isEmpty());
+        assertTrue(SpotSlotInventoryService.splitIntoDays(null, nine).isEmpty());
+        assertTrue(SpotSlotInventoryService.splitIntoDays(nine, null).isEmpty());
+    }
+
+    private Instant at(LocalDate day, int hour, int minute) {
+        return LocalDateTime.of(day, LocalTime.of(hour, minute)).atZone(ZONE).toInstant();
+    }
+}
@@ -0,0 +1,109 @@
+package com.parking.app.service.booking;
+
+import com.parking.app.constants.BookingStatus;
+import com.parking.app.model.Bookings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class BookingIntervalIndexTest {
+
+    private static final String SPOT = "spot-1";
+    private static final ZonedDateTime NINE = ZonedDateTime.of(2026, 6, 10, 9, 0, 0, 0, ZoneId.of("Asia/Kolkata"));
+
+    private BookingIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        // The write and read paths never touch MongoDB; only the change stream feed does
+        index = new BookingIntervalIndex(mock(MongoOperations.class), true);
+    }
+
+    @Test
+    @DisplayName("Intervals are half-open: back-to-back bookings do not overlap")
+    void backToBackDoesNotOverlap() {
+        index.upsert(booking("b1", SPOT, BookingStatus.ACTIVE, NINE, NINE.plusHours(2)));
+
+        assertTrue(index.hasOverlap(SPOT, NINE.plusHours(1), NINE.plusHours(3), null));
+        assertTrue(index.hasOverlap(SPOT, NINE.minusHours(1), NINE.plusMinutes(1), null));
+        assertFalse(index.isFree(SPOT, NINE.plusMinutes(30), NINE.plusMinutes(45)));
+        assertTrue(index.isFree(SPOT, NINE.plusHours(2), NINE.plusHours(3)));
+        assertTrue(index.isFree(SPOT, NINE.minusHours(1), NINE));
+        assertTrue(index.isFree("spot-2", NINE, NINE.plusHours(2)));
+    }
+
+    @Test
+    @DisplayName("A long booking that started well before the window still overlaps it")
+    void longEarlierBookingOverlaps() {
+        index.upsert(booking("long", SPOT, BookingStatus.PENDING, NINE.minusDays(2), NINE.plusHours(1)));
+        index.upsert(booking("short", SPOT, BookingStatus.PENDING, NINE.minusHours(5), NINE.minusHours(4)));
+
+        assertTrue(index.hasOverlap(SPOT, NINE, NINE.plusMinutes(15), null));
+    }
+
+    @Test
+    @DisplayName("The excluded booking does not conflict with itself")
+    void excludedBookingIsIgnored() {
+        index.upsert(booking("b1", SPOT, BookingStatus.ACTIVE, NINE, NINE.plusHours(2)));
+
+        assertFalse(index.hasOverlap(SPOT, NINE, NINE.plusHours(1), "b1"));
+        assertTrue(index.hasOverlap(SPOT, NINE, NINE.plusHours(1), "b2"));
+    }
+
+    @Test
+    @DisplayName("A booking moved to another spot or time frees its old interval")
+    void upsertMovesTheInterval() {
+        index.upsert(booking("b1", SPOT, BookingStatus.ACTIVE, NINE, NINE.plusHours(2)));
+        index.upsert(booking("b1", "spot-2", BookingStatus.ACTIVE, NINE, NINE.plusHours(2)));
+
+        assertTrue(index.isFree(SPOT, NINE, NINE.plusHours(2)));
+        assertFalse(index.isFree("spot-2", NINE, NINE.plusHours(2)));
+
+        index.upsert(booking("b1", "spot-2", BookingStatus.ACTIVE, NINE.plusHours(4), NINE.plusHours(5)));
+
+        assertTrue(index.isFree("spot-2", NINE, NINE.plusHours(2)));
+    }
+
+    @Test
+    @DisplayName("A released booking is not put back by a late upsert of an older version")
+    void releasedBookingStaysReleased() {
+        Bookings pending = booking("b1", SPOT, BookingStatus.PENDING, NINE, NINE.plusHours(2));
+        index.upsert(pending);
+        index.upsert(booking("b1", SPOT, BookingStatus.CANCELLED, NINE, NINE.plusHours(2)));
+
+        assertTrue(index.isFree(SPOT, NINE, NINE.plusHours(2)));
+
+        index.upsert(pending);
+
+        assertTrue(index.isFree(SPOT, NINE, NINE.plusHours(2)));
+    }
+
+    @Test
+    @DisplayName("Without the change stream the index stays empty and never ready")
+    void disabledIndexIgnoresWrites() {
+        BookingIntervalIndex disabled = new BookingIntervalIndex(mock(MongoOperations.class), false);
+        disabled.upsert(booking("b1", SPOT, BookingStatus.ACTIVE, NINE, NINE.plusHours(2)));
+
+        assertFalse(disabled.isReady());
+        assertTrue(disabled.isFree(SPOT, NINE, NINE.plusHours(2)));
+    }
+
+    private Bookings booking(String id, String spotId, BookingStatus status, ZonedDateTime from, ZonedDateTime to) {
+        Bookings booking = new Bookings();
+        booking.setId(id);
+        booking.setSpotId(spotId);
+        booking.setStatus(status.name());
+        booking.setCheckInTime(Date.from(from.toInstant()));
+        booking.setCheckOutTime(Date.from(to.toInstant()));
+        return booking;
+    }
+}
@@ -0,0 +1,81 @@
+package com.parking.app.service.lock;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockReleaseNotifierTest {
+
+    private static final String SPOT = "spot-1";
+    private static final long LONG_WAIT_MS = 10_000;
+
+    @Test
+    @DisplayName("A waiter is woken by a release long before its cap")
+    void releaseWakesWaiter() throws Exception {
+        LockReleaseNotifier notifier = new LockReleaseNotifier(true);
+        long generation = notifier.currentGeneration(SPOT);
+        CountDownLatch waiting = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> woken = CompletableFuture.supplyAsync(() -> {
+            waiting.countDown();
+            try {
+                return notifier.awaitRelease(SPOT, generation, LONG_WAIT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        });
+        waiting.await();
+        notifier.notifyReleased(SPOT);
+
+        assertTrue(woken.get(LONG_WAIT_MS / 2, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    @DisplayName("A release between the failed attempt and the wait is not missed")
+    void earlierReleaseIsSeen() throws InterruptedException {
+        LockReleaseNotifier notifier = new LockReleaseNotifier(true);
+        long generation = notifier.currentGeneration(SPOT);
+        notifier.notifyReleased(SPOT);
+
+        long start = System.nanoTime();
+        assertTrue(notifier.awaitRelease(SPOT, generation, LONG_WAIT_MS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < LONG_WAIT_MS / 2);
+    }
+
+    @Test
+    @DisplayName("Releases of other spots do not wake the waiter")
+    void otherSpotsDoNotWake() throws InterruptedException {
+        LockReleaseNotifier notifier = new LockReleaseNotifier(true);
+        long generation = notifier.currentGeneration(SPOT);
+        notifier.notifyReleased("spot-2");
+
+        assertFalse(notifier.awaitRelease(SPOT, generation, 50));
+    }
+
+    @Test
+    @DisplayName("Without wake-on-release the waiter sleeps its full cap")
+    void disabledSleepsFullCap() throws InterruptedException {
+        LockReleaseNotifier notifier = new LockReleaseNotifier(false);
+        long generation = notifier.currentGeneration(SPOT);
+        notifier.notifyReleased(SPOT);
+
+        long start = System.nanoTime();
+        assertFalse(notifier.awaitRelease(SPOT, generation, 50));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 50);
+    }
+
+    @Test
+    @DisplayName("A zero or negative cap returns at once")
+    void noWaitReturnsImmediately() throws InterruptedException {
+        LockReleaseNotifier notifier = new LockReleaseNotifier(true);
+
+        assertFalse(notifier.awaitRelease(SPOT, notifier.currentGeneration(SPOT), 0));
+    }
+}
@@ -0,0 +1,49 @@
+package com.parking.app.util;
+
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    @DisplayName("Rupees round half-up to the nearest paisa")
+    void ofRupeesRoundsHalfUp() {
+        assertEquals(1250, Money.ofRupees(12.5));
+        assertEquals(1235, Money.ofRupees(12.345));
+        assertEquals(1234, Money.ofRupees(12.344));
+        assertEquals(30, Money.ofRupees(0.1 + 0.2));
+        assertEquals(-1235, Money.ofRupees(new BigDecimal("-12.345")));
+    }
+
+    @Test
+    @DisplayName("Paise convert back to rupees with two decimals")
+    void toRupeesKeepsTwoDecimals() {
+        assertEquals(new BigDecimal("12.34"), Money.toRupees(1234));
+        assertEquals(new BigDecimal("0.05"), Money.toRupees(5));
+        assertEquals(new BigDecimal("0.00"), Money.toRupees(0));
+    }
+
+    @Test
+    @DisplayName("rate * units fails on overflow instead of wrapping")
+    void timesFailsOnOverflow() {
+        assertEquals(15_000, Money.times(5_000, 3));
+        assertThrows(ArithmeticException.class, () -> Money.times(Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    @DisplayName("Stored int64 is paise, other numbers are legacy rupees")
+    void fromStoredReadsPaiseAndLegacyRupees() {
+        assertEquals(1234, Money.fromStored(1234L));
+        assertEquals(500, Money.fromStored(5));
+        assertEquals(1250, Money.fromStored(12.5));
+        assertEquals(199, Money.fromStored(new Decimal128(new BigDecimal("1.99"))));
+        assertEquals(0, Money.fromStored(null));
+        assertEquals(0, Money.fromStored("12.50"));
+    }
+}